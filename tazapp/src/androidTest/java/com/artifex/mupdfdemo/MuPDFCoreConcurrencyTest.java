@@ -0,0 +1,305 @@
+package com.artifex.mupdfdemo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.PointF;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Calls into one {@link MuPDFCore} from several threads at once, as the page views, the pre renderer and the
+ * thumbnails do. Every native call must be serialized by the lock of the core, aborting a cookie must not wait for it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MuPDFCoreConcurrencyTest {
+
+    private static final int  PAGES          = 3;
+    private static final int  RENDER_THREADS = 3;
+    private static final long RUN_MILLIS     = 3000;
+    private static final long TIMEOUT_S      = 60;
+    // whole page fills drawn over each other, enough to keep a large render busy for seconds
+    private static final int  HEAVY_FILLS    = 3000;
+    private static final int  HEAVY_WIDTH    = 2000;
+    private static final long MAX_BLOCKED_MS = 100;
+
+    private File      pdfFile;
+    private MuPDFCore core;
+
+    private final Set<MuPDFCore.Cookie> liveCookies = new HashSet<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation()
+                                                 .getTargetContext();
+        pdfFile = new File(context.getCacheDir(), "concurrency_test.pdf");
+        writePdf(pdfFile, PAGES);
+        core = new MuPDFCore(context, pdfFile.getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        if (core != null) core.onDestroy();
+        if (pdfFile != null) pdfFile.delete();
+    }
+
+    @Test
+    public void concurrentCallsNeitherCrashNorDeadlock() throws InterruptedException {
+        final long end = System.currentTimeMillis() + RUN_MILLIS;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < RENDER_THREADS; i++) {
+            final boolean update = i % 2 == 1;
+            threads.add(new Thread(new Worker(end) {
+                @Override
+                void step(int page) {
+                    render(page, update);
+                }
+            }, "render-" + i));
+        }
+        threads.add(new Thread(new Worker(end) {
+            @Override
+            void step(int page) {
+                core.getPageLinks(page);
+            }
+        }, "links"));
+        threads.add(new Thread(new Worker(end) {
+            @Override
+            void step(int page) {
+                core.textLines(page);
+            }
+        }, "text"));
+        threads.add(new Thread(new Worker(end) {
+            @Override
+            void step(int page) {
+                // about every third round, so most renders run to the end
+                if (page != 0) return;
+                synchronized (liveCookies) {
+                    for (MuPDFCore.Cookie cookie : liveCookies) {
+                        cookie.abort();
+                    }
+                }
+                Thread.yield();
+            }
+        }, "abort"));
+
+        for (final Thread thread : threads) {
+            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                @Override
+                public void uncaughtException(Thread t, Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_S));
+            assertTrue("deadlock, " + thread.getName() + " still running", !thread.isAlive());
+        }
+        assertNull("call into the core failed", failure.get());
+    }
+
+    @Test
+    public void cachedCallsAndAbortDoNotWaitForLongRender() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation()
+                                                 .getTargetContext();
+        File heavyFile = new File(context.getCacheDir(), "concurrency_test_heavy.pdf");
+        writePdf(heavyFile, 1, HEAVY_FILLS);
+        final MuPDFCore heavyCore = new MuPDFCore(context, heavyFile.getAbsolutePath());
+        try {
+            PointF size = heavyCore.getPageSize(0);
+            LinkInfo[] links = heavyCore.getPageLinks(0);
+
+            int height = Math.max(1, (int) (HEAVY_WIDTH * size.y / size.x));
+            final Bitmap bitmap = Bitmap.createBitmap(HEAVY_WIDTH, height, Bitmap.Config.ARGB_8888);
+            final MuPDFCore.Cookie cookie = heavyCore.new Cookie();
+            final CountDownLatch started = new CountDownLatch(1);
+            Thread render = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    heavyCore.drawPage(bitmap, 0, HEAVY_WIDTH, bitmap.getHeight(), 0, 0, HEAVY_WIDTH,
+                                       bitmap.getHeight(), cookie);
+                }
+            }, "heavy-render");
+            render.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                @Override
+                public void uncaughtException(Thread t, Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            try {
+                render.start();
+                started.await();
+                // let the render enter the native call and take the lock
+                Thread.sleep(MAX_BLOCKED_MS);
+                assertTrue("render finished too early to block anything", render.isAlive());
+
+                long start = System.nanoTime();
+                PointF cachedSize = heavyCore.getPageSize(0);
+                LinkInfo[] cachedLinks = heavyCore.getPageLinks(0);
+                long cachedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                assertTrue("cached calls blocked for " + cachedMillis + " ms", cachedMillis < MAX_BLOCKED_MS);
+                assertTrue(size.equals(cachedSize.x, cachedSize.y));
+                assertArrayEquals(links, cachedLinks);
+                assertNotSame("cached links are handed out", links, cachedLinks);
+                assertTrue("render finished before the cached calls were measured", render.isAlive());
+
+                start = System.nanoTime();
+                cookie.abort();
+                long abortMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                assertTrue("abort blocked for " + abortMillis + " ms", abortMillis < MAX_BLOCKED_MS);
+
+                render.join(TimeUnit.SECONDS.toMillis(TIMEOUT_S));
+                assertTrue("aborted render still running", !render.isAlive());
+                assertNull("render failed", failure.get());
+            } finally {
+                // the native render may still use cookie and bitmap until it returns
+                render.join();
+                cookie.destroy();
+                bitmap.recycle();
+            }
+        } finally {
+            heavyCore.onDestroy();
+            heavyFile.delete();
+        }
+    }
+
+    private void render(int page, boolean update) {
+        PointF size = core.getPageSize(page);
+        int width = 200;
+        int height = Math.max(1, (int) (width * size.y / size.x));
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        MuPDFCore.Cookie cookie = core.new Cookie();
+        synchronized (liveCookies) {
+            liveCookies.add(cookie);
+        }
+        try {
+            if (update) {
+                core.updatePage(bitmap, page, width, height, 0, 0, width, height, cookie);
+            } else {
+                core.drawPage(bitmap, page, width, height, 0, 0, width, height, cookie);
+            }
+        } finally {
+            // aborting a destroyed cookie would touch freed memory
+            synchronized (liveCookies) {
+                liveCookies.remove(cookie);
+            }
+            cookie.destroy();
+            bitmap.recycle();
+        }
+    }
+
+    private abstract class Worker implements Runnable {
+
+        private final long   end;
+        private final Random random = new Random();
+
+        Worker(long end) {
+            this.end = end;
+        }
+
+        abstract void step(int page);
+
+        @Override
+        public void run() {
+            while (System.currentTimeMillis() < end && failure.get() == null) {
+                step(random.nextInt(PAGES));
+            }
+        }
+    }
+
+    private static void writePdf(File file, int pages) throws IOException {
+        writePdf(file, pages, 0);
+    }
+
+    /**
+     * Writes a small PDF, every page has a line of text and a link to the next page. Pages get {@code fills}
+     * overlapping rectangles on top, to make rendering them slow.
+     */
+    private static void writePdf(File file, int pages, int fills) throws IOException {
+        StringBuilder heavy = new StringBuilder();
+        for (int i = 0; i < fills; i++) {
+            heavy.append(String.format(Locale.US, " %.2f %.2f %.2f rg %d %d 600 780 re f", (i % 10) / 10f,
+                                       (i % 7) / 7f, (i % 3) / 3f, i % 12, i % 12));
+        }
+        List<String> objects = new ArrayList<>();
+        StringBuilder kids = new StringBuilder();
+        for (int i = 0; i < pages; i++) {
+            kids.append(pageObject(i))
+                .append(" 0 R ");
+        }
+        objects.add("<< /Type /Catalog /Pages 2 0 R >>");
+        objects.add("<< /Type /Pages /Kids [" + kids + "] /Count " + pages + " >>");
+        objects.add("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>");
+        for (int i = 0; i < pages; i++) {
+            String content = "BT /F1 24 Tf 72 720 Td (Seite " + (i + 1) + " der Ausgabe) Tj ET" + heavy;
+            int target = pageObject((i + 1) % pages);
+            objects.add("<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Resources << /Font << /F1 3 0 R >> >>"
+                                + " /Contents " + (pageObject(i) + 1) + " 0 R /Annots [" + (pageObject(i) + 2)
+                                + " 0 R] >>");
+            objects.add("<< /Length " + content.length() + " >>\nstream\n" + content + "\nendstream");
+            objects.add("<< /Type /Annot /Subtype /Link /Rect [72 700 300 750] /Border [0 0 0] /Dest [" + target
+                                + " 0 R /Fit] >>");
+        }
+
+        Charset charset = Charset.forName("ISO-8859-1");
+        StringBuilder pdf = new StringBuilder("%PDF-1.4\n");
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i++) {
+            offsets.add(pdf.length());
+            pdf.append(i + 1)
+               .append(" 0 obj\n")
+               .append(objects.get(i))
+               .append("\nendobj\n");
+        }
+        int xref = pdf.length();
+        pdf.append("xref\n0 ")
+           .append(objects.size() + 1)
+           .append("\n0000000000 65535 f \n");
+        for (int offset : offsets) {
+            pdf.append(String.format(Locale.US, "%010d 00000 n \n", offset));
+        }
+        pdf.append("trailer\n<< /Size ")
+           .append(objects.size() + 1)
+           .append(" /Root 1 0 R >>\nstartxref\n")
+           .append(xref)
+           .append("\n%%EOF\n");
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(pdf.toString()
+                         .getBytes(charset));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int pageObject(int index) {
+        return 4 + index * 3;
+    }
+}
@@ -0,0 +1,86 @@
+package de.thecode.android.tazreader.data;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import de.thecode.android.tazreader.utils.StorageManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class PDFThumbStoreTest {
+
+    private String        key;
+    private PDFThumbStore store;
+    private Bitmap        bitmap;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation()
+                                                 .getTargetContext();
+        key = "thumbstoretest" + System.nanoTime();
+        store = PDFThumbStore.getInstance(StorageManager.getInstance(context), key);
+        bitmap = Bitmap.createBitmap(60, 80, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.RED);
+    }
+
+    @After
+    public void tearDown() {
+        store.delete();
+        bitmap.recycle();
+    }
+
+    @Test
+    public void interruptedReaderKeepsStoreUsable() throws Exception {
+        assertTrue(store.save(bitmap, "s1.pdf"));
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicReference<byte[]> result = new AtomicReference<>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // a cancelled BitmapWorkerTask reads with the interrupt flag set
+                Thread.currentThread()
+                      .interrupt();
+                try {
+                    result.set(store.get("s1.pdf"));
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        reader.start();
+        reader.join(10000);
+
+        assertNull("interrupted read failed", failure.get());
+        assertNotNull(result.get());
+        assertNotNull("store unusable after interrupted read", store.get("s1.pdf"));
+        assertTrue(store.save(bitmap, "s2.pdf"));
+        assertTrue(store.exists("s2.pdf"));
+        assertNotNull(store.get("s2.pdf"));
+    }
+
+    @Test
+    public void releaseReopensOnNextAccess() throws Exception {
+        assertTrue(store.save(bitmap, "s1.pdf"));
+
+        PDFThumbStore.release(key);
+
+        assertNotNull(store.get("s1.pdf"));
+        assertTrue(store.save(bitmap, "s2.pdf"));
+        assertTrue(store.exists("s1.pdf"));
+    }
+}
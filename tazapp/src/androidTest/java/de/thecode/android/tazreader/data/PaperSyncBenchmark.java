@@ -0,0 +1,101 @@
+package de.thecode.android.tazreader.data;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import de.thecode.android.tazreader.room.AppDatabase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * A sync of five years of daily issues, of which a few changed, applied with {@link PaperRepository#applySync} and
+ * with the loop used before, which looked up and wrote every paper and resource on its own. Runs against a database
+ * file, like the app, so every statement outside a transaction pays for its own commit.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PaperSyncBenchmark {
+
+    private static final String DB_NAME   = "sync-benchmark.db";
+    private static final int    PAPERS    = 1800;
+    private static final int    CHANGED   = 20;
+    private static final int    RESOURCES = 30;
+    private static final long   VALID     = 2000;
+
+    @Test
+    public void batchedAgainstPerItem() {
+        long perItem = run(false);
+        long batched = run(true);
+        String result = "sync of " + PAPERS + " papers, " + CHANGED + " changed: per item " + perItem + " ms, batched "
+                + batched + " ms";
+        Timber.i(result);
+        System.out.println(result);
+    }
+
+    private long run(boolean batched) {
+        Context context = InstrumentationRegistry.getInstrumentation()
+                                                 .getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        AppDatabase database = Room.databaseBuilder(context, AppDatabase.class, DB_NAME)
+                                   .build();
+        try {
+            List<Paper> existing = new ArrayList<>();
+            for (int i = 0; i < PAPERS; i++) {
+                existing.add(PaperSyncTest.paper(i, 1, "image", VALID - 1));
+            }
+            database.paperDao()
+                    .insert(existing);
+
+            List<Paper> papers = new ArrayList<>();
+            List<Resource> resources = new ArrayList<>();
+            for (int i = 0; i < PAPERS; i++) {
+                papers.add(PaperSyncTest.paper(i, i < CHANGED ? 2 : 1, "image", VALID));
+                resources.add(PaperSyncTest.resource(i % RESOURCES, "url"));
+            }
+
+            long start = System.nanoTime();
+            if (batched) {
+                PaperRepository.applySync(database, papers, resources, VALID);
+            } else {
+                applyPerItem(database, papers, resources);
+            }
+            return (System.nanoTime() - start) / 1000000;
+        } finally {
+            database.close();
+            context.deleteDatabase(DB_NAME);
+        }
+    }
+
+    private static void applyPerItem(AppDatabase database, List<Paper> papers, List<Resource> resources) {
+        Set<String> checkedResources = new HashSet<>();
+        for (int i = 0; i < papers.size(); i++) {
+            Paper paper = papers.get(i);
+            Paper oldPaper = database.paperDao()
+                                     .getPaper(paper.getBookId());
+            if (oldPaper == null || oldPaper.getLastModified() != paper.getLastModified()) {
+                database.paperDao()
+                        .insert(paper);
+            } else if (oldPaper.getValidUntil() != VALID) {
+                database.paperDao()
+                        .updateValidUntil(VALID, Collections.singletonList(paper.getBookId()));
+            }
+            Resource resource = resources.get(i);
+            if (checkedResources.add(resource.getKey()) && database.resourceDao()
+                                                                   .resourceWithKey(resource.getKey()) == null) {
+                database.resourceDao()
+                        .insert(resource);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package de.thecode.android.tazreader.data;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import de.thecode.android.tazreader.room.AppDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The in-memory diff of {@link PaperRepository#applySync(List, List, long)}. More papers and resources than fit into
+ * one query, so every lookup and the validUntil update run in several chunks.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PaperSyncTest {
+
+    private static final long OLD_VALID_UNTIL = 1000;
+    private static final long NEW_VALID_UNTIL = 2000;
+
+    // ranges of bookId numbers
+    private static final int OUTDATED  = 0;    // unchanged, old validUntil
+    private static final int CURRENT   = 400;  // unchanged, already the new validUntil
+    private static final int MODIFIED  = 600;  // lastModified changed
+    private static final int NEW_IMAGE = 700;  // imageHash changed
+    private static final int NEW       = 800;  // not in the database
+    private static final int END       = 1200;
+
+    private static final int RESOURCES = 600;
+
+    private AppDatabase database;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation()
+                                                 .getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                       .build();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void appliesOnlyTheDifferences() {
+        List<Paper> existing = new ArrayList<>();
+        for (int i = OUTDATED; i < NEW; i++) {
+            existing.add(paper(i, 1, "image", i < CURRENT ? OLD_VALID_UNTIL : NEW_VALID_UNTIL));
+        }
+        database.paperDao()
+                .insert(existing);
+        List<Resource> existingResources = new ArrayList<>();
+        for (int i = 0; i < RESOURCES / 2; i++) {
+            existingResources.add(resource(i, "alt"));
+        }
+        database.resourceDao()
+                .insert(existingResources);
+
+        List<Paper> papers = new ArrayList<>();
+        for (int i = OUTDATED; i < END; i++) {
+            papers.add(paper(i, i >= MODIFIED && i < NEW_IMAGE ? 2 : 1, i >= NEW_IMAGE ? "image2" : "image",
+                             NEW_VALID_UNTIL));
+        }
+        List<Resource> resources = new ArrayList<>();
+        for (int i = 0; i < RESOURCES; i++) {
+            resources.add(resource(i, "neu"));
+        }
+        // every paper of a sync lists its resource, the first one of a key counts
+        for (int i = 0; i < RESOURCES; i++) {
+            resources.add(resource(i, "doppelt"));
+        }
+
+        List<Paper> changedImages = PaperRepository.applySync(database, papers, resources, NEW_VALID_UNTIL);
+
+        Set<String> changedImageIds = new HashSet<>();
+        for (Paper paper : changedImages) {
+            changedImageIds.add(paper.getBookId());
+        }
+        Set<String> expectedImageIds = new HashSet<>();
+        for (int i = NEW_IMAGE; i < END; i++) {
+            expectedImageIds.add(bookId(i));
+        }
+        assertEquals(expectedImageIds, changedImageIds);
+
+        Map<String, Paper> stored = new HashMap<>();
+        for (Paper paper : database.paperDao()
+                                   .getAllPapers()) {
+            stored.put(paper.getBookId(), paper);
+        }
+        assertEquals(END - OUTDATED, stored.size());
+        for (int i = OUTDATED; i < END; i++) {
+            Paper paper = stored.get(bookId(i));
+            assertEquals(bookId(i), NEW_VALID_UNTIL, paper.getValidUntil());
+            assertEquals(bookId(i), i >= MODIFIED && i < NEW_IMAGE ? 2 : 1, paper.getLastModified());
+            assertEquals(bookId(i), i >= NEW_IMAGE ? "image2" : "image", paper.getImageHash());
+        }
+
+        Map<String, Resource> storedResources = new HashMap<>();
+        for (Resource resource : database.resourceDao()
+                                         .resources()) {
+            storedResources.put(resource.getKey(), resource);
+        }
+        assertEquals(RESOURCES, storedResources.size());
+        for (int i = 0; i < RESOURCES; i++) {
+            // known resources are not written again
+            assertEquals(i < RESOURCES / 2 ? "alt" : "neu", storedResources.get(resourceKey(i))
+                                                                           .getUrl());
+        }
+    }
+
+    @Test
+    public void unchangedSyncWritesNothing() {
+        List<Paper> papers = new ArrayList<>();
+        for (int i = 0; i < CURRENT; i++) {
+            papers.add(paper(i, 1, "image", NEW_VALID_UNTIL));
+        }
+        database.paperDao()
+                .insert(papers);
+
+        List<Paper> changedImages = PaperRepository.applySync(database, papers, new ArrayList<Resource>(),
+                                                              NEW_VALID_UNTIL);
+
+        assertEquals(0, changedImages.size());
+        assertEquals(CURRENT, database.paperDao()
+                                      .getAllPapers()
+                                      .size());
+        assertNull(database.resourceDao()
+                           .resourceWithKey(resourceKey(0)));
+    }
+
+    static String bookId(int i) {
+        return String.format(Locale.US, "taz_%05d", i);
+    }
+
+    static String resourceKey(int i) {
+        return "tazAppResources_" + i;
+    }
+
+    static Paper paper(int i, long lastModified, String imageHash, long validUntil) {
+        Paper paper = new Paper();
+        paper.setBookId(bookId(i));
+        paper.setDate(String.format(Locale.US, "%04d-%02d-%02d", 2015 + i / 365, 1 + (i / 28) % 12, 1 + i % 28));
+        paper.setTitle("taz");
+        paper.setLastModified(lastModified);
+        paper.setImageHash(imageHash);
+        paper.setValidUntil(validUntil);
+        paper.setResource(resourceKey(i % RESOURCES));
+        return paper;
+    }
+
+    static Resource resource(int i, String url) {
+        Resource resource = new Resource();
+        resource.setKey(resourceKey(i));
+        resource.setUrl(url);
+        return resource;
+    }
+}
@@ -0,0 +1,89 @@
+package de.thecode.android.tazreader.room;
+
+import android.database.Cursor;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Migrates databases created from the exported schemas and validates the result against the next schema.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(),
+                                                                AppDatabase.class.getCanonicalName(),
+                                                                new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void migrate12To13() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 12);
+        insertStore(db, "/taz_2020-06-01/currentPosition", "s001.pdf");
+        insertStore(db, "/taz_2020-06-01/bookmarks", "art00101.html");
+        insertStore(db, "taz_2020-06-02/resource", "tazAppResources_42");
+        insertStore(db, "/settingWithoutBook", "1");
+        insertStore(db, "//emptyBookId", "2");
+        db.execSQL("INSERT INTO PAPER (bookId, date, len, lastModified, demo, validUntil) VALUES "
+                           + "('taz_2020-06-01', '2020-06-01', 0, 0, 0, 0)");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 13, true, Migrations.INSTANCE.getAllMigrations());
+
+        Map<String, String> bookIds = new HashMap<>();
+        Cursor cursor = db.query("SELECT path, bookId FROM STORE");
+        try {
+            while (cursor.moveToNext()) {
+                bookIds.put(cursor.getString(0), cursor.isNull(1) ? null : cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        assertEquals(5, bookIds.size());
+        assertEquals("taz_2020-06-01", bookIds.get("/taz_2020-06-01/currentPosition"));
+        assertEquals("taz_2020-06-01", bookIds.get("/taz_2020-06-01/bookmarks"));
+        assertEquals("taz_2020-06-02", bookIds.get("taz_2020-06-02/resource"));
+        assertEquals(null, bookIds.get("/settingWithoutBook"));
+        assertEquals(null, bookIds.get("//emptyBookId"));
+
+        assertTrue(indices(db, "STORE").contains("index_STORE_bookId"));
+        assertTrue(indices(db, "PAPER").contains("index_PAPER_date"));
+        db.close();
+    }
+
+    private static void insertStore(SupportSQLiteDatabase db, String path, String value) {
+        db.execSQL("INSERT INTO STORE (path, value) VALUES (?, ?)", new Object[]{path, value});
+    }
+
+    private static Set<String> indices(SupportSQLiteDatabase db, String table) {
+        Set<String> result = new HashSet<>();
+        Cursor cursor = db.query("PRAGMA index_list(`" + table + "`)");
+        try {
+            int nameColumn = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                result.add(cursor.getString(nameColumn));
+            }
+        } finally {
+            cursor.close();
+        }
+        return result;
+    }
+}
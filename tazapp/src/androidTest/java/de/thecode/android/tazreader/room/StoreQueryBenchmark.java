@@ -0,0 +1,122 @@
+package de.thecode.android.tazreader.room;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * Five years of daily issues with the stores a reader leaves behind. The lookups of version 12, with LIKE on the
+ * primary key and a prefix pattern for all stores of a book, against the equality lookups of the DAOs on the indexed
+ * columns of version 13, on the same data before and after the migration.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StoreQueryBenchmark {
+
+    private static final String   TEST_DB     = "store-benchmark";
+    private static final int      PAPERS      = 5 * 365;
+    private static final String[] STORE_KEYS  = {"currentPosition", "bookmarks", "positionInArticle", "resource",
+            "auto_download"};
+    private static final int      LOOKUPS     = 500;
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(),
+                                                                AppDatabase.class.getCanonicalName(),
+                                                                new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void likeAgainstIndexedEquality() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 12);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < PAPERS; i++) {
+                db.execSQL("INSERT INTO PAPER (bookId, date, len, lastModified, demo, validUntil) VALUES (?, ?, 0, 0, 0, 0)",
+                           new Object[]{bookId(i), date(i)});
+                for (String key : STORE_KEYS) {
+                    db.execSQL("INSERT INTO STORE (path, value) VALUES (?, ?)", new Object[]{"/" + bookId(i) + "/" + key, "x"});
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            int paper = i * 7 % PAPERS;
+            count(db, "SELECT * FROM STORE WHERE path LIKE ?", "/" + bookId(paper) + "/currentPosition");
+            count(db, "SELECT * FROM STORE WHERE path LIKE '/' || ? || '/%'", bookId(paper));
+            count(db, "SELECT * FROM PAPER WHERE bookId LIKE ?", bookId(paper));
+            count(db, "SELECT * FROM PAPER ORDER BY date DESC LIMIT 1");
+        }
+        long likeMillis = (System.nanoTime() - start) / 1000000;
+        db.close();
+
+        start = System.nanoTime();
+        helper.runMigrationsAndValidate(TEST_DB, 13, true, Migrations.INSTANCE.getAllMigrations())
+              .close();
+        long migrationMillis = (System.nanoTime() - start) / 1000000;
+
+        Context context = InstrumentationRegistry.getInstrumentation()
+                                                 .getTargetContext();
+        AppDatabase database = Room.databaseBuilder(context, AppDatabase.class, TEST_DB)
+                                   .addMigrations(Migrations.INSTANCE.getAllMigrations())
+                                   .build();
+        try {
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                int paper = i * 7 % PAPERS;
+                database.storeDao()
+                        .withPath("/" + bookId(paper) + "/currentPosition");
+                database.storeDao()
+                        .getAllForBookId(bookId(paper));
+                database.paperDao()
+                        .getPaper(bookId(paper));
+                database.paperDao()
+                        .getLatestPaper();
+            }
+            long indexedMillis = (System.nanoTime() - start) / 1000000;
+
+            String result = String.format(Locale.US,
+                                          "%d papers, %d stores, %d rounds of lookups: LIKE %d ms, indexed %d ms, migration %d ms",
+                                          PAPERS, PAPERS * STORE_KEYS.length, LOOKUPS, likeMillis, indexedMillis,
+                                          migrationMillis);
+            Timber.i(result);
+            System.out.println(result);
+        } finally {
+            database.close();
+        }
+    }
+
+    private static int count(SupportSQLiteDatabase db, String sql, Object... args) {
+        Cursor cursor = db.query(sql, args);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String bookId(int i) {
+        return "taz_" + date(i);
+    }
+
+    private static String date(int i) {
+        // one issue a day, the exact calendar does not matter for the lookups
+        return String.format(Locale.US, "%04d-%02d-%02d", 2015 + i / 365, 1 + (i % 365) / 31, 1 + (i % 365) % 31);
+    }
+}
@@ -4,8 +4,10 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.PointF;
 import android.graphics.RectF;
+import android.util.SparseArray;
 
 import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.thecode.android.tazreader.R;
 
@@ -39,6 +41,13 @@ public class MuPDFCore
 	private boolean isUnencryptedPDF;
 	private final boolean wasOpenedFromBuffer;
 
+	/* The native document is not thread safe, every call into it holds the lock. Cookies and the
+	 * cached page metadata are used without it, so cancelling and these queries don't wait for a
+	 * running render. */
+	private final ReentrantLock lock = new ReentrantLock();
+	private final SparseArray<PointF> pageSizes = new SparseArray<PointF>();
+	private final SparseArray<LinkInfo[]> pageLinks = new SparseArray<LinkInfo[]>();
+
 	/* The native functions */
 	private static native boolean gprfSupportedInternal();
 	private native long openFile(String filename);
@@ -105,6 +114,7 @@ public class MuPDFCore
 	public class Cookie
 	{
 		private final long cookiePtr;
+		private volatile boolean aborted;
 
 		public Cookie()
 		{
@@ -113,11 +123,18 @@ public class MuPDFCore
 				throw new OutOfMemoryError();
 		}
 
+		// Needs no lock, the native render polls the cookie
 		public void abort()
 		{
+			aborted = true;
 			abortCookie(cookiePtr);
 		}
 
+		public boolean isAborted()
+		{
+			return aborted;
+		}
+
 		public void destroy()
 		{
 			// We could do this in finalize, but there's no guarantee that
@@ -172,8 +189,13 @@ public class MuPDFCore
 		return wasOpenedFromBuffer;
 	}
 
-	private synchronized int countPagesSynchronized() {
-		return countPagesInternal();
+	private int countPagesSynchronized() {
+		lock.lock();
+		try {
+			return countPagesInternal();
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/* Shim function */
@@ -188,9 +210,24 @@ public class MuPDFCore
 		this.pageHeight = getPageHeight();
 	}
 
-	public synchronized PointF getPageSize(int page) {
-		gotoPage(page);
-		return new PointF(pageWidth, pageHeight);
+	public PointF getPageSize(int page) {
+		synchronized (pageSizes) {
+			PointF size = pageSizes.get(page);
+			if (size != null)
+				return new PointF(size.x, size.y);
+		}
+		PointF size;
+		lock.lock();
+		try {
+			gotoPage(page);
+			size = new PointF(pageWidth, pageHeight);
+		} finally {
+			lock.unlock();
+		}
+		synchronized (pageSizes) {
+			pageSizes.put(page, size);
+		}
+		return new PointF(size.x, size.y);
 	}
 
 	public MuPDFAlert waitForAlert() {
@@ -210,171 +247,331 @@ public class MuPDFCore
 		startAlertsInternal();
 	}
 
-	public synchronized void onDestroy() {
-		destroying();
-		globals = 0;
+	public void onDestroy() {
+		// Waits for a running render, its cookie may be aborted to make that quick
+		lock.lock();
+		try {
+			if (globals == 0)
+				return;
+			destroying();
+			globals = 0;
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void drawPage(Bitmap bm, int page,
+	public void drawPage(Bitmap bm, int page,
 			int pageW, int pageH,
 			int patchX, int patchY,
 			int patchW, int patchH,
 			MuPDFCore.Cookie cookie) {
-		gotoPage(page);
-		drawPage(bm, pageW, pageH, patchX, patchY, patchW, patchH, cookie.cookiePtr);
+		if (!lockForRender(cookie))
+			return;
+		try {
+			if (globals == 0 || cookie.isAborted())
+				return;
+			gotoPage(page);
+			drawPage(bm, pageW, pageH, patchX, patchY, patchW, patchH, cookie.cookiePtr);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void updatePage(Bitmap bm, int page,
+	public void updatePage(Bitmap bm, int page,
 			int pageW, int pageH,
 			int patchX, int patchY,
 			int patchW, int patchH,
 			MuPDFCore.Cookie cookie) {
-		updatePageInternal(bm, page, pageW, pageH, patchX, patchY, patchW, patchH, cookie.cookiePtr);
+		if (!lockForRender(cookie))
+			return;
+		try {
+			if (globals == 0 || cookie.isAborted())
+				return;
+			updatePageInternal(bm, page, pageW, pageH, patchX, patchY, patchW, patchH, cookie.cookiePtr);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized PassClickResult passClickEvent(int page, float x, float y) {
-		boolean changed = passClickEventInternal(page, x, y) != 0;
-
-		switch (WidgetType.values()[getFocusedWidgetTypeInternal()])
-		{
-		case TEXT:
-			return new PassClickResultText(changed, getFocusedWidgetTextInternal());
-		case LISTBOX:
-		case COMBOBOX:
-			return new PassClickResultChoice(changed, getFocusedWidgetChoiceOptions(), getFocusedWidgetChoiceSelected());
-		case SIGNATURE:
-			return new PassClickResultSignature(changed, getFocusedWidgetSignatureState());
-		default:
-			return new PassClickResult(changed);
+	// Renders waiting for the lock give up when they are cancelled meanwhile
+	private boolean lockForRender(MuPDFCore.Cookie cookie) {
+		if (cookie.isAborted())
+			return false;
+		try {
+			lock.lockInterruptibly();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
 		}
+	}
 
+	public PassClickResult passClickEvent(int page, float x, float y) {
+		lock.lock();
+		try {
+			boolean changed = passClickEventInternal(page, x, y) != 0;
+
+			switch (WidgetType.values()[getFocusedWidgetTypeInternal()])
+			{
+			case TEXT:
+				return new PassClickResultText(changed, getFocusedWidgetTextInternal());
+			case LISTBOX:
+			case COMBOBOX:
+				return new PassClickResultChoice(changed, getFocusedWidgetChoiceOptions(), getFocusedWidgetChoiceSelected());
+			case SIGNATURE:
+				return new PassClickResultSignature(changed, getFocusedWidgetSignatureState());
+			default:
+				return new PassClickResult(changed);
+			}
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized boolean setFocusedWidgetText(int page, String text) {
-		boolean success;
-		gotoPage(page);
-		success = setFocusedWidgetTextInternal(text) != 0 ? true : false;
+	public boolean setFocusedWidgetText(int page, String text) {
+		lock.lock();
+		try {
+			boolean success;
+			gotoPage(page);
+			success = setFocusedWidgetTextInternal(text) != 0 ? true : false;
 
-		return success;
+			return success;
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void setFocusedWidgetChoiceSelected(String [] selected) {
-		setFocusedWidgetChoiceSelectedInternal(selected);
+	public void setFocusedWidgetChoiceSelected(String [] selected) {
+		lock.lock();
+		try {
+			setFocusedWidgetChoiceSelectedInternal(selected);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized String checkFocusedSignature() {
-		return checkFocusedSignatureInternal();
+	public String checkFocusedSignature() {
+		lock.lock();
+		try {
+			return checkFocusedSignatureInternal();
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized boolean signFocusedSignature(String keyFile, String password) {
-		return signFocusedSignatureInternal(keyFile, password);
+	public boolean signFocusedSignature(String keyFile, String password) {
+		lock.lock();
+		try {
+			return signFocusedSignatureInternal(keyFile, password);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized LinkInfo [] getPageLinks(int page) {
-		return getPageLinksInternal(page);
+	// Returns a copy, callers must not change the cached array
+	public LinkInfo [] getPageLinks(int page) {
+		synchronized (pageLinks) {
+			if (pageLinks.indexOfKey(page) >= 0)
+				return copy(pageLinks.get(page));
+		}
+		LinkInfo[] links;
+		lock.lock();
+		try {
+			links = getPageLinksInternal(page);
+		} finally {
+			lock.unlock();
+		}
+		synchronized (pageLinks) {
+			pageLinks.put(page, links);
+		}
+		return copy(links);
 	}
 
-	public synchronized RectF [] getWidgetAreas(int page) {
-		return getWidgetAreasInternal(page);
+	private static LinkInfo [] copy(LinkInfo [] links) {
+		return links == null ? null : links.clone();
 	}
 
-	public synchronized Annotation [] getAnnotations(int page) {
-		return getAnnotationsInternal(page);
+	public RectF [] getWidgetAreas(int page) {
+		lock.lock();
+		try {
+			return getWidgetAreasInternal(page);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized RectF [] searchPage(int page, String text) {
-		gotoPage(page);
-		return searchPage(text);
+	public Annotation [] getAnnotations(int page) {
+		lock.lock();
+		try {
+			return getAnnotationsInternal(page);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized byte[] html(int page) {
-		gotoPage(page);
-		return textAsHtml();
+	public RectF [] searchPage(int page, String text) {
+		lock.lock();
+		try {
+			gotoPage(page);
+			return searchPage(text);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized TextWord [][] textLines(int page) {
-		gotoPage(page);
-		TextChar[][][][] chars = text();
-
-		// The text of the page held in a hierarchy (blocks, lines, spans).
-		// Currently we don't need to distinguish the blocks level or
-		// the spans, and we need to collect the text into words.
-		ArrayList<TextWord[]> lns = new ArrayList<TextWord[]>();
-
-		for (TextChar[][][] bl: chars) {
-			if (bl == null)
-				continue;
-			for (TextChar[][] ln: bl) {
-				ArrayList<TextWord> wds = new ArrayList<TextWord>();
-				TextWord wd = new TextWord();
+	public byte[] html(int page) {
+		lock.lock();
+		try {
+			gotoPage(page);
+			return textAsHtml();
+		} finally {
+			lock.unlock();
+		}
+	}
 
-				for (TextChar[] sp: ln) {
-					for (TextChar tc: sp) {
-						if (tc.c != ' ') {
-							wd.Add(tc);
-						} else if (wd.w.length() > 0) {
-							wds.add(wd);
-							wd = new TextWord();
+	public TextWord [][] textLines(int page) {
+		lock.lock();
+		try {
+			gotoPage(page);
+			TextChar[][][][] chars = text();
+
+			// The text of the page held in a hierarchy (blocks, lines, spans).
+			// Currently we don't need to distinguish the blocks level or
+			// the spans, and we need to collect the text into words.
+			ArrayList<TextWord[]> lns = new ArrayList<TextWord[]>();
+
+			for (TextChar[][][] bl: chars) {
+				if (bl == null)
+					continue;
+				for (TextChar[][] ln: bl) {
+					ArrayList<TextWord> wds = new ArrayList<TextWord>();
+					TextWord wd = new TextWord();
+
+					for (TextChar[] sp: ln) {
+						for (TextChar tc: sp) {
+							if (tc.c != ' ') {
+								wd.Add(tc);
+							} else if (wd.w.length() > 0) {
+								wds.add(wd);
+								wd = new TextWord();
+							}
 						}
 					}
-				}
 
-				if (wd.w.length() > 0)
-					wds.add(wd);
+					if (wd.w.length() > 0)
+						wds.add(wd);
 
-				if (wds.size() > 0)
-					lns.add(wds.toArray(new TextWord[wds.size()]));
+					if (wds.size() > 0)
+						lns.add(wds.toArray(new TextWord[wds.size()]));
+				}
 			}
-		}
 
-		return lns.toArray(new TextWord[lns.size()][]);
+			return lns.toArray(new TextWord[lns.size()][]);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void addMarkupAnnotation(int page, PointF[] quadPoints, Annotation.Type type) {
-		gotoPage(page);
-		addMarkupAnnotationInternal(quadPoints, type.ordinal());
+	public void addMarkupAnnotation(int page, PointF[] quadPoints, Annotation.Type type) {
+		lock.lock();
+		try {
+			gotoPage(page);
+			addMarkupAnnotationInternal(quadPoints, type.ordinal());
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void addInkAnnotation(int page, PointF[][] arcs) {
-		gotoPage(page);
-		addInkAnnotationInternal(arcs);
+	public void addInkAnnotation(int page, PointF[][] arcs) {
+		lock.lock();
+		try {
+			gotoPage(page);
+			addInkAnnotationInternal(arcs);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void deleteAnnotation(int page, int annot_index) {
-		gotoPage(page);
-		deleteAnnotationInternal(annot_index);
+	public void deleteAnnotation(int page, int annot_index) {
+		lock.lock();
+		try {
+			gotoPage(page);
+			deleteAnnotationInternal(annot_index);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized boolean hasOutline() {
-		return hasOutlineInternal();
+	public boolean hasOutline() {
+		lock.lock();
+		try {
+			return hasOutlineInternal();
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized OutlineItem [] getOutline() {
-		return getOutlineInternal();
+	public OutlineItem [] getOutline() {
+		lock.lock();
+		try {
+			return getOutlineInternal();
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized boolean needsPassword() {
-		return needsPasswordInternal();
+	public boolean needsPassword() {
+		lock.lock();
+		try {
+			return needsPasswordInternal();
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized boolean authenticatePassword(String password) {
-		return authenticatePasswordInternal(password);
+	public boolean authenticatePassword(String password) {
+		lock.lock();
+		try {
+			return authenticatePasswordInternal(password);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized boolean hasChanges() {
-		return hasChangesInternal();
+	public boolean hasChanges() {
+		lock.lock();
+		try {
+			return hasChangesInternal();
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void save() {
-		saveInternal();
+	public void save() {
+		lock.lock();
+		try {
+			saveInternal();
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized String startProof(int resolution) {
-		return startProofInternal(resolution);
+	public String startProof(int resolution) {
+		lock.lock();
+		try {
+			return startProofInternal(resolution);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void endProof(String filename) {
-		endProofInternal(filename);
+	public void endProof(String filename) {
+		lock.lock();
+		try {
+			endProofInternal(filename);
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	public static boolean gprfSupported() {
@@ -391,15 +588,30 @@ public class MuPDFCore
 		return false;
 	}
 
-	public synchronized int getNumSepsOnPage(int page) {
-		return getNumSepsOnPageInternal(page);
+	public int getNumSepsOnPage(int page) {
+		lock.lock();
+		try {
+			return getNumSepsOnPageInternal(page);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized int controlSepOnPage(int page, int sep, boolean disable) {
-		return controlSepOnPageInternal(page, sep, disable);
+	public int controlSepOnPage(int page, int sep, boolean disable) {
+		lock.lock();
+		try {
+			return controlSepOnPageInternal(page, sep, disable);
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized Separation getSep(int page, int sep) {
-		return getSepInternal(page, sep);
+	public Separation getSep(int page, int sep) {
+		lock.lock();
+		try {
+			return getSepInternal(page, sep);
+		} finally {
+			lock.unlock();
+		}
 	}
 }
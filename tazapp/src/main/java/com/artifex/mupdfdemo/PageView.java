@@ -1,7 +1,11 @@
 package com.artifex.mupdfdemo;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 import android.content.Context;
 import android.graphics.Bitmap;
@@ -23,6 +27,8 @@ import android.widget.ProgressBar;
 
 import androidx.appcompat.widget.AppCompatImageView;
 
+import de.thecode.android.tazreader.utils.BitmapPool;
+
 // Make our ImageViews opaque to optimize redraw
 class OpaqueImageView extends AppCompatImageView {
 
@@ -96,6 +102,7 @@ public abstract class PageView extends ViewGroup {
 	private static final float INK_THICKNESS = 10.0f;
 	private static final int BACKGROUND_COLOR = 0xFFFFFFFF;
 	private static final int PROGRESS_DIALOG_DELAY = 200;
+	private static final int TILE_SIZE = 256;
 	protected final Context   mContext;
 	protected     int       mPageNumber;
 	private       Point     mParentSize;
@@ -105,6 +112,8 @@ public abstract class PageView extends ViewGroup {
 	private       ImageView mEntire; // Image rendered at minimum zoom
 	private       Bitmap    mEntireBm;
 	private       Matrix    mEntireMat;
+	private       Point     mEntireParentSize; // Size of the entire bitmap, smaller than the parent if downscaled
+	private       Point     mEntireSize; // Size of the page in the entire bitmap
 	private       AsyncTask<Void,Void,TextWord[][]> mGetText;
 	private       AsyncTask<Void,Void,LinkInfo[]> mGetLinkInfo;
 	private       CancellableAsyncTask<Void, Void> mDrawEntire;
@@ -114,6 +123,13 @@ public abstract class PageView extends ViewGroup {
 	private       ImageView mPatch;
 	private       Bitmap    mPatchBm;
 	private       CancellableAsyncTask<Void,Void> mDrawPatch;
+	private final TileCache mTileCache; // If set, zoomed pages are rendered in tiles instead of one patch
+	private       Object    mTileOwner = new Object(); // Identifies the tiles of the current page
+	private       int       mTileLevel;
+	private       Point     mTileLevelSize; // Size of the page at the current tile level
+	private       Rect      mTileRange; // Visible tile columns and rows, inclusive
+	private       View      mTileView;
+	private final Map<TileCache.Tile, CancellableAsyncTask<Void,Void>> mDrawTiles = new HashMap<TileCache.Tile, CancellableAsyncTask<Void,Void>>();
 	private       RectF     mSearchBoxes[];
 	protected     LinkInfo  mLinks[];
 	private       RectF     mSelectBox;
@@ -128,12 +144,24 @@ public abstract class PageView extends ViewGroup {
 	private final Handler   mHandler = new Handler();
 
 	public PageView(Context c, Point parentSize, Bitmap sharedHqBm) {
+		this(c, parentSize, sharedHqBm, null, 1F);
+	}
+
+	// entireScale below 1 renders the page at minimum zoom with less pixels than shown, zoomed tiles stay sharp
+	public PageView(Context c, Point parentSize, TileCache tileCache, float entireScale) {
+		this(c, parentSize, null, tileCache, entireScale);
+	}
+
+	private PageView(Context c, Point parentSize, Bitmap sharedHqBm, TileCache tileCache, float entireScale) {
 		super(c);
 		mContext    = c;
 		mParentSize = parentSize;
+		mEntireParentSize = new Point(Math.max(1, (int) (parentSize.x * entireScale)), Math.max(1, (int) (parentSize.y * entireScale)));
+		mEntireSize = mEntireParentSize;
 		setBackgroundColor(BACKGROUND_COLOR);
-		mEntireBm = Bitmap.createBitmap(parentSize.x, parentSize.y, Config.ARGB_8888);
+		mEntireBm = BitmapPool.getInstance(c).get(mEntireParentSize.x, mEntireParentSize.y, Config.ARGB_8888);
 		mPatchBm = sharedHqBm;
+		mTileCache = tileCache;
 		mEntireMat = new Matrix();
 	}
 
@@ -143,6 +171,16 @@ public abstract class PageView extends ViewGroup {
 	protected abstract TextWord[][] getText();
 	protected abstract void addMarkup(PointF[] quadPoints, Annotation.Type type);
 
+	// Returns a bitmap of the entire page already rendered at this size within the entire bitmap size, the view takes it over
+	protected Bitmap getPreRenderedEntire(int sizeX, int sizeY) {
+		return null;
+	}
+
+	// Called with the previous bitmap when a pre rendered one has been taken over
+	protected void onEntireBitmapReplaced(Bitmap bitmap) {
+		BitmapPool.getInstance(mContext).put(bitmap);
+	}
+
 	private void reinit() {
 		// Cancel pending render task
 		if (mDrawEntire != null) {
@@ -160,6 +198,8 @@ public abstract class PageView extends ViewGroup {
 			mGetLinkInfo = null;
 		}
 
+		removeTiles();
+
 		if (mGetText != null) {
 			mGetText.cancel(true);
 			mGetText = null;
@@ -203,10 +243,9 @@ public abstract class PageView extends ViewGroup {
 	public void releaseBitmaps() {
 		reinit();
 
-		// recycle bitmaps before releasing them.
+		// recycle bitmaps before releasing them, the entire bitmap is reused by other views
 
-		if (mEntireBm!=null)
-			mEntireBm.recycle();
+		BitmapPool.getInstance(mContext).put(mEntireBm);
 		mEntireBm = null;
 		if (mPatchBm!=null)
 			mPatchBm.recycle();
@@ -234,6 +273,9 @@ public abstract class PageView extends ViewGroup {
 			mDrawEntire = null;
 		}
 
+		// Tiles belong to the previous page
+		removeTiles();
+
 		mIsBlank = false;
 		// Highlights may be missing because mIsBlank was true on last draw
 		if (mSearchView != null)
@@ -251,6 +293,8 @@ public abstract class PageView extends ViewGroup {
 		mSourceScale = Math.min(mParentSize.x/size.x, mParentSize.y/size.y);
 		Point newSize = new Point((int)(size.x*mSourceScale), (int)(size.y*mSourceScale));
 		mSize = newSize;
+		float entireScale = Math.min(mEntireParentSize.x/size.x, mEntireParentSize.y/size.y);
+		mEntireSize = new Point((int)(size.x*entireScale), (int)(size.y*entireScale));
 
 		mEntire.setImageBitmap(null);
 		mEntire.invalidate();
@@ -270,39 +314,53 @@ public abstract class PageView extends ViewGroup {
 
 		mGetLinkInfo.execute();
 
-		// Render the page in the background
-		mDrawEntire = new CancellableAsyncTask<Void, Void>(getDrawPageTask(mEntireBm, mSize.x, mSize.y, 0, 0, mSize.x, mSize.y)) {
-
-			@Override
-			public void onPreExecute() {
-				setBackgroundColor(BACKGROUND_COLOR);
-				mEntire.setImageBitmap(null);
-				mEntire.invalidate();
+		Bitmap preRendered = getPreRenderedEntire(mEntireSize.x, mEntireSize.y);
+		if (preRendered != null) {
+			// Already rendered ahead, show it right away
+			onEntireBitmapReplaced(mEntireBm);
+			mEntireBm = preRendered;
+			if (mBusyIndicator != null) {
+				removeView(mBusyIndicator);
+				mBusyIndicator = null;
+			}
+			mEntire.setImageBitmap(mEntireBm);
+			mEntire.invalidate();
+			setBackgroundColor(Color.TRANSPARENT);
+		} else {
+			// Render the page in the background
+			mDrawEntire = new CancellableAsyncTask<Void, Void>(getDrawPageTask(mEntireBm, mEntireSize.x, mEntireSize.y, 0, 0, mEntireSize.x, mEntireSize.y)) {
 
-				if (mBusyIndicator == null) {
-					mBusyIndicator = new ProgressBar(mContext);
-					mBusyIndicator.setIndeterminate(true);
-					addView(mBusyIndicator);
-					mBusyIndicator.setVisibility(INVISIBLE);
-					mHandler.postDelayed(() -> {
-						if (mBusyIndicator != null)
-							mBusyIndicator.setVisibility(VISIBLE);
-					}, PROGRESS_DIALOG_DELAY);
+				@Override
+				public void onPreExecute() {
+					setBackgroundColor(BACKGROUND_COLOR);
+					mEntire.setImageBitmap(null);
+					mEntire.invalidate();
+
+					if (mBusyIndicator == null) {
+						mBusyIndicator = new ProgressBar(mContext);
+						mBusyIndicator.setIndeterminate(true);
+						addView(mBusyIndicator);
+						mBusyIndicator.setVisibility(INVISIBLE);
+						mHandler.postDelayed(() -> {
+							if (mBusyIndicator != null)
+								mBusyIndicator.setVisibility(VISIBLE);
+						}, PROGRESS_DIALOG_DELAY);
+					}
 				}
-			}
 
-			@Override
-			public void onPostExecute(Void result) {
-				removeView(mBusyIndicator);
-				mBusyIndicator = null;
-				mEntire.setImageBitmap(mEntireBm);
-				mEntire.invalidate();
-				setBackgroundColor(Color.TRANSPARENT);
+				@Override
+				public void onPostExecute(Void result) {
+					removeView(mBusyIndicator);
+					mBusyIndicator = null;
+					mEntire.setImageBitmap(mEntireBm);
+					mEntire.invalidate();
+					setBackgroundColor(Color.TRANSPARENT);
 
-			}
-		};
+				}
+			};
 
-		mDrawEntire.execute();
+			mDrawEntire.execute();
+		}
 
 		if (mSearchView == null) {
 			final Paint paint = new Paint();
@@ -539,13 +597,17 @@ public abstract class PageView extends ViewGroup {
 
 		if (mEntire != null) {
 			if (mEntire.getWidth() != w || mEntire.getHeight() != h) {
-				mEntireMat.setScale(w/(float)mSize.x, h/(float)mSize.y);
+				mEntireMat.setScale(w/(float)mEntireSize.x, h/(float)mEntireSize.y);
 				mEntire.setImageMatrix(mEntireMat);
 				mEntire.invalidate();
 			}
 			mEntire.layout(0, 0, w, h);
 		}
 
+		if (mTileView != null) {
+			mTileView.layout(0, 0, w, h);
+		}
+
 		if (mSearchView != null) {
 			mSearchView.layout(0, 0, w, h);
 		}
@@ -580,6 +642,7 @@ public abstract class PageView extends ViewGroup {
 				mPatch.setImageBitmap(null);
 				mPatch.invalidate();
 			}
+			hideTiles();
 		} else {
 			final Point patchViewSize = new Point(viewArea.width(), viewArea.height());
 			final Rect patchArea = new Rect(0, 0, mParentSize.x, mParentSize.y);
@@ -591,6 +654,11 @@ public abstract class PageView extends ViewGroup {
 			// Offset patch area to be relative to the view top left
 			patchArea.offset(-viewArea.left, -viewArea.top);
 
+			if (mTileCache != null) {
+				updateTiles(patchViewSize, patchArea);
+				return;
+			}
+
 			boolean area_unchanged = patchArea.equals(mPatchArea) && patchViewSize.equals(mPatchViewSize);
 
 			// If being asked for the same area as last time and not because of an update then nothing to do
@@ -643,6 +711,126 @@ public abstract class PageView extends ViewGroup {
 		}
 	}
 
+	private void updateTiles(Point viewSize, Rect area) {
+		// Zoom levels are half octaves, tiles are rendered at the next level above the current zoom
+		float zoom = viewSize.x / (float) mSize.x;
+		int level = Math.max(1, (int) Math.ceil(2 * Math.log(zoom) / Math.log(2)));
+		float levelScale = (float) Math.pow(2, level / 2.0);
+		Point levelSize = new Point(Math.round(mSize.x * levelScale), Math.round(mSize.y * levelScale));
+
+		// Visible area at the tile level, clipped to the page
+		float factor = levelSize.x / (float) viewSize.x;
+		Rect range = new Rect(Math.max(0, (int) (area.left * factor) / TILE_SIZE),
+				Math.max(0, (int) (area.top * factor) / TILE_SIZE),
+				Math.min((levelSize.x - 1) / TILE_SIZE, (int) Math.ceil(area.right * factor - 1) / TILE_SIZE),
+				Math.min((levelSize.y - 1) / TILE_SIZE, (int) Math.ceil(area.bottom * factor - 1) / TILE_SIZE));
+
+		mTileLevel = level;
+		mTileLevelSize = levelSize;
+		mTileRange = range;
+
+		if (mTileView == null) {
+			mTileView = new TileView(mContext);
+			addView(mTileView);
+			if (mSearchView != null)
+				mSearchView.bringToFront();
+		}
+
+		// Only tiles neither cached nor being rendered need work, tiles out of sight are cancelled
+		Set<TileCache.Tile> needed = new HashSet<TileCache.Tile>();
+		for (int row = range.top; row <= range.bottom; row++) {
+			for (int col = range.left; col <= range.right; col++) {
+				TileCache.Tile tile = new TileCache.Tile(mTileOwner, level, col, row);
+				if (mTileCache.get(tile) == null)
+					needed.add(tile);
+			}
+		}
+		cancelTiles(needed);
+		for (TileCache.Tile tile : needed) {
+			if (!mDrawTiles.containsKey(tile))
+				drawTile(tile, levelSize);
+		}
+
+		mTileView.invalidate();
+	}
+
+	private void drawTile(final TileCache.Tile tile, Point levelSize) {
+		int x = tile.col * TILE_SIZE;
+		int y = tile.row * TILE_SIZE;
+		int width = Math.min(TILE_SIZE, levelSize.x - x);
+		int height = Math.min(TILE_SIZE, levelSize.y - y);
+		final Bitmap bm = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+
+		CancellableAsyncTask<Void, Void> task = new CancellableAsyncTask<Void, Void>(getDrawPageTask(bm, levelSize.x, levelSize.y, x, y, width, height)) {
+			@Override
+			public void onPostExecute(Void result) {
+				mDrawTiles.remove(tile);
+				if (tile.owner != mTileOwner)
+					return;
+				mTileCache.put(tile, bm);
+				if (mTileView != null)
+					mTileView.invalidate();
+			}
+		};
+		mDrawTiles.put(tile, task);
+		task.execute();
+	}
+
+	// Cancels the rendering of all tiles not in keep, all if keep is null
+	private void cancelTiles(Set<TileCache.Tile> keep) {
+		Iterator<Map.Entry<TileCache.Tile, CancellableAsyncTask<Void, Void>>> it = mDrawTiles.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<TileCache.Tile, CancellableAsyncTask<Void, Void>> entry = it.next();
+			if (keep == null || !keep.contains(entry.getKey())) {
+				entry.getValue().cancel();
+				it.remove();
+			}
+		}
+	}
+
+	private void hideTiles() {
+		cancelTiles(null);
+		mTileRange = null;
+		if (mTileView != null)
+			mTileView.invalidate();
+	}
+
+	private void removeTiles() {
+		hideTiles();
+		if (mTileCache != null)
+			mTileCache.evict(mTileOwner);
+		mTileOwner = new Object();
+	}
+
+	// Draws the cached tiles of the current level, scaled to the current zoom
+	private class TileView extends View {
+		private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+		private final RectF mDst = new RectF();
+
+		TileView(Context context) {
+			super(context);
+		}
+
+		@Override
+		protected void onDraw(Canvas canvas) {
+			Rect range = mTileRange;
+			if (range == null || mIsBlank)
+				return;
+			float scale = getWidth() / (float) mTileLevelSize.x;
+			for (int row = range.top; row <= range.bottom; row++) {
+				for (int col = range.left; col <= range.right; col++) {
+					Bitmap bm = mTileCache.get(new TileCache.Tile(mTileOwner, mTileLevel, col, row));
+					if (bm == null)
+						continue;
+					float left = col * TILE_SIZE * scale;
+					float top = row * TILE_SIZE * scale;
+					mDst.set(left, top, left + bm.getWidth() * scale, top + bm.getHeight() * scale);
+					canvas.drawBitmap(bm, null, mDst, mPaint);
+				}
+			}
+		}
+	}
+
 	public void update() {
 		// Cancel pending render task
 		if (mDrawEntire != null) {
@@ -656,8 +844,14 @@ public abstract class PageView extends ViewGroup {
 		}
 
 
+		if (mTileCache != null) {
+			// Tiles show the old content, render them again
+			cancelTiles(null);
+			mTileCache.evict(mTileOwner);
+		}
+
 		// Render the page in the background
-		mDrawEntire = new CancellableAsyncTask<Void, Void>(getUpdatePageTask(mEntireBm, mSize.x, mSize.y, 0, 0, mSize.x, mSize.y)) {
+		mDrawEntire = new CancellableAsyncTask<Void, Void>(getUpdatePageTask(mEntireBm, mEntireSize.x, mEntireSize.y, 0, 0, mEntireSize.x, mEntireSize.y)) {
 
 			public void onPostExecute(Void result) {
 				mEntire.setImageBitmap(mEntireBm);
@@ -677,6 +871,9 @@ public abstract class PageView extends ViewGroup {
 				mDrawPatch = null;
 			}
 
+			// Tiles already rendered stay visible, they are scaled along while panning and zooming
+			cancelTiles(null);
+
 			// And get rid of it
 			mPatchViewSize = null;
 			mPatchArea = null;
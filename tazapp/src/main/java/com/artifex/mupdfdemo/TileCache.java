@@ -0,0 +1,72 @@
+package com.artifex.mupdfdemo;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+// Rendered tiles of zoomed pages, shared by all page views. Least recently used tiles are
+// dropped first. Dropped bitmaps are not recycled, a view might still be drawing them.
+public class TileCache {
+	public static class Tile {
+		final Object owner;
+		final int level;
+		final int col;
+		final int row;
+
+		Tile(Object owner, int level, int col, int row) {
+			this.owner = owner;
+			this.level = level;
+			this.col = col;
+			this.row = row;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Tile))
+				return false;
+			Tile tile = (Tile) o;
+			return owner == tile.owner && level == tile.level && col == tile.col && row == tile.row;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = System.identityHashCode(owner);
+			result = 31 * result + level;
+			result = 31 * result + col;
+			result = 31 * result + row;
+			return result;
+		}
+	}
+
+	private final LruCache<Tile, Bitmap> mCache;
+
+	public TileCache(int maxBytes) {
+		mCache = new LruCache<Tile, Bitmap>(maxBytes) {
+			@Override
+			protected int sizeOf(Tile key, Bitmap value) {
+				return value.getRowBytes() * value.getHeight();
+			}
+		};
+	}
+
+	public Bitmap get(Tile tile) {
+		return mCache.get(tile);
+	}
+
+	public void put(Tile tile, Bitmap bitmap) {
+		mCache.put(tile, bitmap);
+	}
+
+	// Drops all tiles of a page
+	public void evict(Object owner) {
+		for (Tile tile : mCache.snapshot().keySet()) {
+			if (tile.owner == owner)
+				mCache.remove(tile);
+		}
+	}
+
+	public void clear() {
+		mCache.evictAll();
+	}
+}
@@ -7,11 +7,13 @@ import androidx.appcompat.app.AppCompatDelegate
 import androidx.multidex.MultiDexApplication
 import com.github.ajalt.timberkt.Timber.d
 import de.thecode.android.tazreader.data.*
+import de.thecode.android.tazreader.download.DownloadProgressBus
 import de.thecode.android.tazreader.download.TazDownloadManager
 import de.thecode.android.tazreader.eventbus.EventBusIndex
 import de.thecode.android.tazreader.notifications.NotificationUtils
 import de.thecode.android.tazreader.picasso.PicassoHelper
 import de.thecode.android.tazreader.reader.ReaderActivity
+import de.thecode.android.tazreader.reader.page.PageRenderMode
 import de.thecode.android.tazreader.sync.AccountHelper
 import de.thecode.android.tazreader.timber.TimberHelper
 import de.thecode.android.tazreader.update.Update
@@ -39,6 +41,10 @@ val downloadsRepository by lazy {
     DownloadsRepository.getInstance()
 }
 
+val downloadProgressBus: DownloadProgressBus by lazy {
+    DownloadProgressBus()
+}
+
 val paperRepository: PaperRepository by lazy {
     PaperRepository.getInstance(app)
 }
@@ -167,6 +173,7 @@ class TazApplication : MultiDexApplication() {
         settings.setDefaultPref(TazSettings.PREFKEY.PAGETAPTOARTICLE, true)
         settings.setDefaultPref(TazSettings.PREFKEY.PAGEDOUBLETAPZOOM, true)
         settings.setDefaultPref(TazSettings.PREFKEY.PAGETAPBORDERTOTURN, resources.getBoolean(R.bool.isTablet))
+        settings.setDefaultPref(TazSettings.PREFKEY.PAGERENDERMODE, PageRenderMode.AUTO)
 
         d { "Token: ${settings.firebaseToken}" }
 
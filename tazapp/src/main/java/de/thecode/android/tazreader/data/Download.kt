@@ -1,6 +1,7 @@
 package de.thecode.android.tazreader.data
 
 import androidx.annotation.StringRes
+import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.PrimaryKey
 import androidx.room.TypeConverter
@@ -18,7 +19,12 @@ data class Download(@PrimaryKey val key: String,
                     var progress: Int = 0,
                     var workerUuid: UUID? = null,
                     var state: DownloadState = DownloadState.NONE,
-                    var unmeteredOnly: UnmeteredDownloadOnly?) {
+                    var unmeteredOnly: UnmeteredDownloadOnly?,
+                    @ColumnInfo(defaultValue = "SYSTEM") var engine: DownloadEngine = DownloadEngine.SYSTEM,
+                    var url: String? = null,
+                    @ColumnInfo(defaultValue = "0") var totalBytes: Long = 0L,
+                    var etag: String? = null,
+                    var segments: String? = null) {
     companion object {
         fun create(type: DownloadType, key: String, title: String, file: File): Download {
             return Download(type = type, key = key, title = title, file = file, unmeteredOnly = UnmeteredDownloadOnly.NO)
@@ -65,6 +71,18 @@ class UuidTypeConverter {
     }
 }
 
+class DownloadEngineTypeConverter {
+    @TypeConverter
+    fun toDownloadEngine(value: String?): DownloadEngine {
+        return value?.let { DownloadEngine.getByName(it) } ?: DownloadEngine.SYSTEM
+    }
+
+    @TypeConverter
+    fun toString(value: DownloadEngine): String {
+        return value.toString()
+    }
+}
+
 class DownloadStateTypeConverter {
     @TypeConverter
     fun toDownloadState(value: String?): DownloadState {
@@ -116,6 +134,18 @@ enum class DownloadType {
     }
 }
 
+/**
+ * SYSTEM hands the download to the android DownloadManager, HTTP downloads in app with resume and optional parallel
+ * segments (see [de.thecode.android.tazreader.download.HttpDownloadEngine]).
+ */
+enum class DownloadEngine {
+    SYSTEM, HTTP;
+
+    companion object {
+        fun getByName(name: String) = valueOf(name.toUpperCase())
+    }
+}
+
 enum class DownloadState(@StringRes val readableId: Int) {
     NONE(R.string.download_state_none),
     DOWNLOADING(R.string.download_state_downloading),
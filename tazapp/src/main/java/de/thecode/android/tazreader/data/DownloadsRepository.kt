@@ -4,6 +4,7 @@ import androidx.annotation.WorkerThread
 import androidx.lifecycle.LiveData
 import com.github.ajalt.timberkt.d
 import de.thecode.android.tazreader.app
+import de.thecode.android.tazreader.downloadProgressBus
 import de.thecode.android.tazreader.room.AppDatabase
 import java.util.*
 
@@ -46,6 +47,12 @@ class DownloadsRepository private constructor() {
                 .getByType(type)
     }
 
+    @WorkerThread
+    fun isDownloading(type: DownloadType): Boolean {
+        return appDatabase.downloadsDao()
+                .countByTypeAndState(type, DownloadState.DOWNLOADING) > 0
+    }
+
     @WorkerThread
     fun save(download: Download) {
         d {
@@ -53,6 +60,31 @@ class DownloadsRepository private constructor() {
         }
         appDatabase.downloadsDao()
                 .insert(download)
+        downloadProgressBus.post(download.key, download.progress)
+    }
+
+    /**
+     * Saves a download only if it still exists. For workers running on after their download has been cancelled and
+     * deleted.
+     *
+     * @return false if the download was deleted
+     */
+    @WorkerThread
+    fun update(download: Download): Boolean {
+        d {
+            "updating $download"
+        }
+        val updated = appDatabase.downloadsDao()
+                .update(download) > 0
+        if (updated) downloadProgressBus.post(download.key, download.progress)
+        return updated
+    }
+
+    /**
+     * Publishes the progress of a running download without writing it, see [de.thecode.android.tazreader.download.DownloadProgressBus].
+     */
+    fun postProgress(download: Download) {
+        downloadProgressBus.post(download.key, download.progress)
     }
 
     @WorkerThread
@@ -62,12 +94,14 @@ class DownloadsRepository private constructor() {
         }
         appDatabase.downloadsDao()
                 .deleteByKey(key)
+        downloadProgressBus.remove(key)
     }
 
     @WorkerThread
     fun delete(download: Download) {
         appDatabase.downloadsDao()
                 .delete(download)
+        downloadProgressBus.remove(download.key)
     }
 
     fun getLiveData(key: String): LiveData<Download> {
@@ -0,0 +1,217 @@
+package de.thecode.android.tazreader.data;
+
+import android.graphics.Bitmap;
+
+import de.thecode.android.tazreader.utils.ExtensionsKt;
+import de.thecode.android.tazreader.utils.StorageManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * The page thumbnails of one paper, packed into a single file. Each record holds the page key, the length and the
+ * JPEG data. The records are scanned once into an index of offsets, thumbnails are read by offset and new
+ * ones are appended. A record cut off by a crash is truncated on the next scan. Deleting the file deletes all
+ * thumbnails of the paper at once.
+ */
+public class PDFThumbStore {
+
+    private static final String SUB            = "pdfthumbs";
+    private static final String FILE_EXTENSION = ".pack";
+    private static final int    MAGIC          = 0x545A5450;
+    private static final int    VERSION        = 1;
+    private static final int    HEADER_SIZE    = 8;
+    private static final int    QUALITY        = 80;
+
+    private static final Map<String, PDFThumbStore> instances = new HashMap<>();
+
+    /**
+     * @param key {@link Paper#fileHash} of the paper
+     */
+    public static PDFThumbStore getInstance(StorageManager storage, String key) {
+        synchronized (instances) {
+            PDFThumbStore store = instances.get(key);
+            if (store == null) {
+                store = new PDFThumbStore(storage.getCache(SUB), key);
+                instances.put(key, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Closes the file of the paper, it is opened again on the next access. The instance stays registered, so a thumbnail
+     * worker still holding it and later callers share one file handle and one index.
+     */
+    public static void release(String key) {
+        PDFThumbStore store;
+        synchronized (instances) {
+            store = instances.get(key);
+        }
+        if (store == null) return;
+        synchronized (store) {
+            store.close();
+            store.index = null;
+        }
+    }
+
+    private final String key;
+    private final File   file;
+    // directory of single JPEGs used before the packed file
+    private final File   legacyDir;
+
+    private RandomAccessFile    raf;
+    private Map<String, Record> index;
+    private boolean             deleted;
+
+    private PDFThumbStore(File cacheDir, String key) {
+        this.key = key;
+        file = new File(cacheDir, key + FILE_EXTENSION);
+        legacyDir = new File(cacheDir, key);
+    }
+
+    public boolean exists(String page) {
+        try {
+            synchronized (this) {
+                return open() && index.containsKey(page);
+            }
+        } catch (IOException e) {
+            Timber.w(e);
+            return false;
+        }
+    }
+
+    /**
+     * @return the JPEG data of the thumbnail or {@code null}
+     */
+    public byte[] get(String page) throws IOException {
+        // read under the lock with plain file reads: an interrupted FileChannel read would close the file for every
+        // user, and BitmapWorkerTasks are interrupted whenever the page index scrolls
+        synchronized (this) {
+            if (!open()) return null;
+            Record record = index.get(page);
+            if (record == null) return null;
+            byte[] data = new byte[record.length];
+            raf.seek(record.offset);
+            try {
+                raf.readFully(data);
+            } catch (EOFException e) {
+                throw new IOException("Vorschaudatei zu kurz: " + file, e);
+            }
+            return data;
+        }
+    }
+
+    public boolean save(Bitmap bitmap, String page) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, QUALITY, data);
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(data.size() + page.length() + 8);
+        DataOutputStream out = new DataOutputStream(recordBytes);
+        out.writeUTF(page);
+        out.writeInt(data.size());
+        int headerLength = out.size();
+        data.writeTo(out);
+        out.flush();
+
+        synchronized (this) {
+            if (!open()) return false;
+            long offset = raf.length();
+            raf.seek(offset);
+            // one write per record, a crash leaves at most one incomplete record at the end
+            raf.write(recordBytes.toByteArray());
+            index.put(page, new Record(offset + headerLength, data.size()));
+        }
+        return true;
+    }
+
+    /**
+     * Deletes all thumbnails of the paper.
+     */
+    public void delete() {
+        synchronized (instances) {
+            instances.remove(key);
+        }
+        synchronized (this) {
+            deleted = true;
+            close();
+            index = null;
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+        if (legacyDir.exists()) ExtensionsKt.deleteQuietly(legacyDir);
+    }
+
+    private boolean open() throws IOException {
+        if (deleted) return false;
+        if (raf != null) return true;
+        if (legacyDir.exists()) ExtensionsKt.deleteQuietly(legacyDir);
+        raf = new RandomAccessFile(file, "rw");
+        try {
+            index = readIndex();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        return true;
+    }
+
+    private Map<String, Record> readIndex() throws IOException {
+        Map<String, Record> result = new HashMap<>();
+        long length = raf.length();
+        if (length < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+            raf.setLength(0);
+            raf.writeInt(MAGIC);
+            raf.writeInt(VERSION);
+            return result;
+        }
+        long position = HEADER_SIZE;
+        try {
+            while (position < length) {
+                raf.seek(position);
+                String page = raf.readUTF();
+                int dataLength = raf.readInt();
+                long dataOffset = raf.getFilePointer();
+                if (dataLength < 0 || dataOffset + dataLength > length) break;
+                // later records replace earlier ones of the same page
+                result.put(page, new Record(dataOffset, dataLength));
+                position = dataOffset + dataLength;
+            }
+        } catch (IOException e) {
+            Timber.w(e, "incomplete record in %s", file);
+        }
+        if (position < length) {
+            Timber.w("truncating %s from %d to %d", file, length, position);
+            raf.setLength(position);
+        }
+        return result;
+    }
+
+    private void close() {
+        if (raf == null) return;
+        try {
+            raf.close();
+        } catch (IOException e) {
+            Timber.w(e);
+        }
+        raf = null;
+    }
+
+    private static class Record {
+        final long offset;
+        final int  length;
+
+        Record(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -41,6 +41,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -52,10 +53,11 @@ import javax.xml.parsers.ParserConfigurationException;
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import timber.log.Timber;
 
-@Entity(tableName = "PAPER")
+@Entity(tableName = "PAPER", indices = {@Index("date")})
 public class Paper extends Downloadable {
 
     public static final String STORE_KEY_BOOKMARKS           = "bookmarks";
@@ -234,6 +236,10 @@ public class Paper extends Downloadable {
         return articleCollectionOrder.get(key);
     }
 
+    public boolean isInArticleCollection(String key) {
+        return articleCollectionOrder != null && articleCollectionOrder.containsKey(key);
+    }
+
     public int getArticleCollectionSize() {
         return articleCollectionOrder.size();
     }
@@ -272,10 +278,35 @@ public class Paper extends Downloadable {
     public void parsePlist(InputStream is, boolean parseIndex) throws IOException, PropertyListFormatException, ParseException,
             ParserConfigurationException, SAXException {
         Timber.i("Start parsing Plist - parse Index: %s", parseIndex);
-        plist = new Plist(is, parseIndex);
+        plist = PlistStreamParser.parse(this, is, parseIndex);
         Timber.i("Finished parsing Plist");
     }
 
+    /**
+     * Loads the table of contents from the binary {@link TocSnapshot} in the paper directory. Falls back to parsing
+     * {@link #CONTENT_PLIST_FILENAME} if the snapshot is missing or outdated and writes a fresh snapshot afterwards.
+     */
+    public void loadPlist(File paperDirectory) throws IOException, PropertyListFormatException, ParseException,
+            ParserConfigurationException, SAXException {
+        File plistFile = new File(paperDirectory, CONTENT_PLIST_FILENAME);
+        File snapshotFile = new File(paperDirectory, TocSnapshot.FILENAME);
+        plist = TocSnapshot.read(this, snapshotFile, plistFile);
+        if (plist != null) {
+            Timber.i("Loaded Plist from snapshot");
+            return;
+        }
+        parsePlist(plistFile, true);
+        try {
+            TocSnapshot.write(plist, snapshotFile, plistFile);
+        } catch (IOException e) {
+            Timber.w(e, "Could not write toc snapshot");
+        }
+    }
+
+
+    public boolean hasPlist() {
+        return plist != null;
+    }
 
     public Plist getPlist() {
         if (plist == null) throw new IllegalStateException("No Plist parsed. Call parsePlist() before!");
@@ -313,8 +344,26 @@ public class Paper extends Downloadable {
 
         private List<Source>          sources;
         private List<TopLink>         toplinks;
+        private List<String>          articleOrder;
         private Map<String, ITocItem> indexMap = new LinkedHashMap<>();
 
+        Plist(boolean withIndex) {
+            if (withIndex) {
+                sources = new ArrayList<>();
+                toplinks = new ArrayList<>();
+            }
+        }
+
+        void setAttributes(String archiveUrl, String bookId, String resource, String minVersion, String version,
+                           Map<String, String> hashVals) {
+            this.archiveUrl = archiveUrl;
+            this.bookId = bookId;
+            this.resource = resource;
+            this.minVersion = minVersion;
+            this.version = version;
+            this.hashVals = hashVals;
+        }
+
         public Plist(InputStream is, boolean parseIndex) throws IOException, PropertyListFormatException, ParseException,
                 ParserConfigurationException, SAXException {
 
@@ -325,7 +374,7 @@ public class Paper extends Downloadable {
             archiveUrl = PlistHelper.getString(root, KEY_ARCHIVEURL);
             bookId = PlistHelper.getString(root, KEY_BOOKID);
             resource = PlistHelper.getString(root, KEY_RESOURCE);
-            if (!TextUtils.isEmpty(resource)) {
+            if (resource != null && !resource.isEmpty()) {
                 resource = resource.replace(".res", "");
             }
             minVersion = PlistHelper.getString(root, KEY_MINVERSION);
@@ -361,9 +410,8 @@ public class Paper extends Downloadable {
                         NSDictionary sourceDict = (NSDictionary) sourceObject;
                         String key = sourceDict.allKeys()[0];
                         Source source = new Source(key, (NSArray) sourceDict.objectForKey(key));
-                        indexMap.put(source.getKey(), source);
+                        addSource(source);
                         source.parseBooks();
-                        sources.add(source);
                     }
                 }
             }
@@ -379,33 +427,38 @@ public class Paper extends Downloadable {
                         NSDictionary toplinkDict = (NSDictionary) toplinkeObject;
                         String key = toplinkDict.allKeys()[0];
                         TopLink toplink = new TopLink(key, PlistHelper.getString(toplinkDict, key));
-                        boolean foundDefaultPageLink = false;
-                        for (Source source : getSources()) {
-                            for (Book book : source.getBooks()) {
-                                for (Category category : book.getCategories()) {
-                                    for (Page page : category.getPages()) {
-                                        if (toplink.getKey()
-                                                   .equals(page.getDefaultLink())) {
-                                            toplink.page = page;
-                                            foundDefaultPageLink = true;
-                                        }
-                                        if (foundDefaultPageLink) break;
-                                    }
-                                    if (foundDefaultPageLink) break;
-                                }
-                                if (foundDefaultPageLink) break;
-                            }
-                            if (foundDefaultPageLink) break;
-                        }
-                        if (indexMap.containsKey(toplink.getKey())) {
-                            toplink.setLink(indexMap.get(toplink.getKey()));
-                        } else {
-                            indexMap.put(toplink.getKey(), toplink);
+                        toplink.page = findPageWithDefaultLink(toplink.getKey());
+                        addToplink(toplink);
+                    }
+                }
+            }
+        }
+
+        Page findPageWithDefaultLink(String link) {
+            for (Source source : getSources()) {
+                for (Book book : source.getBooks()) {
+                    for (Category category : book.getCategories()) {
+                        for (Page page : category.getPages()) {
+                            if (link.equals(page.getDefaultLink())) return page;
                         }
-                        toplinks.add(toplink);
                     }
                 }
             }
+            return null;
+        }
+
+        void addSource(Source source) {
+            indexMap.put(source.getKey(), source);
+            sources.add(source);
+        }
+
+        void addToplink(TopLink toplink) {
+            if (indexMap.containsKey(toplink.getKey())) {
+                toplink.setLink(indexMap.get(toplink.getKey()));
+            } else {
+                indexMap.put(toplink.getKey(), toplink);
+            }
+            toplinks.add(toplink);
         }
 
         public String getArchiveUrl() {
@@ -456,6 +509,40 @@ public class Paper extends Downloadable {
             return indexMap.get(key);
         }
 
+        /**
+         * @return keys of all readable articles and toplinks in reading order. Toplinks are sorted in front of the
+         * articles of the page they are the default link of, remaining ones are appended.
+         */
+        public List<String> getArticleOrder() {
+            if (articleOrder == null) {
+                List<String> result = new ArrayList<>();
+                List<TopLink> toplinksToSortIn = new ArrayList<>(getToplinks());
+                for (Page page : getAllPages()) {
+                    Iterator<TopLink> i = toplinksToSortIn.iterator();
+                    while (i.hasNext()) {
+                        TopLink topLink = i.next();
+                        if (!topLink.isLink() && topLink.getKey()
+                                                        .equals(page.getDefaultLink())) {
+                            result.add(topLink.getKey());
+                            i.remove();
+                        }
+                    }
+                    for (Article article : page.getArticles()) {
+                        if (!article.isLink()) result.add(article.getKey());
+                    }
+                }
+                for (TopLink topLink : toplinksToSortIn) {
+                    if (!topLink.isLink()) result.add(topLink.getKey());
+                }
+                articleOrder = result;
+            }
+            return articleOrder;
+        }
+
+        void setArticleOrder(List<String> articleOrder) {
+            this.articleOrder = articleOrder;
+        }
+
         public class Source extends TocItemTemplate {
 
             String     key;
@@ -467,6 +554,11 @@ public class Paper extends Downloadable {
                 this.array = array;
             }
 
+            Source(String key) {
+                this.key = key;
+                books = new ArrayList<>();
+            }
+
             public String getKey() {
                 return key;
             }
@@ -486,6 +578,10 @@ public class Paper extends Downloadable {
                 }
             }
 
+            void addBook(Book book) {
+                books.add(book);
+            }
+
             @Override
             public String getTitle() {
                 return getKey();
@@ -545,6 +641,11 @@ public class Paper extends Downloadable {
                 this.array = array;
             }
 
+            Book(Source source, String key) {
+                this(source, key, null);
+                categories = new ArrayList<>();
+            }
+
             private void parseCategories() {
                 categories = new ArrayList<>();
 
@@ -554,14 +655,18 @@ public class Paper extends Downloadable {
                         NSDictionary sourceBookCategoryDict = (NSDictionary) sourceBookCategory;
                         String key = sourceBookCategoryDict.allKeys()[0];
                         Category category = new Category(this, key, (NSArray) sourceBookCategoryDict.objectForKey(key));
-                        indexMap.put(category.getKey(), category);
+                        addCategory(category);
                         category.parsePages();
                         category.parseRealPagesForArticles();
-                        categories.add(category);
                     }
                 }
             }
 
+            void addCategory(Category category) {
+                indexMap.put(category.getKey(), category);
+                categories.add(category);
+            }
+
             public String getKey() {
                 return key;
             }
@@ -597,6 +702,11 @@ public class Paper extends Downloadable {
                 this.array = array;
             }
 
+            Category(Book book, String key) {
+                this(book, key, null);
+                pages = new ArrayList<>();
+            }
+
             public Book getBook() {
                 return book;
             }
@@ -609,16 +719,22 @@ public class Paper extends Downloadable {
                         NSDictionary sourceBookCategoryPageDict = (NSDictionary) sourceBookCategoryPage;
                         String key = sourceBookCategoryPageDict.allKeys()[0];
                         Page page = new Page(this, key, (NSDictionary) sourceBookCategoryPageDict.objectForKey(key));
-                        indexMap.put(page.getKey(), page);
-                        for (Article article : page.getArticles()) {
-                            indexMap.put(article.getKey(), article);
-                        }
-                        pages.add(page);
+                        addPage(page);
+                    }
+                }
+            }
+
+            void addPage(Page page) {
+                indexMap.put(page.getKey(), page);
+                if (page.articles != null) {
+                    for (Article article : page.articles) {
+                        indexMap.put(article.getKey(), article);
                     }
                 }
+                pages.add(page);
             }
 
-            private void parseRealPagesForArticles() {
+            void parseRealPagesForArticles() {
                 List<Article> allArticlesFromCategory = new ArrayList<>();
                 for (Page aPage : getPages()) {
                     allArticlesFromCategory.addAll(aPage.getArticles());
@@ -723,6 +839,20 @@ public class Paper extends Downloadable {
 
             }
 
+            Page(Category category, String key, String pagina, String defaultLink, String left, String right,
+                 boolean hasContent) {
+                this.category = category;
+                this.key = key;
+                this.pagina = pagina;
+                this.defaultLink = defaultLink;
+                this.left = left;
+                this.right = right;
+                if (hasContent) {
+                    geometries = new ArrayList<>();
+                    articles = new ArrayList<>();
+                }
+            }
+
             private void parseGeometries() {
                 geometries = new ArrayList<>();
                 NSObject[] sourceBookCategoryPageGeometries = geometryArray.getArray();
@@ -876,6 +1006,14 @@ public class Paper extends Downloadable {
                     this.link = PlistHelper.getString(dict, KEY_LINK);
                 }
 
+                Geometry(float x1, float y1, float x2, float y2, String link) {
+                    this.x1 = x1;
+                    this.y1 = y1;
+                    this.x2 = x2;
+                    this.y2 = y2;
+                    this.link = link;
+                }
+
                 public float getX1() {
                     return x1;
                 }
@@ -940,6 +1078,15 @@ public class Paper extends Downloadable {
                     this.audiolink  = PlistHelper.getString(dict, KEY_AUDIOLINK);
                 }
 
+                Article(String key, String title, String subtitle, String author, String onlinelink, String audiolink) {
+                    this.key = key;
+                    this.title = title;
+                    this.subtitle = subtitle;
+                    this.author = author;
+                    this.onlinelink = onlinelink;
+                    this.audiolink = audiolink;
+                }
+
                 public String getKey() {
                     return key;
                 }
@@ -953,6 +1100,10 @@ public class Paper extends Downloadable {
                     return title;
                 }
 
+                String getRawTitle() {
+                    return title;
+                }
+
                 public String getSubtitle() {
                     return subtitle;
                 }
@@ -1073,6 +1224,10 @@ public class Paper extends Downloadable {
                 return page;
             }
 
+            void setPage(Page page) {
+                this.page = page;
+            }
+
             @Override
             public ITocItem getIndexParent() {
                 return null;
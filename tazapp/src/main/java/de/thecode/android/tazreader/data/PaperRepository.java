@@ -1,6 +1,7 @@
 package de.thecode.android.tazreader.data;
 
 import android.content.Context;
+import android.text.TextUtils;
 
 import com.squareup.picasso.Picasso;
 
@@ -8,6 +9,7 @@ import de.thecode.android.tazreader.BuildConfig;
 import de.thecode.android.tazreader.R;
 import de.thecode.android.tazreader.TazApplicationKt;
 import de.thecode.android.tazreader.download.PaperDeletedEvent;
+import de.thecode.android.tazreader.picasso.PicassoHelper;
 import de.thecode.android.tazreader.room.AppDatabase;
 import de.thecode.android.tazreader.utils.StorageManager;
 
@@ -15,12 +17,22 @@ import org.greenrobot.eventbus.EventBus;
 
 import java.text.DateFormat;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
+import androidx.paging.DataSource;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
 import androidx.work.WorkManager;
+import timber.log.Timber;
 
 /**
  * Created by mate on 02.03.18.
@@ -29,6 +41,9 @@ import androidx.work.WorkManager;
 public class PaperRepository {
 
 
+    private static final int MAX_QUERY_ARGS    = 500;
+    private static final int LIBRARY_PAGE_SIZE = 30;
+
     private static volatile PaperRepository mInstance;
 
     public static PaperRepository getInstance(Context context) {
@@ -51,7 +66,7 @@ public class PaperRepository {
     private PaperRepository(Context context) {
         appDatabase = AppDatabase.getInstance(context);
         storageManager = StorageManager.getInstance(context);
-        picasso = Picasso.with(context);
+        picasso = PicassoHelper.with(context);
         storeRepository = StoreRepository.getInstance(context);
         downloadsRepository = DownloadsRepository.Companion.getInstance();
     }
@@ -116,6 +131,82 @@ public class PaperRepository {
                    .insert(papers);
     }
 
+    /**
+     * Applies the papers and resources of a sync. Existing papers and resources are fetched with a few IN queries,
+     * new or changed papers (lastModified, imageHash) and unknown resources are written in one transaction. Unchanged
+     * papers only get the new validUntil.
+     *
+     * @return the papers with a new or changed cover image
+     */
+    @WorkerThread
+    public List<Paper> applySync(List<Paper> papers, List<Resource> resources, long validUntil) {
+        return applySync(appDatabase, papers, resources, validUntil);
+    }
+
+    @VisibleForTesting
+    @WorkerThread
+    static List<Paper> applySync(AppDatabase appDatabase, List<Paper> papers, List<Resource> resources,
+                                 long validUntil) {
+        List<String> bookIds = new ArrayList<>(papers.size());
+        for (Paper paper : papers) {
+            bookIds.add(paper.getBookId());
+        }
+        Map<String, Paper> oldPapers = new HashMap<>();
+        for (List<String> chunk : chunk(bookIds)) {
+            for (Paper oldPaper : appDatabase.paperDao()
+                                             .getPapers(chunk.toArray(new String[0]))) {
+                oldPapers.put(oldPaper.getBookId(), oldPaper);
+            }
+        }
+
+        List<Paper> changedPapers = new ArrayList<>();
+        List<Paper> changedImages = new ArrayList<>();
+        List<String> outdatedBookIds = new ArrayList<>();
+        for (Paper paper : papers) {
+            Paper oldPaper = oldPapers.get(paper.getBookId());
+            boolean imageChanged = oldPaper == null || !TextUtils.equals(oldPaper.getImageHash(), paper.getImageHash());
+            if (imageChanged || oldPaper.getLastModified() != paper.getLastModified()) {
+                if (imageChanged) changedImages.add(paper);
+                changedPapers.add(paper);
+            } else if (oldPaper.getValidUntil() != validUntil) {
+                outdatedBookIds.add(paper.getBookId());
+            }
+        }
+
+        Map<String, Resource> candidates = new LinkedHashMap<>();
+        for (Resource resource : resources) {
+            if (resource.getKey() != null && !candidates.containsKey(resource.getKey())) {
+                candidates.put(resource.getKey(), resource);
+            }
+        }
+        for (List<String> chunk : chunk(new ArrayList<>(candidates.keySet()))) {
+            for (String existingKey : appDatabase.resourceDao()
+                                                 .existingKeys(chunk)) {
+                candidates.remove(existingKey);
+            }
+        }
+        List<Resource> newResources = new ArrayList<>(candidates.values());
+
+        Timber.d("sync: %d changed papers, %d new resources, %d unchanged",
+                 changedPapers.size(),
+                 newResources.size(),
+                 papers.size() - changedPapers.size());
+        appDatabase.paperDao()
+                   .applySync(changedPapers, newResources, validUntil, chunk(outdatedBookIds));
+        return changedImages;
+    }
+
+    /**
+     * Splits query arguments below the SQLite limit of 999 variables.
+     */
+    private static List<List<String>> chunk(List<String> values) {
+        List<List<String>> result = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += MAX_QUERY_ARGS) {
+            result.add(values.subList(i, Math.min(values.size(), i + MAX_QUERY_ARGS)));
+        }
+        return result;
+    }
+
     @WorkerThread
     public Paper getLatestPaper() {
         return appDatabase.paperDao()
@@ -123,15 +214,35 @@ public class PaperRepository {
     }
 
 
-    public LiveData<List<PaperWithDownloadState>> getLivePapersForDemoLibrary() {
-        return appDatabase.paperDao()
-                          .getLiveForDemoLibrary();
+    /**
+     * The papers of the library, loaded in pages of {@value #LIBRARY_PAGE_SIZE}.
+     *
+     * @param demoOnly only demo papers
+     */
+    public LiveData<PagedList<PaperWithDownloadState>> getPagedPapersForLibrary(boolean demoOnly) {
+        PagedList.Config config = new PagedList.Config.Builder().setPageSize(LIBRARY_PAGE_SIZE)
+                                                                .setEnablePlaceholders(true)
+                                                                .build();
+        DataSource.Factory<Integer, PaperWithDownloadState> factory = new DataSource.Factory<Integer, PaperWithDownloadState>() {
+            @NonNull
+            @Override
+            public DataSource<Integer, PaperWithDownloadState> create() {
+                // created again on every change, papers running out of validity drop out then
+                return appDatabase.paperDao()
+                                  .getPagedForLibrary(System.currentTimeMillis() / 1000, demoOnly)
+                                  .create();
+            }
+        };
+        return new LivePagedListBuilder<>(factory, config).build();
     }
 
-    public LiveData<List<PaperWithDownloadState>> getLivePapersForLibrary() {
-
+    /**
+     * @return the bookIds of all papers in the library, also of those not loaded into the list yet
+     */
+    @WorkerThread
+    public List<String> getBookIdsForLibrary(boolean demoOnly, boolean notDownloadedOnly) {
         return appDatabase.paperDao()
-                          .getLiveForLibrary();
+                          .getBookIdsForLibrary(System.currentTimeMillis() / 1000, demoOnly, notDownloadedOnly);
     }
 
     public LiveData<PaperWithDownloadState> getLivePaper(String bookId) {
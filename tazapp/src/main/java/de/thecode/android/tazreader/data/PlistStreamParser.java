@@ -0,0 +1,371 @@
+package de.thecode.android.tazreader.data;
+
+import com.dd.plist.PropertyListFormatException;
+
+import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Builds a {@link Paper.Plist} straight from the XML event stream of a content.plist, without materialising the
+ * whole plist as {@link com.dd.plist.NSDictionary} first. Produces the same structure as the dd-plist based parsing,
+ * which is still used for binary and ASCII plists.
+ */
+class PlistStreamParser {
+
+    private static final String TAG_PLIST   = "plist";
+    private static final String TAG_DICT    = "dict";
+    private static final String TAG_ARRAY   = "array";
+    private static final String TAG_KEY     = "key";
+    private static final String TAG_STRING  = "string";
+    private static final String TAG_REAL    = "real";
+    private static final String TAG_INTEGER = "integer";
+
+    private static final String KEY_ARCHIVEURL = "ArchivUrl";
+    private static final String KEY_BOOKID     = "BookId";
+    private static final String KEY_RESOURCE   = "ressource";
+    private static final String KEY_MINVERSION = "MinVersion";
+    private static final String KEY_VERSION    = "Version";
+    private static final String KEY_HASHVALS   = "HashVals";
+    private static final String KEY_SOURCES    = "Quellen";
+    private static final String KEY_TOPLINKS   = "TopLinks";
+
+    private static final String KEY_GEOMETRY    = "geometry";
+    private static final String KEY_PAGINA      = "SeitenNummer";
+    private static final String KEY_DEFAULTLINK = "defaultLink";
+    private static final String KEY_ARTICLE     = "Artikel";
+    private static final String KEY_RIGHT       = "right";
+    private static final String KEY_LEFT        = "left";
+
+    private static final String KEY_X1   = "x1";
+    private static final String KEY_Y1   = "y1";
+    private static final String KEY_X2   = "x2";
+    private static final String KEY_Y2   = "y2";
+    private static final String KEY_LINK = "link";
+
+    private static final String KEY_TITLE      = "Titel";
+    private static final String KEY_SUBTITLE   = "Untertitel";
+    private static final String KEY_AUTHOR     = "Autor";
+    private static final String KEY_ONLINELINK = "OnlineLink";
+    private static final String KEY_AUDIOLINK  = "AudioLink";
+
+    private static final int PEEK_SIZE = 64;
+
+    // created through the factory instead of android.util.Xml, so the parser also runs in JVM tests
+    private static XmlPullParserFactory parserFactory;
+
+    private static synchronized XmlPullParser newPullParser() throws XmlPullParserException {
+        if (parserFactory == null) {
+            parserFactory = XmlPullParserFactory.newInstance();
+            parserFactory.setNamespaceAware(false);
+        }
+        return parserFactory.newPullParser();
+    }
+
+    static Paper.Plist parse(Paper paper, InputStream is, boolean parseIndex) throws IOException,
+            PropertyListFormatException, ParseException, ParserConfigurationException, SAXException {
+        BufferedInputStream bis = new BufferedInputStream(is);
+        if (!isXml(bis)) {
+            return paper.new Plist(bis, parseIndex);
+        }
+        try {
+            return new PlistStreamParser(paper, parseIndex).parse(bis);
+        } catch (XmlPullParserException e) {
+            throw new PropertyListFormatException(e.getMessage());
+        } finally {
+            bis.close();
+        }
+    }
+
+    private static boolean isXml(BufferedInputStream bis) throws IOException {
+        bis.mark(PEEK_SIZE);
+        try {
+            byte[] peek = new byte[PEEK_SIZE];
+            int read = bis.read(peek);
+            int i = 0;
+            // UTF-8 byte order mark
+            if (read >= 3 && (peek[0] & 0xFF) == 0xEF && (peek[1] & 0xFF) == 0xBB && (peek[2] & 0xFF) == 0xBF) i = 3;
+            while (i < read && Character.isWhitespace(peek[i])) i++;
+            return i < read && peek[i] == '<';
+        } finally {
+            bis.reset();
+        }
+    }
+
+    private interface EntryHandler {
+        void onEntry(String key) throws XmlPullParserException, IOException;
+    }
+
+    private interface ElementHandler {
+        void onElement() throws XmlPullParserException, IOException;
+    }
+
+    private final Paper       paper;
+    private final boolean     parseIndex;
+    private       Paper.Plist plist;
+    private       XmlPullParser parser;
+
+    private String archiveUrl;
+    private String bookId;
+    private String resource;
+    private String minVersion;
+    private String version;
+
+    private final Map<String, String> hashVals = new HashMap<>();
+    private final List<String[]>      toplinks = new ArrayList<>();
+
+    private PlistStreamParser(Paper paper, boolean parseIndex) {
+        this.paper = paper;
+        this.parseIndex = parseIndex;
+    }
+
+    private Paper.Plist parse(InputStream is) throws XmlPullParserException, IOException {
+        plist = paper.new Plist(parseIndex);
+        parser = newPullParser();
+        parser.setInput(is, null);
+
+        parser.nextTag();
+        parser.require(XmlPullParser.START_TAG, null, TAG_PLIST);
+        if (nextElement()) readDict(this::onRootEntry);
+
+        if (resource != null && !resource.isEmpty()) {
+            resource = resource.replace(".res", "");
+        }
+        plist.setAttributes(archiveUrl, bookId, resource, minVersion, version, hashVals);
+
+        // toplinks refer to pages and articles, sort them in after all sources are known
+        if (parseIndex) {
+            for (String[] toplinkValues : toplinks) {
+                Paper.Plist.TopLink toplink = plist.new TopLink(toplinkValues[0], toplinkValues[1]);
+                toplink.setPage(plist.findPageWithDefaultLink(toplink.getKey()));
+                plist.addToplink(toplink);
+            }
+        }
+        return plist;
+    }
+
+    private void onRootEntry(String key) throws XmlPullParserException, IOException {
+        switch (key) {
+            case KEY_ARCHIVEURL:
+                archiveUrl = readString();
+                break;
+            case KEY_BOOKID:
+                bookId = readString();
+                break;
+            case KEY_RESOURCE:
+                resource = readString();
+                break;
+            case KEY_MINVERSION:
+                minVersion = readString();
+                break;
+            case KEY_VERSION:
+                version = readString();
+                break;
+            case KEY_HASHVALS:
+                readDict(hashKey -> hashVals.put(hashKey, readString()));
+                break;
+            case KEY_SOURCES:
+                if (parseIndex) readArray(() -> readFirstEntry(this::readSource));
+                else skip();
+                break;
+            case KEY_TOPLINKS:
+                if (parseIndex) readArray(() -> readFirstEntry(toplinkKey -> toplinks.add(new String[]{toplinkKey, readString()})));
+                else skip();
+                break;
+            default:
+                skip();
+        }
+    }
+
+    private void readSource(String sourceKey) throws XmlPullParserException, IOException {
+        final Paper.Plist.Source source = plist.new Source(sourceKey);
+        plist.addSource(source);
+        readArray(() -> readFirstEntry(bookKey -> {
+            Paper.Plist.Book book = plist.new Book(source, bookKey);
+            source.addBook(book);
+            readArray(() -> readFirstEntry(categoryKey -> readCategory(book, categoryKey)));
+        }));
+    }
+
+    private void readCategory(Paper.Plist.Book book, String categoryKey) throws XmlPullParserException, IOException {
+        final Paper.Plist.Category category = plist.new Category(book, categoryKey);
+        book.addCategory(category);
+        readArray(() -> readFirstEntry(pageKey -> readPage(category, pageKey)));
+        category.parseRealPagesForArticles();
+    }
+
+    private void readPage(Paper.Plist.Category category, String pageKey) throws XmlPullParserException, IOException {
+        if (!TAG_DICT.equals(parser.getName())) {
+            skip();
+            return;
+        }
+        final Paper.Plist.Page page = plist.new Page(category, pageKey, null, null, null, null, true);
+        readDict(key -> {
+            switch (key) {
+                case KEY_PAGINA:
+                    page.pagina = readString();
+                    break;
+                case KEY_DEFAULTLINK:
+                    page.defaultLink = readString();
+                    break;
+                case KEY_LEFT:
+                    page.left = readString();
+                    break;
+                case KEY_RIGHT:
+                    page.right = readString();
+                    break;
+                case KEY_GEOMETRY:
+                    readArray(() -> readGeometry(page));
+                    break;
+                case KEY_ARTICLE:
+                    readArray(() -> readFirstEntry(articleKey -> readArticle(page, articleKey)));
+                    break;
+                default:
+                    skip();
+            }
+        });
+        category.addPage(page);
+    }
+
+    private void readGeometry(Paper.Plist.Page page) throws XmlPullParserException, IOException {
+        final float[] coordinates = new float[4];
+        final String[] link = new String[1];
+        readDict(key -> {
+            switch (key) {
+                case KEY_X1:
+                    coordinates[0] = readFloat();
+                    break;
+                case KEY_Y1:
+                    coordinates[1] = readFloat();
+                    break;
+                case KEY_X2:
+                    coordinates[2] = readFloat();
+                    break;
+                case KEY_Y2:
+                    coordinates[3] = readFloat();
+                    break;
+                case KEY_LINK:
+                    link[0] = readString();
+                    break;
+                default:
+                    skip();
+            }
+        });
+        page.geometries.add(page.new Geometry(coordinates[0], coordinates[1], coordinates[2], coordinates[3], link[0]));
+    }
+
+    private void readArticle(Paper.Plist.Page page, String articleKey) throws XmlPullParserException, IOException {
+        final Map<String, String> values = new HashMap<>();
+        readDict(key -> values.put(key, readString()));
+        page.articles.add(page.new Article(articleKey,
+                                           values.get(KEY_TITLE),
+                                           values.get(KEY_SUBTITLE),
+                                           values.get(KEY_AUTHOR),
+                                           values.get(KEY_ONLINELINK),
+                                           values.get(KEY_AUDIOLINK)));
+    }
+
+    //---- plist primitives, each read method starts on the START_TAG of its value and ends on its END_TAG
+
+    /**
+     * Moves to the next child element of the current element.
+     *
+     * @return {@code false} if the end of the current element is reached instead
+     */
+    private boolean nextElement() throws XmlPullParserException, IOException {
+        while (true) {
+            int event = parser.next();
+            if (event == XmlPullParser.START_TAG) return true;
+            if (event == XmlPullParser.END_TAG) return false;
+            if (event == XmlPullParser.END_DOCUMENT) throw new XmlPullParserException("Unexpected end of document");
+        }
+    }
+
+    private void readDict(EntryHandler handler) throws XmlPullParserException, IOException {
+        if (!TAG_DICT.equals(parser.getName())) {
+            skip();
+            return;
+        }
+        while (nextElement()) {
+            parser.require(XmlPullParser.START_TAG, null, TAG_KEY);
+            String key = parser.nextText();
+            if (!nextElement()) return;
+            handler.onEntry(key);
+        }
+    }
+
+    /**
+     * Reads a dictionary which is used as a named wrapper for its single value. Like in the dd-plist based parsing
+     * only the first entry is used.
+     */
+    private void readFirstEntry(EntryHandler handler) throws XmlPullParserException, IOException {
+        final boolean[] first = {true};
+        readDict(key -> {
+            if (first[0]) {
+                first[0] = false;
+                handler.onEntry(key);
+            } else {
+                skip();
+            }
+        });
+    }
+
+    private void readArray(ElementHandler handler) throws XmlPullParserException, IOException {
+        if (!TAG_ARRAY.equals(parser.getName())) {
+            skip();
+            return;
+        }
+        while (nextElement()) {
+            handler.onElement();
+        }
+    }
+
+    private String readString() throws XmlPullParserException, IOException {
+        if (TAG_STRING.equals(parser.getName())) return parser.nextText();
+        skip();
+        return null;
+    }
+
+    private float readFloat() throws XmlPullParserException, IOException {
+        String name = parser.getName();
+        if (TAG_REAL.equals(name) || TAG_INTEGER.equals(name)) {
+            String text = parser.nextText()
+                                .trim();
+            try {
+                return Float.parseFloat(text);
+            } catch (NumberFormatException e) {
+                throw new XmlPullParserException("Invalid number " + text, parser, e);
+            }
+        }
+        skip();
+        return 0;
+    }
+
+    private void skip() throws XmlPullParserException, IOException {
+        int depth = 1;
+        while (depth != 0) {
+            switch (parser.next()) {
+                case XmlPullParser.START_TAG:
+                    depth++;
+                    break;
+                case XmlPullParser.END_TAG:
+                    depth--;
+                    break;
+                case XmlPullParser.END_DOCUMENT:
+                    throw new XmlPullParserException("Unexpected end of document");
+            }
+        }
+    }
+}
@@ -32,5 +32,10 @@ public class PublicationRepository {
         appDatabase.publicationDao().insert(publication);
     }
 
+    @WorkerThread
+    public long getLatestValidUntil() {
+        return appDatabase.publicationDao().getLatestValidUntil();
+    }
+
 
 }
@@ -1,11 +1,12 @@
 package de.thecode.android.tazreader.data;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.annotation.NonNull;
 import android.text.TextUtils;
 
-@Entity(tableName = "STORE")
+@Entity(tableName = "STORE", indices = {@Index("bookId")})
 public class Store {
 
 
@@ -13,11 +14,14 @@ public class Store {
     @NonNull
     private String path;
     private String value;
+    // first segment of the path, indexed for the stores of a book
+    private String bookId;
 
     public Store(String path, String value) {
         if (!path.startsWith("/")) path = "/" + path;
         this.path = path;
         this.value = value;
+        this.bookId = getBookId(path);
     }
 
     public String getPath() {
@@ -40,8 +44,26 @@ public class Store {
         return TextUtils.isEmpty(getValue());
     }
 
+    public String getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(String bookId) {
+        this.bookId = bookId;
+    }
+
     public static String getPath(String bookId, String key) {
         return "/" + bookId + "/" + key;
     }
 
+    /**
+     * @return the bookId of a path like {@code /bookId/key} or {@code null}
+     */
+    public static String getBookId(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        if (end <= start) return null;
+        return path.substring(start, end);
+    }
+
 }
@@ -0,0 +1,151 @@
+package de.thecode.android.tazreader.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import timber.log.Timber;
+
+/**
+ * The stores of one book in memory, while it is open in the reader. Loaded with one query, changes are kept as dirty
+ * paths until the {@link StoreRepository} writes them in one transaction. LiveData is updated from memory.
+ */
+class StoreCache {
+
+    private final String prefix;
+
+    private final Map<String, String>                 values     = new HashMap<>();
+    // changed paths, written or deleted on the next flush
+    private final Set<String>                         dirty      = new HashSet<>();
+    private final Map<String, MutableLiveData<Store>> liveStores = new HashMap<>();
+    private final MutableLiveData<List<Store>>        liveAll    = new MutableLiveData<>();
+    private final CountDownLatch                      loaded     = new CountDownLatch(1);
+
+    int openCount;
+
+    StoreCache(String bookId) {
+        prefix = Store.getPath(bookId, "");
+    }
+
+    boolean contains(String path) {
+        return path.startsWith(prefix);
+    }
+
+    synchronized void load(List<Store> stores) {
+        for (Store store : stores) {
+            // changes made before loading finished are newer
+            if (!dirty.contains(store.getPath())) values.put(store.getPath(), store.getValue());
+        }
+        loaded.countDown();
+        for (Map.Entry<String, MutableLiveData<Store>> entry : liveStores.entrySet()) {
+            entry.getValue()
+                 .postValue(createStore(entry.getKey()));
+        }
+        liveAll.postValue(createStores());
+    }
+
+    Store get(String path) {
+        awaitLoaded();
+        synchronized (this) {
+            return createStore(path);
+        }
+    }
+
+    List<Store> getAll() {
+        awaitLoaded();
+        synchronized (this) {
+            return createStores();
+        }
+    }
+
+    synchronized void put(String path, String value) {
+        values.put(path, value);
+        changed(path);
+    }
+
+    synchronized void remove(String path) {
+        values.remove(path);
+        changed(path);
+    }
+
+    synchronized LiveData<Store> getLive(String path) {
+        MutableLiveData<Store> result = liveStores.get(path);
+        if (result == null) {
+            result = new MutableLiveData<>();
+            liveStores.put(path, result);
+            if (isLoaded()) result.postValue(createStore(path));
+        }
+        return result;
+    }
+
+    LiveData<List<Store>> getLiveAll() {
+        return liveAll;
+    }
+
+    /**
+     * Takes the changes since the last call.
+     *
+     * @param changed receives the stores to write
+     * @param deleted receives the paths to delete
+     */
+    synchronized void drainDirty(List<Store> changed, List<String> deleted) {
+        for (String path : dirty) {
+            if (values.containsKey(path)) changed.add(new Store(path, values.get(path)));
+            else deleted.add(path);
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Marks the paths dirty again after a failed write, their current values are written on the next flush.
+     */
+    synchronized void restoreDirty(List<Store> changed, List<String> deleted) {
+        for (Store store : changed) dirty.add(store.getPath());
+        dirty.addAll(deleted);
+    }
+
+    synchronized boolean hasDirty() {
+        return !dirty.isEmpty();
+    }
+
+    private void changed(String path) {
+        dirty.add(path);
+        MutableLiveData<Store> liveStore = liveStores.get(path);
+        if (liveStore != null) liveStore.postValue(createStore(path));
+        if (isLoaded()) liveAll.postValue(createStores());
+    }
+
+    // copies, callers change and save stores
+    private Store createStore(String path) {
+        if (!values.containsKey(path)) return null;
+        return new Store(path, values.get(path));
+    }
+
+    private List<Store> createStores() {
+        List<Store> result = new ArrayList<>(values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            result.add(new Store(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    private boolean isLoaded() {
+        return loaded.getCount() == 0;
+    }
+
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Timber.w(e);
+            Thread.currentThread()
+                  .interrupt();
+        }
+    }
+}
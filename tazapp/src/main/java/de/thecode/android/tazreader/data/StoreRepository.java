@@ -7,8 +7,16 @@ import androidx.annotation.WorkerThread;
 
 import de.thecode.android.tazreader.room.AppDatabase;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
 
 /**
  * Created by mate on 01.03.18.
@@ -29,12 +37,154 @@ public class StoreRepository {
         return mInstance;
     }
 
-    private final AppDatabase appDatabase;
+    // written at most this long after a change
+    private static final long FLUSH_DELAY = 2000;
+
+    private final AppDatabase              appDatabase;
+    private final Map<String, StoreCache>  caches   = new HashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private       boolean                  flushScheduled;
 
     private StoreRepository(Context context) {
         appDatabase = AppDatabase.getInstance(context);
     }
 
+    /**
+     * Keeps the stores of the book in memory until {@link #closeBook(String)}. Reads are served from memory, writes are
+     * collected and written in one transaction after {@link #FLUSH_DELAY} or on {@link #flush()}. Calls are counted, the
+     * book stays in memory until closed as often as opened.
+     */
+    public void openBook(String bookId) {
+        synchronized (caches) {
+            StoreCache cache = caches.get(bookId);
+            if (cache == null) {
+                StoreCache newCache = new StoreCache(bookId);
+                executor.execute(() -> {
+                    List<Store> stores = Collections.emptyList();
+                    try {
+                        stores = appDatabase.storeDao()
+                                            .getAllForBookId(bookId);
+                    } catch (Exception e) {
+                        Timber.e(e);
+                    }
+                    newCache.load(stores);
+                });
+                caches.put(bookId, newCache);
+                cache = newCache;
+            }
+            cache.openCount++;
+        }
+    }
+
+    /**
+     * Writes the changes of the book and drops it from memory, if it is not opened elsewhere.
+     */
+    public void closeBook(String bookId) {
+        StoreCache cache;
+        synchronized (caches) {
+            cache = caches.get(bookId);
+            if (cache == null || --cache.openCount > 0) return;
+        }
+        executor.execute(() -> {
+            flush(cache);
+            synchronized (caches) {
+                // still in the map until written, so no read misses a change
+                if (cache.openCount == 0 && caches.get(bookId) == cache) {
+                    if (cache.hasDirty()) flush(cache);
+                    caches.remove(bookId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes all changes of open books in the background.
+     */
+    public void flush() {
+        executor.execute(this::flushAll);
+    }
+
+    @WorkerThread
+    private void flushAll() {
+        List<StoreCache> openCaches;
+        synchronized (caches) {
+            openCaches = new ArrayList<>(caches.values());
+        }
+        for (StoreCache cache : openCaches) {
+            flush(cache);
+        }
+    }
+
+    @WorkerThread
+    private void flush(StoreCache cache) {
+        List<Store> changed = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        cache.drainDirty(changed, deleted);
+        if (changed.isEmpty() && deleted.isEmpty()) return;
+        List<Store> deletedStores = new ArrayList<>(deleted.size());
+        for (String path : deleted) {
+            deletedStores.add(new Store(path, null));
+        }
+        try {
+            appDatabase.runInTransaction(() -> {
+                if (!changed.isEmpty()) appDatabase.storeDao()
+                                                   .insert(changed);
+                if (!deletedStores.isEmpty()) appDatabase.storeDao()
+                                                         .delete(deletedStores);
+            });
+            Timber.d("wrote %d stores, deleted %d", changed.size(), deleted.size());
+        } catch (Exception e) {
+            Timber.e(e);
+            cache.restoreDirty(changed, deleted);
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        synchronized (caches) {
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        executor.schedule(() -> {
+            synchronized (caches) {
+                flushScheduled = false;
+            }
+            flushAll();
+        }, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    private StoreCache getCache(String path) {
+        synchronized (caches) {
+            for (StoreCache cache : caches.values()) {
+                if (cache.contains(path)) return cache;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Changes the store in memory, if its book is open. Lookup and change happen under the lock, so a book which is
+     * closed meanwhile either still gets the change written or is not found anymore.
+     *
+     * @param value  the new value, ignored when removing
+     * @param remove remove the store instead of changing its value
+     * @return false if the book is not open and the database has to be written directly
+     */
+    private boolean changeCached(String path, String value, boolean remove) {
+        synchronized (caches) {
+            StoreCache cache = getCache(path);
+            if (cache == null) return false;
+            if (remove) cache.remove(path);
+            else cache.put(path, value);
+        }
+        scheduleFlush();
+        return true;
+    }
+
+    private static String normalize(String path) {
+        return path.startsWith("/") ? path : "/" + path;
+    }
+
     @WorkerThread
     public Store getStore(String bookId, String key){
         return getStoreForPath(Store.getPath(bookId,key));
@@ -42,7 +192,8 @@ public class StoreRepository {
 
     @WorkerThread
     public Store getStoreForPath(String path) {
-        Store result = appDatabase.storeDao().withPath(path);
+        StoreCache cache = getCache(normalize(path));
+        Store result = cache != null ? cache.get(normalize(path)) : appDatabase.storeDao().withPath(normalize(path));
         if (result == null) result = new Store(path,null);
         return result;
     }
@@ -52,10 +203,17 @@ public class StoreRepository {
     }
 
     public LiveData<Store> getLiveStoreForPath(String path) {
-        return appDatabase.storeDao().liveWithPath(path);
+        StoreCache cache = getCache(normalize(path));
+        if (cache != null) return cache.getLive(normalize(path));
+        return appDatabase.storeDao().liveWithPath(normalize(path));
     }
 
     public LiveData<List<Store>> getLiveAllStoresForBook(String bookId) {
+        StoreCache cache;
+        synchronized (caches) {
+            cache = caches.get(bookId);
+        }
+        if (cache != null) return cache.getLiveAll();
         return appDatabase.storeDao().liveAllForBookId(bookId);
     }
 
@@ -63,16 +221,20 @@ public class StoreRepository {
 
     @WorkerThread
     public void deletePath(String path) {
-        appDatabase.storeDao().deleteWithPath(path);
+        if (changeCached(normalize(path), null, true)) return;
+        appDatabase.storeDao().deleteWithPath(normalize(path));
     }
 
     @WorkerThread
     public void deleteStore(Store store) {
+        if (changeCached(store.getPath(), null, true)) return;
         appDatabase.storeDao().delete(store);
     }
 
     @WorkerThread
     public List<Store> getAllStores() {
+        // open books are written first, so the result is complete
+        flushAll();
         List<Store> stores = appDatabase.storeDao().getAll();
         if ( stores == null) stores = Collections.emptyList();
         return stores;
@@ -80,15 +242,34 @@ public class StoreRepository {
 
     @WorkerThread
     public List<Store> getAllStoresForBook(String bookId) {
+        StoreCache cache;
+        synchronized (caches) {
+            cache = caches.get(bookId);
+        }
+        if (cache != null) return cache.getAll();
         List<Store> stores = appDatabase.storeDao().getAllForBookId(bookId);
         if ( stores == null) stores = Collections.emptyList();
         return stores;
     }
 
+    /**
+     * Writes directly to the database, unless the book is open. Then the store is only changed in memory and written
+     * later, which makes it cheap enough for the main thread.
+     */
     @WorkerThread
     public void saveStore(Store store) {
+        if (changeCached(store.getPath(), store.getValue(), false)) return;
         appDatabase.storeDao().insert(store);
     }
 
+    /**
+     * Like {@link #saveStore(Store)}, but for the main thread. If the book is not open in memory, the database is written
+     * on the executor, in order with the flushes of open books.
+     */
+    public void saveStoreAsync(Store store) {
+        if (changeCached(store.getPath(), store.getValue(), false)) return;
+        executor.execute(() -> appDatabase.storeDao().insert(store));
+    }
+
 
 }
@@ -73,6 +73,7 @@ public final class TazSettings implements SharedPreferences.OnSharedPreferenceCh
         public static final  String PAGETAPTOARTICLE            = "pageTapToArticle";
         public static final  String PAGEDOUBLETAPZOOM           = "pageDoubleTapZoom";
         public static final  String PAGETAPBORDERTOTURN         = "pageTapBorderToTurn";
+        public static final  String PAGERENDERMODE              = "pageRenderMode";
         private static final String INDEXALWAYSEXPANDED         = "indexAlwaysExpanded";
         public static final  String FIREBASETOKEN               = "firebaseToken";
         private static final String FIREBASETOKENOLD            = "firebaseTokenOld";
@@ -83,6 +84,8 @@ public final class TazSettings implements SharedPreferences.OnSharedPreferenceCh
         public static final  String DATA_FOLDER                 = "storageFolder";
         public static final  String ASK_HELP_ALLOWED            = "askHelpAllowed";
         public static final  String ASK_HELP_COUNTER            = "askHelpCounter";
+        private static final String PLIST_ETAG                  = "plistEtag";
+        private static final String PLIST_LAST_MODIFIED         = "plistLastModified";
     }
 
 
@@ -296,6 +299,24 @@ public final class TazSettings implements SharedPreferences.OnSharedPreferenceCh
         return sharedPreferences.getInt(PREFKEY.LATEST_VERSION, BuildConfig.VERSION_CODE);
     }
 
+    /**
+     * Validators of the last issue plist which has been applied completely, used for conditional requests.
+     */
+    public void setPlistValidators(String etag, String lastModified) {
+        sharedPreferences.edit()
+                         .putString(PREFKEY.PLIST_ETAG, etag)
+                         .putString(PREFKEY.PLIST_LAST_MODIFIED, lastModified)
+                         .apply();
+    }
+
+    public String getPlistEtag() {
+        return sharedPreferences.getString(PREFKEY.PLIST_ETAG, null);
+    }
+
+    public String getPlistLastModified() {
+        return sharedPreferences.getString(PREFKEY.PLIST_LAST_MODIFIED, null);
+    }
+
 
     public boolean isTapBorderToTurnPage() {
         return sharedPreferences.getBoolean(PREFKEY.PAGETAPBORDERTOTURN, true);
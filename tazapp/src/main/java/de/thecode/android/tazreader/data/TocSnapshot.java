@@ -0,0 +1,266 @@
+package de.thecode.android.tazreader.data;
+
+import de.thecode.android.tazreader.utils.Charsets;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Compact binary copy of the table of contents of a paper, written once after extraction and memory mapped when the
+ * paper is opened. Spares the reader from parsing the whole content.plist and rebuilding the index on every open.
+ * <p>
+ * A snapshot is only valid for the content.plist it was created from (same size and modification time) and for the
+ * current {@link #VERSION}. Increase the version on every change of the format.
+ */
+public class TocSnapshot {
+
+    public static final String FILENAME = "content.toc";
+
+    private static final int MAGIC   = 0x54415A54; // TAZT
+    private static final int VERSION = 1;
+
+    private static final int NO_INDEX = -1;
+
+    public static void write(Paper.Plist plist, File snapshotFile, File plistFile) throws IOException {
+        File tempFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(plistFile.length());
+            out.writeLong(plistFile.lastModified());
+
+            writeString(out, plist.getArchiveUrl());
+            writeString(out, plist.getBookId());
+            writeString(out, plist.getResource());
+            writeString(out, plist.getMinVersion());
+            writeString(out, plist.getVersion());
+
+            Map<String, String> hashVals = plist.getHashVals();
+            out.writeInt(hashVals.size());
+            for (Map.Entry<String, String> entry : hashVals.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+
+            List<Paper.Plist.Page> allPages = plist.getAllPages();
+            out.writeInt(plist.getSources()
+                              .size());
+            for (Paper.Plist.Source source : plist.getSources()) {
+                writeString(out, source.getKey());
+                out.writeInt(source.getBooks()
+                                   .size());
+                for (Paper.Plist.Book book : source.getBooks()) {
+                    // raw key, the book prefixes it with the source key on creation
+                    writeString(out, book.getKey()
+                                         .substring(source.getKey()
+                                                          .length() + 1));
+                    out.writeInt(book.getCategories()
+                                     .size());
+                    for (Paper.Plist.Category category : book.getCategories()) {
+                        writeString(out, category.getTitle());
+                        out.writeInt(category.getPages()
+                                             .size());
+                        for (Paper.Plist.Page page : category.getPages()) {
+                            writePage(out, page, category.getPages());
+                        }
+                    }
+                }
+            }
+
+            out.writeInt(plist.getToplinks()
+                              .size());
+            for (Paper.Plist.TopLink topLink : plist.getToplinks()) {
+                writeString(out, topLink.getKey());
+                writeString(out, topLink.getTitle());
+                out.writeInt(topLink.getPage() == null ? NO_INDEX : allPages.indexOf(topLink.getPage()));
+            }
+
+            List<String> articleOrder = plist.getArticleOrder();
+            out.writeInt(articleOrder.size());
+            for (String key : articleOrder) {
+                writeString(out, key);
+            }
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(snapshotFile)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw new IOException("Could not rename " + tempFile + " to " + snapshotFile);
+        }
+    }
+
+    private static void writePage(DataOutputStream out, Paper.Plist.Page page, List<Paper.Plist.Page> categoryPages) throws
+            IOException {
+        writeString(out, page.getKey());
+        writeString(out, page.pagina);
+        writeString(out, page.getDefaultLink());
+        writeString(out, page.left);
+        writeString(out, page.right);
+        boolean hasContent = page.geometries != null && page.articles != null;
+        out.writeBoolean(hasContent);
+        if (!hasContent) return;
+        out.writeInt(page.geometries.size());
+        for (Paper.Plist.Page.Geometry geometry : page.geometries) {
+            out.writeFloat(geometry.getX1());
+            out.writeFloat(geometry.getY1());
+            out.writeFloat(geometry.getX2());
+            out.writeFloat(geometry.getY2());
+            writeString(out, geometry.getLink());
+        }
+        out.writeInt(page.articles.size());
+        for (Paper.Plist.Page.Article article : page.articles) {
+            writeString(out, article.getKey());
+            // raw title, getTitle() falls back to the page title
+            writeString(out, article.getRawTitle());
+            writeString(out, article.getSubtitle());
+            writeString(out, article.getAuthor());
+            writeString(out, article.getOnlinelink());
+            writeString(out, article.getAudiolink());
+            out.writeInt(article.getRealPage() == null ? NO_INDEX : categoryPages.indexOf(article.getRealPage()));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NO_INDEX);
+        } else {
+            byte[] bytes = value.getBytes(Charsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @return the table of contents or {@code null} if there is no usable snapshot for this plist file.
+     */
+    public static Paper.Plist read(Paper paper, File snapshotFile, File plistFile) {
+        if (!snapshotFile.exists()) return null;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(snapshotFile, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                    Timber.i("Outdated toc snapshot %s", snapshotFile);
+                    return null;
+                }
+                if (in.getLong() != plistFile.length() || in.getLong() != plistFile.lastModified()) {
+                    Timber.i("Toc snapshot %s does not match plist", snapshotFile);
+                    return null;
+                }
+                return readPlist(paper, in);
+            } finally {
+                raf.close();
+            }
+        } catch (Exception e) {
+            Timber.w(e, "Could not read toc snapshot %s", snapshotFile);
+            return null;
+        }
+    }
+
+    private static Paper.Plist readPlist(Paper paper, ByteBuffer in) {
+        String archiveUrl = readString(in);
+        String bookId = readString(in);
+        String resource = readString(in);
+        String minVersion = readString(in);
+        String version = readString(in);
+
+        int hashValsCount = in.getInt();
+        Map<String, String> hashVals = new HashMap<>(hashValsCount * 4 / 3 + 1);
+        for (int i = 0; i < hashValsCount; i++) {
+            hashVals.put(readString(in), readString(in));
+        }
+
+        Paper.Plist plist = paper.new Plist(true);
+        plist.setAttributes(archiveUrl, bookId, resource, minVersion, version, hashVals);
+
+        List<Paper.Plist.Page> allPages = new ArrayList<>();
+        int sourceCount = in.getInt();
+        for (int s = 0; s < sourceCount; s++) {
+            Paper.Plist.Source source = plist.new Source(readString(in));
+            plist.addSource(source);
+            int bookCount = in.getInt();
+            for (int b = 0; b < bookCount; b++) {
+                Paper.Plist.Book book = plist.new Book(source, readString(in));
+                source.addBook(book);
+                int categoryCount = in.getInt();
+                for (int c = 0; c < categoryCount; c++) {
+                    Paper.Plist.Category category = plist.new Category(book, readString(in));
+                    book.addCategory(category);
+                    readPages(plist, category, in);
+                    allPages.addAll(category.getPages());
+                }
+            }
+        }
+
+        int toplinkCount = in.getInt();
+        for (int t = 0; t < toplinkCount; t++) {
+            Paper.Plist.TopLink topLink = plist.new TopLink(readString(in), readString(in));
+            int pageIndex = in.getInt();
+            if (pageIndex != NO_INDEX) topLink.setPage(allPages.get(pageIndex));
+            plist.addToplink(topLink);
+        }
+
+        int articleOrderCount = in.getInt();
+        List<String> articleOrder = new ArrayList<>(articleOrderCount);
+        for (int i = 0; i < articleOrderCount; i++) {
+            articleOrder.add(readString(in));
+        }
+        plist.setArticleOrder(articleOrder);
+
+        return plist;
+    }
+
+    private static void readPages(Paper.Plist plist, Paper.Plist.Category category, ByteBuffer in) {
+        int pageCount = in.getInt();
+        // real pages may point forward, resolve them after all pages of the category are read
+        Map<Paper.Plist.Page.Article, Integer> realPages = new HashMap<>();
+        for (int p = 0; p < pageCount; p++) {
+            Paper.Plist.Page page = plist.new Page(category, readString(in), readString(in), readString(in),
+                                                   readString(in), readString(in), in.get() != 0);
+            if (page.geometries != null) {
+                int geometryCount = in.getInt();
+                for (int g = 0; g < geometryCount; g++) {
+                    page.geometries.add(page.new Geometry(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(),
+                                                          readString(in)));
+                }
+                int articleCount = in.getInt();
+                for (int a = 0; a < articleCount; a++) {
+                    Paper.Plist.Page.Article article = page.new Article(readString(in), readString(in), readString(in),
+                                                                        readString(in), readString(in), readString(in));
+                    int realPageIndex = in.getInt();
+                    if (realPageIndex != NO_INDEX) realPages.put(article, realPageIndex);
+                    page.articles.add(article);
+                }
+            }
+            category.addPage(page);
+        }
+        for (Map.Entry<Paper.Plist.Page.Article, Integer> entry : realPages.entrySet()) {
+            entry.getKey()
+                 .setRealPage(category.getPages()
+                                      .get(entry.getValue()));
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NO_INDEX) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+}
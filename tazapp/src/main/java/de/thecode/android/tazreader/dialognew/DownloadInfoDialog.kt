@@ -13,9 +13,11 @@ import com.afollestad.materialdialogs.customview.customView
 import com.afollestad.materialdialogs.customview.getCustomView
 import de.thecode.android.tazreader.*
 import de.thecode.android.tazreader.R
+import de.thecode.android.tazreader.data.DownloadEngine
 import de.thecode.android.tazreader.data.DownloadState
 import de.thecode.android.tazreader.data.Paper
 import de.thecode.android.tazreader.data.UnmeteredDownloadOnly
+import de.thecode.android.tazreader.download.DownloadProgressBus
 import de.thecode.android.tazreader.download.TazDownloadManager
 import de.thecode.android.tazreader.utils.Connection
 import de.thecode.android.tazreader.utils.ConnectionInfo
@@ -137,10 +139,26 @@ class DownloadInfoDialogViewModel(val bookId: String) : ViewModel(), Connection.
     val downloadInfo = MutableLiveData<DownloadInfo>()
     val downloadLiveData = downloadsRepository.getLiveData(bookId)
 
+    private val progressListener = object : DownloadProgressBus.Listener {
+        override fun onProgress(key: String, progress: Int) {
+            if (key != bookId) return
+            val downloadInfoValue = downloadInfo.value!!
+            when (downloadInfoValue.state) {
+                DownloadState.EXTRACTING, DownloadState.CHECKING -> {
+                    downloadInfoValue.progress = progress
+                    downloadInfo.value = downloadInfoValue
+                }
+                else -> {
+                }
+            }
+        }
+    }
+
     init {
         downloadInfo.value = DownloadInfo()
         onNetworkConnectionChanged(Connection.getConnectionInfo())
         Connection.addListener(this)
+        downloadProgressBus.addListener(progressListener)
         downloadLiveData.observeForever {
             it?.let {
                 downloadInfo.value!!.unmeteredOnly = it.unmeteredOnly!!
@@ -148,7 +166,7 @@ class DownloadInfoDialogViewModel(val bookId: String) : ViewModel(), Connection.
                 when (it.state) {
                     DownloadState.DOWNLOADING -> poll()
                     DownloadState.EXTRACTING, DownloadState.CHECKING -> {
-                        downloadInfo.value!!.progress = it.progress
+                        downloadInfo.value!!.progress = downloadProgressBus.get(bookId) ?: it.progress
 
                     }
                     else -> {
@@ -162,6 +180,7 @@ class DownloadInfoDialogViewModel(val bookId: String) : ViewModel(), Connection.
 
     override fun onCleared() {
         super.onCleared()
+        downloadProgressBus.removeListener(progressListener)
         viewModelJob.cancel()
     }
 
@@ -171,12 +190,18 @@ class DownloadInfoDialogViewModel(val bookId: String) : ViewModel(), Connection.
                 val download = paperRepository.getDownloadForPaper(bookId)
                 when (download.state) {
                     DownloadState.DOWNLOADING, DownloadState.DOWNLOADED -> {
-                        val systemDownloadInfo = TazDownloadManager.getInstance()
-                                .getSystemDownloadManagerInfo(download.downloadManagerId)
                         val downloadInfoValue = downloadInfo.value!!
-                        downloadInfoValue.progress = if (systemDownloadInfo.totalSizeBytes != 0L) (systemDownloadInfo.bytesDownloadedSoFar * 100 / systemDownloadInfo.totalSizeBytes).toInt() else 0
-                        val reason = if (systemDownloadInfo.reason != 0) " (${systemDownloadInfo.reasonText})" else ""
-                        downloadInfoValue.dmLog = "${systemDownloadInfo.statusText}$reason"
+                        if (download.engine == DownloadEngine.HTTP) {
+                            val progress = downloadProgressBus.get(bookId) ?: download.progress
+                            downloadInfoValue.progress = progress
+                            downloadInfoValue.dmLog = "HTTP $progress%"
+                        } else {
+                            val systemDownloadInfo = TazDownloadManager.getInstance()
+                                    .getSystemDownloadManagerInfo(download.downloadManagerId)
+                            downloadInfoValue.progress = if (systemDownloadInfo.totalSizeBytes != 0L) (systemDownloadInfo.bytesDownloadedSoFar * 100 / systemDownloadInfo.totalSizeBytes).toInt() else 0
+                            val reason = if (systemDownloadInfo.reason != 0) " (${systemDownloadInfo.reasonText})" else ""
+                            downloadInfoValue.dmLog = "${systemDownloadInfo.statusText}$reason"
+                        }
                         downloadInfo.postValue(downloadInfoValue)
                         delay(200)
                         if (downloadInfo.value!!.state == DownloadState.DOWNLOADING || downloadInfo.value!!.state == DownloadState.DOWNLOADED) {
@@ -0,0 +1,159 @@
+package de.thecode.android.tazreader.download
+
+import com.github.ajalt.timberkt.d
+import com.github.ajalt.timberkt.w
+import de.thecode.android.tazreader.secure.HashHelper
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipFile
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Extracts the entries of a zip archive on a small pool of threads. Every thread opens its own [ZipFile] on the
+ * archive, so reads don't contend for one file handle, and copies through its own preallocated buffer. Entries listed
+ * in the given HashVals are checked while they are written.
+ *
+ * Progress is reported from the calling thread at most every [PROGRESS_INTERVAL_MS].
+ */
+class ArchiveExtractor(private val archive: File,
+                       private val targetDir: File,
+                       private val threads: Int = defaultThreads()) {
+
+    companion object {
+        private const val MAX_THREADS = 3
+        private const val BUFFER_SIZE = 64 * 1024
+        private const val PROGRESS_INTERVAL_MS = 300L
+        private const val TERMINATION_TIMEOUT_S = 10L
+
+        fun defaultThreads(): Int {
+            return Runtime.getRuntime()
+                    .availableProcessors()
+                    .coerceIn(1, MAX_THREADS)
+        }
+    }
+
+    interface Callback {
+        fun isCancelled(): Boolean
+        fun onProgress(progress: Int)
+    }
+
+    /**
+     * @param entries all entries of the archive in physical order
+     * @param hashVals expected hashes by entry name, or null if nothing should be checked
+     * @return the HashVals which have not been checked, or null if the extraction has been cancelled
+     */
+    @Throws(IOException::class)
+    fun extract(entries: List<ZipArchiveEntry>, hashVals: Map<String, String>?, callback: Callback): Map<String, String>? {
+        val fileEntries = entries.filter { !it.isDirectory }
+        entries.filter { it.isDirectory }
+                .forEach { File(targetDir, it.name).mkdirs() }
+        val compressedSizeOfAll = fileEntries.sumByLong { it.compressedSize }
+                .coerceAtLeast(1L)
+
+        val uncheckedHashVals = hashVals?.let { ConcurrentHashMap(it) }
+        val nextEntry = AtomicInteger(0)
+        val compressedCount = AtomicLong(0)
+        val abort = AtomicBoolean(false)
+
+        val poolSize = threads.coerceAtMost(fileEntries.size)
+                .coerceAtLeast(1)
+        val executor = Executors.newFixedThreadPool(poolSize)
+        val completionService = ExecutorCompletionService<Unit>(executor)
+        val futures = mutableListOf<Future<Unit>>()
+        try {
+            for (i in 1..poolSize) {
+                futures.add(completionService.submit {
+                    extractEntries(fileEntries, nextEntry, uncheckedHashVals, compressedCount, abort)
+                })
+            }
+            var lastProgress = -1
+            var remaining = poolSize
+            while (remaining > 0) {
+                // the first worker that fails is taken right away, not after the ones submitted before it
+                val done = completionService.poll(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                if (done == null) {
+                    if (callback.isCancelled()) abort.set(true)
+                    val progress = (compressedCount.get() * 100 / compressedSizeOfAll).toInt()
+                    if (progress != lastProgress) {
+                        lastProgress = progress
+                        callback.onProgress(progress)
+                    }
+                    continue
+                }
+                remaining--
+                try {
+                    done.get()
+                } catch (e: ExecutionException) {
+                    abort.set(true)
+                    for (future in futures) future.cancel(true)
+                    val cause = e.cause
+                    throw cause as? IOException ?: IOException(cause)
+                }
+            }
+            if (abort.get() || callback.isCancelled()) return null
+            callback.onProgress(100)
+            return uncheckedHashVals
+        } catch (e: InterruptedException) {
+            abort.set(true)
+            Thread.currentThread()
+                    .interrupt()
+            return null
+        } finally {
+            executor.shutdownNow()
+            try {
+                // the caller deletes the archive and cleans up on failure, no entry must be written after returning
+                if (!executor.awaitTermination(TERMINATION_TIMEOUT_S, TimeUnit.SECONDS)) {
+                    w { "extraction of ${archive.name} still running after $TERMINATION_TIMEOUT_S s" }
+                }
+            } catch (e: InterruptedException) {
+                Thread.currentThread()
+                        .interrupt()
+            }
+        }
+    }
+
+    private fun extractEntries(entries: List<ZipArchiveEntry>,
+                               nextEntry: AtomicInteger,
+                               hashVals: MutableMap<String, String>?,
+                               compressedCount: AtomicLong,
+                               abort: AtomicBoolean) {
+        val buffer = ByteArray(BUFFER_SIZE)
+        val digest = MessageDigest.getInstance(HashHelper.SHA_1)
+        ZipFile(archive).use { zipFile ->
+            while (!abort.get()) {
+                val index = nextEntry.getAndIncrement()
+                if (index >= entries.size) return
+                val name = entries[index].name
+                val entry = zipFile.getEntry(name) ?: throw IOException("Eintrag $name nicht gefunden")
+                val entryDestination = File(targetDir, name)
+                entryDestination.parentFile.mkdirs()
+                d { "extracting $name…" }
+                val hash = zipFile.getInputStream(entry)
+                        .use { inputStream ->
+                            FileOutputStream(entryDestination).use { outputStream ->
+                                HashHelper.copyWithHash(inputStream, outputStream, digest, buffer)
+                            }
+                        }
+                val expectedHash = hashVals?.remove(name)
+                if (expectedHash != null && expectedHash != hash) {
+                    throw IOException("Falscher Hash-Wert für Datei " + entryDestination.name)
+                }
+                compressedCount.addAndGet(entry.compressedSize)
+            }
+        }
+    }
+
+    private inline fun <T> Iterable<T>.sumByLong(selector: (T) -> Long): Long {
+        var sum = 0L
+        for (element in this) {
+            sum += selector(element)
+        }
+        return sum
+    }
+}
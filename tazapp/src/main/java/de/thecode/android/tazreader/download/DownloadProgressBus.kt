@@ -0,0 +1,54 @@
+package de.thecode.android.tazreader.download
+
+import android.os.Handler
+import android.os.Looper
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * The current progress of running downloads, extractions and checks, keyed by [de.thecode.android.tazreader.data.Download.key].
+ * Progress changes many times per second and is only kept in memory, writing it to the DOWNLOADS table would re-run
+ * every query joined with it. Only state changes are saved to the database.
+ *
+ * Listeners are called on the main thread, several changes of one key in a row are delivered once with the latest value.
+ */
+class DownloadProgressBus {
+
+    interface Listener {
+        fun onProgress(key: String, progress: Int)
+    }
+
+    private val progress = ConcurrentHashMap<String, Int>()
+    private val pending: MutableSet<String> = Collections.newSetFromMap(ConcurrentHashMap<String, Boolean>())
+    private val listeners = CopyOnWriteArrayList<Listener>()
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    /**
+     * @return the progress of the download or null if nothing was posted since the start of the app
+     */
+    fun get(key: String): Int? = progress[key]
+
+    fun post(key: String, value: Int) {
+        if (progress.put(key, value) == value) return
+        if (pending.add(key)) {
+            mainHandler.post {
+                pending.remove(key)
+                val latest = progress[key] ?: return@post
+                for (listener in listeners) listener.onProgress(key, latest)
+            }
+        }
+    }
+
+    fun remove(key: String) {
+        progress.remove(key)
+    }
+
+    fun addListener(listener: Listener) {
+        listeners.addIfAbsent(listener)
+    }
+
+    fun removeListener(listener: Listener) {
+        listeners.remove(listener)
+    }
+}
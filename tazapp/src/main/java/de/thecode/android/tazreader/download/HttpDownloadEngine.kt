@@ -0,0 +1,256 @@
+package de.thecode.android.tazreader.download
+
+import com.github.ajalt.timberkt.d
+import com.github.ajalt.timberkt.w
+import de.thecode.android.tazreader.data.Download
+import de.thecode.android.tazreader.utils.deleteQuietly
+import okhttp3.Call
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * In app download with HTTP Range resume. Large files can be fetched in several parallel segments if the server
+ * supports ranges. The state needed to resume (total size, ETag, progress of each segment) is kept in the [Download]
+ * and handed to [Callback.onProgress] for persisting, at most every [PERSIST_INTERVAL_MS].
+ */
+class HttpDownloadEngine(private val client: OkHttpClient) {
+
+    companion object {
+        private const val BUFFER_SIZE = 64 * 1024
+        private const val SEGMENT_MIN_SIZE = 4L * 1024 * 1024
+        private const val MAX_SEGMENTS = 3
+        private const val PERSIST_INTERVAL_MS = 1000L
+        private const val TERMINATION_TIMEOUT_S = 10L
+    }
+
+    interface Callback {
+        fun isCancelled(): Boolean
+        fun onProgress(download: Download)
+    }
+
+    class HttpException(val code: Int, message: String) : IOException("HTTP $code $message")
+
+    private class ResumeNotPossibleException : IOException("Server does not support resume")
+
+    /**
+     * A byte range of the download, [end] is inclusive, -1 if the size is unknown.
+     */
+    class Segment(val start: Long, val end: Long, downloaded: Long) {
+        val downloaded = AtomicLong(downloaded)
+
+        val isComplete: Boolean
+            get() = end >= 0 && start + downloaded.get() > end
+
+        override fun toString(): String {
+            return "$start:$end:${downloaded.get()}"
+        }
+
+        companion object {
+            fun parse(value: String?): List<Segment> {
+                if (value.isNullOrBlank()) return emptyList()
+                return value.split(",")
+                        .map {
+                            val parts = it.split(":")
+                            Segment(parts[0].toLong(), parts[1].toLong(), parts[2].toLong())
+                        }
+            }
+
+            fun serialize(segments: List<Segment>): String {
+                return segments.joinToString(",")
+            }
+        }
+    }
+
+    /**
+     * @param parallel split large downloads into several segments fetched at the same time
+     * @return true if the download is complete, false if it was cancelled
+     */
+    @Throws(IOException::class)
+    fun download(download: Download, parallel: Boolean, callback: Callback): Boolean {
+        return try {
+            downloadInternal(download, parallel, callback)
+        } catch (e: ResumeNotPossibleException) {
+            w(e) { "restarting download ${download.key} without resume" }
+            reset(download)
+            downloadInternal(download, false, callback)
+        }
+    }
+
+    private fun downloadInternal(download: Download, parallel: Boolean, callback: Callback): Boolean {
+        val url = download.url ?: throw IOException("Keine URL für Download ${download.key}")
+        var segments = try {
+            Segment.parse(download.segments)
+        } catch (e: RuntimeException) {
+            emptyList<Segment>()
+        }
+        if (segments.isEmpty() || !download.file.exists()) {
+            segments = prepare(download, url, parallel)
+            callback.onProgress(download)
+        }
+        d { "downloading ${download.key} in segments $segments" }
+
+        val abort = AtomicBoolean(false)
+        val calls = CopyOnWriteArrayList<Call>()
+        val openSegments = segments.filter { !it.isComplete }
+        if (openSegments.isNotEmpty()) {
+            val executor = Executors.newFixedThreadPool(openSegments.size)
+            try {
+                val futures = openSegments.map { segment ->
+                    executor.submit(Callable { fetch(download, url, segment, segments.size > 1, abort, calls) })
+                }
+                for (future in futures) {
+                    while (true) {
+                        try {
+                            future.get(PERSIST_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                            break
+                        } catch (e: TimeoutException) {
+                            if (callback.isCancelled()) abort.set(true)
+                            updateProgress(download, segments)
+                            callback.onProgress(download)
+                        } catch (e: ExecutionException) {
+                            abort.set(true)
+                            val cause = e.cause
+                            throw cause as? IOException ?: IOException(cause)
+                        }
+                    }
+                }
+            } catch (e: InterruptedException) {
+                abort.set(true)
+                Thread.currentThread()
+                        .interrupt()
+            } finally {
+                // blocking reads do not react on interrupts, cancelling the calls closes their sockets
+                for (call in calls) call.cancel()
+                executor.shutdownNow()
+                try {
+                    // the caller may delete the file next, no part must be written after returning
+                    if (!executor.awaitTermination(TERMINATION_TIMEOUT_S, TimeUnit.SECONDS)) {
+                        w { "segments of ${download.key} still running after $TERMINATION_TIMEOUT_S s" }
+                    }
+                } catch (e: InterruptedException) {
+                    abort.set(true)
+                    Thread.currentThread()
+                            .interrupt()
+                }
+                updateProgress(download, segments)
+                callback.onProgress(download)
+            }
+        }
+        if (abort.get() || callback.isCancelled()) return false
+
+        // the file is preallocated, a range answered shorter than requested leaves a gap that only the segments show
+        val incomplete = segments.filter { it.end >= 0 && !it.isComplete }
+        if (incomplete.isNotEmpty()) {
+            throw IOException("Download ${download.key} unvollständig, offene Segmente: $incomplete")
+        }
+        if (download.totalBytes > 0 && download.file.length() != download.totalBytes) {
+            reset(download)
+            throw IOException("Wrong size of download. expected: ${download.totalBytes}, file: ${download.file.length()}")
+        }
+        return true
+    }
+
+    private fun prepare(download: Download, url: String, parallel: Boolean): List<Segment> {
+        download.file.deleteQuietly()
+        download.file.parentFile?.mkdirs()
+        var length = -1L
+        var rangesSupported = false
+        download.etag = null
+        try {
+            client.newCall(Request.Builder().url(url).head().build())
+                    .execute()
+                    .use { response ->
+                        if (response.isSuccessful) {
+                            length = response.header("Content-Length")?.toLongOrNull() ?: -1L
+                            rangesSupported = response.header("Accept-Ranges") == "bytes"
+                            download.etag = response.header("ETag")
+                        } else if (response.code() in 400..499 && response.code() != 405) {
+                            throw HttpException(response.code(), response.message())
+                        }
+                    }
+        } catch (e: HttpException) {
+            throw e
+        } catch (e: IOException) {
+            w(e) { "HEAD request failed for $url" }
+        }
+
+        val segments = mutableListOf<Segment>()
+        if (length > 0 && rangesSupported) {
+            val count = if (parallel) (length / SEGMENT_MIN_SIZE).toInt().coerceIn(1, MAX_SEGMENTS) else 1
+            val segmentSize = length / count
+            for (i in 0 until count) {
+                val start = i * segmentSize
+                val end = if (i == count - 1) length - 1 else start + segmentSize - 1
+                segments.add(Segment(start, end, 0))
+            }
+            RandomAccessFile(download.file, "rw").use { it.setLength(length) }
+        } else {
+            segments.add(Segment(0, -1, 0))
+            download.file.createNewFile()
+        }
+        download.totalBytes = if (length > 0) length else 0L
+        download.segments = Segment.serialize(segments)
+        download.progress = 0
+        return segments
+    }
+
+    private fun fetch(download: Download, url: String, segment: Segment, ranged: Boolean, abort: AtomicBoolean,
+                      calls: MutableList<Call>) {
+        val from = segment.start + segment.downloaded.get()
+        val requestBuilder = Request.Builder()
+                .url(url)
+        if (from > 0 || ranged) {
+            val end = if (segment.end >= 0) segment.end.toString() else ""
+            requestBuilder.header("Range", "bytes=$from-$end")
+            download.etag?.let { requestBuilder.header("If-Range", it) }
+        }
+        val call = client.newCall(requestBuilder.build())
+        calls.add(call)
+        if (abort.get()) call.cancel()
+        call.execute()
+                .use { response ->
+                    when (response.code()) {
+                        206 -> {
+                        }
+                        200 -> if (from > 0 || ranged) throw ResumeNotPossibleException()
+                        else -> throw HttpException(response.code(), response.message())
+                    }
+                    val body = response.body() ?: throw IOException("Empty response for $url")
+                    RandomAccessFile(download.file, "rw").use { file ->
+                        file.seek(from)
+                        val buffer = ByteArray(BUFFER_SIZE)
+                        body.byteStream()
+                                .use { inputStream ->
+                                    while (!abort.get()) {
+                                        val read = inputStream.read(buffer)
+                                        if (read == -1) break
+                                        file.write(buffer, 0, read)
+                                        segment.downloaded.addAndGet(read.toLong())
+                                    }
+                                }
+                    }
+                }
+    }
+
+    private fun updateProgress(download: Download, segments: List<Segment>) {
+        download.segments = Segment.serialize(segments)
+        if (download.totalBytes > 0) {
+            val downloaded = segments.fold(0L) { sum, segment -> sum + segment.downloaded.get() }
+            download.progress = (downloaded * 100 / download.totalBytes).toInt()
+                    .coerceAtMost(100)
+        }
+    }
+
+    private fun reset(download: Download) {
+        download.segments = null
+        download.totalBytes = 0L
+        download.etag = null
+        download.progress = 0
+        download.file.deleteQuietly()
+    }
+}
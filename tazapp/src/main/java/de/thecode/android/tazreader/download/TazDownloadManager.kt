@@ -6,6 +6,7 @@ import android.database.Cursor
 import android.net.Uri
 import android.util.Base64
 import androidx.annotation.WorkerThread
+import androidx.work.WorkManager
 import com.github.ajalt.timberkt.d
 import de.thecode.android.tazreader.*
 import de.thecode.android.tazreader.data.*
@@ -15,6 +16,7 @@ import de.thecode.android.tazreader.utils.UserAgentHelper
 import de.thecode.android.tazreader.utils.UserDeviceInfo
 import de.thecode.android.tazreader.utils.deleteQuietly
 import de.thecode.android.tazreader.utils.getStringIdByName
+import de.thecode.android.tazreader.worker.HttpDownloadWorker
 import java.io.File
 import kotlin.math.min
 
@@ -37,7 +39,7 @@ class TazDownloadManager private constructor() {
     private val userAgentHelper = UserAgentHelper.getInstance(app)
 
     @WorkerThread
-    fun downloadPaper(bookId: String, unmeteredOnly: Boolean = false): Result {
+    fun downloadPaper(bookId: String, unmeteredOnly: Boolean = false, engine: DownloadEngine = DownloadEngine.SYSTEM): Result {
         val paper = paperRepository.getPaperWithBookId(bookId)
         d { "requesting paper download for paper $paper" }
         val download = paperRepository.getDownloadForPaper(bookId)
@@ -49,26 +51,29 @@ class TazDownloadManager private constructor() {
             return result
         }
         val requestUri = requestHelper.addToUri(Uri.parse(paper.link))
-        val request = createRequest(downloadUri = requestUri, destinationFile = download.file, title = download.title)
-        if (unmeteredOnly) {
-            request.setAllowedOverMetered(false)
-            download.unmeteredOnly = UnmeteredDownloadOnly.YES
-        }
-        if (!paper.publication.isNullOrBlank()) {
-            val credentials = accountHelper.getUser(AccountHelper.ACCOUNT_DEMO_USER) + ":" + accountHelper.getPassword(
-                    AccountHelper.ACCOUNT_DEMO_PASS)
-            request.addRequestHeader("Authorization",
-                    "Basic " + Base64.encodeToString(credentials.toByteArray(), Base64.NO_WRAP))
-        }
+        if (unmeteredOnly) download.unmeteredOnly = UnmeteredDownloadOnly.YES
         try {
-            download.downloadManagerId = systemDownloadManager.enqueue(request)
-            download.state = DownloadState.DOWNLOADING
-            downloadsRepository.save(download)
+            if (engine == DownloadEngine.HTTP) {
+                enqueueHttpDownload(download, requestUri)
+            } else {
+                val request = createRequest(downloadUri = requestUri, destinationFile = download.file, title = download.title)
+                if (unmeteredOnly) request.setAllowedOverMetered(false)
+                if (!paper.publication.isNullOrBlank()) {
+                    val credentials = accountHelper.getUser(AccountHelper.ACCOUNT_DEMO_USER) + ":" + accountHelper.getPassword(
+                            AccountHelper.ACCOUNT_DEMO_PASS)
+                    request.addRequestHeader("Authorization",
+                            "Basic " + Base64.encodeToString(credentials.toByteArray(), Base64.NO_WRAP))
+                }
+                download.engine = DownloadEngine.SYSTEM
+                download.downloadManagerId = systemDownloadManager.enqueue(request)
+                download.state = DownloadState.DOWNLOADING
+                downloadsRepository.save(download)
+            }
             val resourceKeyForPaper = paper.resource
             val resourcePartnerStore = storeRepository.getStore(bookId, Paper.STORE_KEY_RESOURCE_PARTNER)
             resourcePartnerStore.value = resourceKeyForPaper
             storeRepository.saveStore(resourcePartnerStore)
-            downloadResource(resourceKeyForPaper, unmeteredOnly)
+            downloadResource(resourceKeyForPaper, unmeteredOnly, engine = engine)
         } catch (e: IllegalArgumentException) {
             result.state = Result.STATE.NOMANAGER
             return result
@@ -78,7 +83,8 @@ class TazDownloadManager private constructor() {
     }
 
     @WorkerThread
-    fun downloadResource(key: String, unmeteredOnly: Boolean = false, override: Boolean = false): Result {
+    fun downloadResource(key: String, unmeteredOnly: Boolean = false, override: Boolean = false,
+                         engine: DownloadEngine = DownloadEngine.SYSTEM): Result {
         val resource = resourceRepository.getWithKey(key)
         d { "requesting resource download for resource $resource" }
         val download = resourceRepository.getDownload(key)
@@ -86,7 +92,7 @@ class TazDownloadManager private constructor() {
         val result = Result(download = download)
         if (download.state != DownloadState.NONE) {
             if (download.state == DownloadState.DOWNLOADING || override) {
-                systemDownloadManager.remove(download.downloadManagerId)
+                stopDownload(download)
                 download.downloadManagerId = 0
                 download.state = DownloadState.NONE
                 downloadsRepository.save(download)
@@ -102,12 +108,16 @@ class TazDownloadManager private constructor() {
         }
 
         val requestUri = requestHelper.addToUri(Uri.parse(resource.url))
-        val request = createRequest(downloadUri = requestUri, destinationFile = download.file, title = download.title)
-        if (unmeteredOnly) {
-            request.setAllowedOverMetered(false)
-            download.unmeteredOnly = UnmeteredDownloadOnly.YES
+        if (unmeteredOnly) download.unmeteredOnly = UnmeteredDownloadOnly.YES
+        if (engine == DownloadEngine.HTTP) {
+            enqueueHttpDownload(download, requestUri)
+            result.state = Result.STATE.SUCCESS
+            return result
         }
+        val request = createRequest(downloadUri = requestUri, destinationFile = download.file, title = download.title)
+        if (unmeteredOnly) request.setAllowedOverMetered(false)
         try {
+            download.engine = DownloadEngine.SYSTEM
             download.downloadManagerId = systemDownloadManager.enqueue(request)
             download.state = DownloadState.DOWNLOADING
             downloadsRepository.save(download)
@@ -177,6 +187,42 @@ class TazDownloadManager private constructor() {
         }
     }
 
+    fun cancelDownload(download: Download) {
+        if (download.engine == DownloadEngine.SYSTEM) {
+            cancelDownload(download.downloadManagerId)
+            return
+        }
+        stopDownload(download)
+        if (download.state == DownloadState.DOWNLOADING) {
+            download.file.deleteQuietly()
+            downloadsRepository.delete(download)
+        }
+    }
+
+    private fun stopDownload(download: Download) {
+        when (download.engine) {
+            DownloadEngine.HTTP -> WorkManager.getInstance()
+                    .cancelAllWorkByTag(HttpDownloadWorker.getTag(download.key))
+            else -> systemDownloadManager.remove(download.downloadManagerId)
+        }
+    }
+
+    /**
+     * Downloads in app with [HttpDownloadEngine] instead of the system DownloadManager. There is no system
+     * notification for these downloads, progress is only shown in the library.
+     */
+    private fun enqueueHttpDownload(download: Download, requestUri: Uri) {
+        download.engine = DownloadEngine.HTTP
+        download.url = requestUri.toString()
+        download.downloadManagerId = 0
+        download.totalBytes = 0L
+        download.etag = null
+        download.segments = null
+        download.progress = 0
+        download.state = DownloadState.DOWNLOADING
+        HttpDownloadWorker.enqueue(download)
+    }
+
 
     private fun createRequest(
             downloadUri: Uri,
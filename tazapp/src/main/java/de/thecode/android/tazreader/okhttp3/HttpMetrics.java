@@ -0,0 +1,171 @@
+package de.thecode.android.tazreader.okhttp3;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/**
+ * Collects connection and transfer metrics of all calls made with clients from {@link OkHttp3Helper}. Transferred bytes
+ * count request and response bodies only, as seen by the application (after decompression). Every call gets
+ * its own listener for the timings, the totals are shared.
+ */
+public class HttpMetrics implements EventListener.Factory {
+
+    private final AtomicLong calls               = new AtomicLong();
+    private final AtomicLong failedCalls         = new AtomicLong();
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+    private final AtomicLong connectionsOpened   = new AtomicLong();
+    private final AtomicLong dnsCount            = new AtomicLong();
+    private final AtomicLong dnsNanos            = new AtomicLong();
+    private final AtomicLong connectCount        = new AtomicLong();
+    private final AtomicLong connectNanos        = new AtomicLong();
+    private final AtomicLong tlsCount            = new AtomicLong();
+    private final AtomicLong tlsNanos            = new AtomicLong();
+    private final AtomicLong bytesSent           = new AtomicLong();
+    private final AtomicLong bytesReceived       = new AtomicLong();
+
+    HttpMetrics() {
+    }
+
+    @Override
+    public EventListener create(@NonNull Call call) {
+        return new CallListener();
+    }
+
+    public Snapshot getSnapshot() {
+        return new Snapshot(this);
+    }
+
+    public static class Snapshot {
+        public final long calls;
+        public final long failedCalls;
+        public final long connectionsAcquired;
+        public final long connectionsOpened;
+        public final long bytesSent;
+        public final long bytesReceived;
+        public final long avgDnsMillis;
+        public final long avgConnectMillis;
+        public final long avgTlsMillis;
+
+        private Snapshot(HttpMetrics metrics) {
+            calls = metrics.calls.get();
+            failedCalls = metrics.failedCalls.get();
+            connectionsAcquired = metrics.connectionsAcquired.get();
+            connectionsOpened = metrics.connectionsOpened.get();
+            bytesSent = metrics.bytesSent.get();
+            bytesReceived = metrics.bytesReceived.get();
+            avgDnsMillis = average(metrics.dnsNanos, metrics.dnsCount);
+            avgConnectMillis = average(metrics.connectNanos, metrics.connectCount);
+            avgTlsMillis = average(metrics.tlsNanos, metrics.tlsCount);
+        }
+
+        /**
+         * @return share of acquired connections which came from the pool, 0 to 1
+         */
+        public float getConnectionReuseRate() {
+            if (connectionsAcquired == 0) return 0F;
+            return Math.max(0L, connectionsAcquired - connectionsOpened) / (float) connectionsAcquired;
+        }
+
+        private static long average(AtomicLong nanos, AtomicLong count) {
+            long c = count.get();
+            return c == 0 ? 0 : nanos.get() / c / 1000000L;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.GERMANY,
+                                 "HttpMetrics{calls=%d, failed=%d, connections=%d, opened=%d, reuse=%.0f%%, dns=%dms, connect=%dms, tls=%dms, sent=%d, received=%d}",
+                                 calls,
+                                 failedCalls,
+                                 connectionsAcquired,
+                                 connectionsOpened,
+                                 getConnectionReuseRate() * 100,
+                                 avgDnsMillis,
+                                 avgConnectMillis,
+                                 avgTlsMillis,
+                                 bytesSent,
+                                 bytesReceived);
+        }
+    }
+
+    private class CallListener extends EventListener {
+
+        private long dnsStart;
+        private long connectStart;
+        private long tlsStart;
+
+        @Override
+        public void callStart(@NonNull Call call) {
+            calls.incrementAndGet();
+        }
+
+        @Override
+        public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+            dnsCount.incrementAndGet();
+            dnsNanos.addAndGet(System.nanoTime() - dnsStart);
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+            connectionsOpened.incrementAndGet();
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(@NonNull Call call) {
+            tlsStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(@NonNull Call call, @NonNull Handshake handshake) {
+            tlsCount.incrementAndGet();
+            tlsNanos.addAndGet(System.nanoTime() - tlsStart);
+        }
+
+        @Override
+        public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy,
+                               @Nullable Protocol protocol) {
+            connectCount.incrementAndGet();
+            connectNanos.addAndGet(System.nanoTime() - connectStart);
+        }
+
+        @Override
+        public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+            connectionsAcquired.incrementAndGet();
+        }
+
+        @Override
+        public void requestBodyEnd(@NonNull Call call, long byteCount) {
+            bytesSent.addAndGet(byteCount);
+        }
+
+        @Override
+        public void responseBodyEnd(@NonNull Call call, long byteCount) {
+            bytesReceived.addAndGet(byteCount);
+        }
+
+        @Override
+        public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+            failedCalls.incrementAndGet();
+        }
+    }
+}
@@ -3,18 +3,28 @@ package de.thecode.android.tazreader.okhttp3;
 import android.content.Context;
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+
 import de.thecode.android.tazreader.BuildConfig;
 import de.thecode.android.tazreader.data.TazSettings;
 import de.thecode.android.tazreader.utils.BuildTypeProvider;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
 
+import okhttp3.Cache;
 import okhttp3.Call;
 import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
+import okhttp3.Response;
 import okhttp3.logging.HttpLoggingInterceptor;
 import timber.log.Timber;
 
@@ -39,43 +49,131 @@ public class OkHttp3Helper {
     }
 
 
+    private static final String HTTP_CACHE_DIR        = "http";
+    private static final long   HTTP_CACHE_SIZE_BYTES = 10 * 1024 * 1024;
+
     private final Map<String, String> standardHeaders;
 
+    private final Context              context;
     private final UserAgentInterceptor userAgentInterceptor;
     private final TazSettings          settings;
+    private final HttpMetrics          metrics;
+
+    private volatile OkHttpClient coreClient;
+
+    private OkHttpClient anonymousClient;
+    private OkHttpClient authClient;
+    // digest of the credentials authClient was built for, the password itself is only kept by its interceptor
+    private byte[]       authDigest;
 
     private OkHttp3Helper(Context context) {
+        this.context = context;
         standardHeaders =  new HashMap<>();
         userAgentInterceptor = new UserAgentInterceptor(context);
         settings = TazSettings.getInstance(context);
+        metrics = new HttpMetrics();
     }
 
+    /**
+     * The client all others are derived from with {@link OkHttpClient#newBuilder()}, so they share connection pool,
+     * dispatcher and disk cache. The cache only applies to GET responses the server marks as cacheable.
+     */
+    private OkHttpClient getCoreClient() {
+        if (coreClient == null) {
+            synchronized (this) {
+                if (coreClient == null) {
+                    OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder();
+                    httpClientBuilder.addNetworkInterceptor(new HeaderInterceptor(standardHeaders));
+                    httpClientBuilder.addNetworkInterceptor(userAgentInterceptor);
+                    BuildTypeProvider.addStethoInterceptor(httpClientBuilder);
+                    httpClientBuilder.cache(new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE_BYTES));
+                    httpClientBuilder.eventListenerFactory(metrics);
+                    coreClient = httpClientBuilder.build();
+                }
+            }
+        }
+        return coreClient;
+    }
 
     public OkHttpClient.Builder getOkHttpClientBuilder(String username, String password) {
-        OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder();
-        httpClientBuilder.addNetworkInterceptor(new HeaderInterceptor(standardHeaders));
-        httpClientBuilder.addNetworkInterceptor(userAgentInterceptor);
+        return getOkHttpClientBuilder(username, password, HttpLoggingInterceptor.Level.BODY);
+    }
+
+    /**
+     * Builder for large file downloads, logs headers only. Logging the body would buffer the whole file in memory.
+     * Downloads bypass the disk cache.
+     */
+    public OkHttpClient.Builder getDownloadClientBuilder(String username, String password) {
+        return getOkHttpClientBuilder(username, password, HttpLoggingInterceptor.Level.HEADERS).cache(null);
+    }
+
+    private OkHttpClient.Builder getOkHttpClientBuilder(String username, String password,
+                                                        HttpLoggingInterceptor.Level logLevel) {
+        OkHttpClient.Builder httpClientBuilder = getCoreClient().newBuilder();
         if (!TextUtils.isEmpty(username) && !TextUtils.isEmpty(password)) {
             httpClientBuilder.addInterceptor(new BasicAuthenticationInterceptor(username, password));
         }
-        BuildTypeProvider.addStethoInterceptor(httpClientBuilder);
-        addLoggingInterceptor(httpClientBuilder);
+        addLoggingInterceptor(httpClientBuilder, logLevel);
         return httpClientBuilder;
     }
 
-    private void addLoggingInterceptor(OkHttpClient.Builder builder) {
-        if (BuildConfig.DEBUG || settings.isWriteLogfile()) {
-            HttpLoggingInterceptor logging = new HttpLoggingInterceptor(new HttpLoggingInterceptor.Logger() {
-                @Override
-                public void log(String message) {
-                    Timber.d("%s", message);
-                }
-            });
-            logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-            builder.addNetworkInterceptor(logging);
+    /**
+     * @return a client for these credentials. The client without credentials and the one for the current credentials
+     * are reused, a call with other credentials replaces the latter.
+     */
+    public synchronized OkHttpClient getOkHttpClient(String username, String password) {
+        if (TextUtils.isEmpty(username) || TextUtils.isEmpty(password)) {
+            if (anonymousClient == null) anonymousClient = getOkHttpClientBuilder(null, null).build();
+            return anonymousClient;
+        }
+        byte[] digest = digest(username, password);
+        if (authClient == null || !MessageDigest.isEqual(authDigest, digest)) {
+            authClient = getOkHttpClientBuilder(username, password).build();
+            authDigest = digest;
+        }
+        return authClient;
+    }
+
+    private static byte[] digest(String username, String password) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(username.getBytes(Charset.forName("UTF-8")));
+            messageDigest.update((byte) 0);
+            messageDigest.update(password.getBytes(Charset.forName("UTF-8")));
+            return messageDigest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // every Android version provides SHA-256
+            throw new IllegalStateException(e);
         }
     }
 
+    public HttpMetrics.Snapshot getMetrics() {
+        return metrics.getSnapshot();
+    }
+
+    /**
+     * The interceptor is always added and checks the setting on every request, clients cached by {@link #getOkHttpClient(String, String)}
+     * follow later changes of the logfile setting.
+     */
+    private void addLoggingInterceptor(OkHttpClient.Builder builder, HttpLoggingInterceptor.Level logLevel) {
+        final HttpLoggingInterceptor logging = new HttpLoggingInterceptor(new HttpLoggingInterceptor.Logger() {
+            @Override
+            public void log(String message) {
+                Timber.d("%s", message);
+            }
+        });
+        logging.setLevel(logLevel);
+        builder.addNetworkInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(@NonNull Chain chain) throws IOException {
+                if (BuildConfig.DEBUG || settings.isWriteLogfile()) {
+                    return logging.intercept(chain);
+                }
+                return chain.proceed(chain.request());
+            }
+        });
+    }
+
     public OkHttpClient.Builder getOkHttpClientBuilder() {
         return getOkHttpClientBuilder(null, null);
     }
@@ -83,7 +181,7 @@ public class OkHttp3Helper {
     public Call getCall(HttpUrl url, String username, String password, RequestBody requestBody) {
 
 
-        OkHttpClient client = getOkHttpClientBuilder(username, password).build();
+        OkHttpClient client = getOkHttpClient(username, password);
         Request.Builder requestBuilder = new Request.Builder().url(url);
         if (requestBody != null) {
             requestBuilder.post(requestBody);
@@ -92,6 +190,10 @@ public class OkHttp3Helper {
         return client.newCall(request);
     }
 
+    public Call getCall(Request request) {
+        return getOkHttpClient(null, null).newCall(request);
+    }
+
     public Call getCall(HttpUrl url, RequestBody requestBody) {
         return getCall(url, null, null, requestBody);
     }
@@ -0,0 +1,154 @@
+package de.thecode.android.tazreader.picasso;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import de.thecode.android.tazreader.data.DownloadType;
+import de.thecode.android.tazreader.data.DownloadsRepository;
+import de.thecode.android.tazreader.data.Paper;
+
+import java.io.IOException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import timber.log.Timber;
+
+/**
+ * Loads cover images into the disk cache of the Picasso client ahead of time. At most {@link #MAX_PARALLEL} covers are
+ * loaded at once, the most recent issues first. Covers already in the cache are skipped and while a paper download is
+ * running prefetching waits, so it does not compete for bandwidth.
+ */
+public class CoverPrefetcher {
+
+    private static final int  MAX_PARALLEL       = 2;
+    private static final int  BUFFER_SIZE        = 8 * 1024;
+    private static final long DEFER_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private static volatile CoverPrefetcher mInstance;
+
+    public static CoverPrefetcher getInstance(Context context) {
+        if (mInstance == null) {
+            synchronized (CoverPrefetcher.class) {
+                if (mInstance == null) {
+                    mInstance = new CoverPrefetcher(context.getApplicationContext());
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    private final Context            context;
+    private final ThreadPoolExecutor executor;
+    private final Handler            handler  = new Handler(Looper.getMainLooper());
+    private final AtomicLong         sequence = new AtomicLong();
+
+    private final AtomicInteger hits     = new AtomicInteger();
+    private final AtomicInteger misses   = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private CoverPrefetcher(Context context) {
+        this.context = context;
+        executor = new ThreadPoolExecutor(MAX_PARALLEL,
+                                          MAX_PARALLEL,
+                                          30,
+                                          TimeUnit.SECONDS,
+                                          new PriorityBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void prefetch(Paper paper) {
+        if (TextUtils.isEmpty(paper.getImage())) return;
+        executor.execute(new PrefetchTask(paper.getImage(), paper.getDateInMillis(), sequence.getAndIncrement()));
+    }
+
+    public String getStatistics() {
+        return "CoverPrefetcher{hits=" + hits.get() + ", misses=" + misses.get() + ", failures=" + failures.get()
+                + ", queued=" + executor.getQueue()
+                                        .size() + "}";
+    }
+
+    private void load(String url) {
+        OkHttpClient client = PicassoHelper.getClient(context);
+        try {
+            // a cache only request answers 504 if the cover is not cached
+            Response cached = client.newCall(new Request.Builder().url(url)
+                                                                  .cacheControl(CacheControl.FORCE_CACHE)
+                                                                  .build())
+                                    .execute();
+            boolean isCached = cached.isSuccessful();
+            cached.close();
+            if (isCached) {
+                hits.incrementAndGet();
+                return;
+            }
+            Response response = client.newCall(new Request.Builder().url(url)
+                                                                    .build())
+                                      .execute();
+            try {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) throw new IOException("HTTP " + response.code() + " for " + url);
+                // reading the body completely writes it to the cache
+                BufferedSource source = body.source();
+                Buffer sink = new Buffer();
+                while (source.read(sink, BUFFER_SIZE) != -1) {
+                    sink.clear();
+                }
+            } finally {
+                response.close();
+            }
+            misses.incrementAndGet();
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            Timber.w(e, "prefetching cover %s failed", url);
+        }
+    }
+
+    private class PrefetchTask implements Runnable, Comparable<PrefetchTask> {
+
+        private final String url;
+        private final long   date;
+        private final long   order;
+
+        PrefetchTask(String url, long date, long order) {
+            this.url = url;
+            this.date = date;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            if (DownloadsRepository.Companion.getInstance()
+                                             .isDownloading(DownloadType.PAPER)) {
+                Timber.d("paper download running, deferring cover %s", url);
+                // the worker thread is released while waiting, the task is queued again later
+                handler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        executor.execute(PrefetchTask.this);
+                    }
+                }, DEFER_DELAY_MILLIS);
+                return;
+            }
+            load(url);
+        }
+
+        @Override
+        public int compareTo(PrefetchTask other) {
+            // most recent issue first, otherwise in order of arrival
+            if (date != other.date) return date > other.date ? -1 : 1;
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.io.File;
 
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
+import timber.log.Timber;
 
 /**
  * Created by mate on 17.10.2016.
@@ -22,19 +23,51 @@ public class PicassoHelper {
     private static final int IMAGES_DISK_USAGE_BYTES = 50 * 1024 * 1024;
     private static final String IMAGES_CACHE_DIR = "picasso";
 
+    private static volatile OkHttpClient picassoClient;
+    private static volatile Picasso      picasso;
+
+    /**
+     * @return the client Picasso loads with, its disk cache holds the covers
+     */
+    public static OkHttpClient getClient(Context context) {
+        if (picassoClient == null) initPicasso(context);
+        return picassoClient;
+    }
+
+    /**
+     * Use this instead of {@link Picasso#with(Context)}, the singleton may have been created before with a different
+     * client and cache.
+     *
+     * @return the Picasso instance loading with {@link #getClient(Context)}
+     */
+    public static Picasso with(Context context) {
+        if (picasso == null) initPicasso(context);
+        return picasso;
+    }
+
     public static void initPicasso(Context context) {
-        OkHttpClient.Builder picassoClientBuilder = OkHttp3Helper.getInstance(context).getOkHttpClientBuilder();
-        picassoClientBuilder.cache(new Cache(new File(context.getExternalCacheDir(), IMAGES_CACHE_DIR), IMAGES_DISK_USAGE_BYTES));
-        OkHttpClient picassoClient = picassoClientBuilder.build();
-
-        Picasso.Builder picassoBuilder = new Picasso.Builder(context);
-        picassoBuilder.downloader(new OkHttp3Downloader(picassoClient));
-        Picasso picasso = picassoBuilder.build();
-        picasso.setLoggingEnabled(BuildConfig.DEBUG);
-        try {
-            Picasso.setSingletonInstance(picasso);
-        } catch (IllegalStateException e) {
-            //already initialized
+        if (picassoClient != null) return;
+        synchronized (PicassoHelper.class) {
+            if (picassoClient != null) return;
+            Context appContext = context.getApplicationContext();
+            // derived from the shared client, images use the same connection pool but their own cache.
+            // Only one Cache may use the directory, so it is created here exactly once.
+            OkHttpClient client = OkHttp3Helper.getInstance(appContext)
+                                               .getDownloadClientBuilder(null, null)
+                                               .cache(new Cache(new File(appContext.getExternalCacheDir(), IMAGES_CACHE_DIR),
+                                                                IMAGES_DISK_USAGE_BYTES))
+                                               .build();
+
+            Picasso instance = new Picasso.Builder(appContext).downloader(new OkHttp3Downloader(client))
+                                                              .build();
+            instance.setLoggingEnabled(BuildConfig.DEBUG);
+            try {
+                Picasso.setSingletonInstance(instance);
+            } catch (IllegalStateException e) {
+                Timber.w(e, "Picasso singleton already created, it does not use the cover cache");
+            }
+            picasso = instance;
+            picassoClient = client;
         }
     }
 }
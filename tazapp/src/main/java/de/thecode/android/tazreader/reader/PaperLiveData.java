@@ -16,10 +16,7 @@ import de.thecode.android.tazreader.utils.StorageManager;
 
 import org.json.JSONArray;
 
-import java.io.File;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -56,7 +53,7 @@ public class PaperLiveData extends LiveData<Paper> {
                 Paper paper = paperRepository.getPaperWithBookId(bookId);
                 if (paper == null) throw new Paper.PaperNotFoundException();
                 resource = resourceRepository.getResourceForPaper(paper);
-                paper.parsePlist(new File(storageManager.getPaperDirectory(paper), Paper.CONTENT_PLIST_FILENAME));
+                paper.loadPlist(storageManager.getPaperDirectory(paper));
                 String bookmarkJsonString = storeRepository.getStore(bookId,Paper.STORE_KEY_BOOKMARKS)
                                                            .getValue();
                 if (!TextUtils.isEmpty(bookmarkJsonString)) {
@@ -75,47 +72,11 @@ public class PaperLiveData extends LiveData<Paper> {
                 Map<Integer, String> articleCollectionPositionIndex = new HashMap<>();
 
                 //Reihenfolge der Artikel festlegen
-                List<Paper.Plist.TopLink> toplinksToSortIn = new ArrayList<>(paper.getPlist()
-                                                                                  .getToplinks());
-                int position = 0;
-                for (Paper.Plist.Source source : paper.getPlist()
-                                                      .getSources()) {
-                    for (Paper.Plist.Book book : source.getBooks()) {
-                        for (Paper.Plist.Category category : book.getCategories()) {
-                            for (Paper.Plist.Page page : category.getPages()) {
-
-                                Iterator<Paper.Plist.TopLink> i = toplinksToSortIn.iterator();
-
-
-                                while (i.hasNext()) {
-                                    Paper.Plist.TopLink topLink = i.next();
-                                    if (!topLink.isLink()) {
-                                        if (topLink.getKey()
-                                                   .equals(page.getDefaultLink())) {
-                                            articleCollectionOrder.put(topLink.getKey(), position);
-                                            articleCollectionPositionIndex.put(position, topLink.getKey());
-                                            position++;
-                                            i.remove();
-                                        }
-                                    }
-                                }
-                                for (Paper.Plist.Page.Article article : page.getArticles()) {
-                                    if (!article.isLink()) {
-                                        articleCollectionOrder.put(article.getKey(), position);
-                                        articleCollectionPositionIndex.put(position, article.getKey());
-                                        position++;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                for (Paper.Plist.TopLink topLink : toplinksToSortIn) {
-                    if (!topLink.isLink()) {
-                        articleCollectionOrder.put(topLink.getKey(), position);
-                        articleCollectionPositionIndex.put(position, topLink.getKey());
-                        position++;
-                    }
+                List<String> articleOrder = paper.getPlist()
+                                                 .getArticleOrder();
+                for (int position = 0; position < articleOrder.size(); position++) {
+                    articleCollectionOrder.put(articleOrder.get(position), position);
+                    articleCollectionPositionIndex.put(position, articleOrder.get(position));
                 }
 
                 paper.setArticleCollectionOrder(articleCollectionOrder);
@@ -36,6 +36,7 @@ import de.thecode.android.tazreader.data.TazSettings;
 import de.thecode.android.tazreader.dialog.HelpDialog;
 import de.thecode.android.tazreader.notifications.NotificationUtils;
 import de.thecode.android.tazreader.reader.article.ArticleFragment;
+import de.thecode.android.tazreader.reader.article.ArticleWebViewPool;
 import de.thecode.android.tazreader.reader.article.TopLinkFragment;
 import de.thecode.android.tazreader.reader.page.PagesFragment;
 import de.thecode.android.tazreader.reader.pagetoc.PageTocFragment;
@@ -113,6 +114,7 @@ public class ReaderActivity extends BaseActivity
 
     FragmentManager mFragmentManager;
     StorageManager mStorage;
+    ArticleWebViewPool articleWebViewPool;
 
 
     UserTocFragment mUserTocFragment;
@@ -133,6 +135,7 @@ public class ReaderActivity extends BaseActivity
             throw new IllegalStateException("Activity Reader has to be called with extra BookID");
 
         mStorage = StorageManager.getInstance(this);
+        articleWebViewPool = new ArticleWebViewPool(this);
 
         NotificationUtils.getInstance(this)
                 .removeDownloadNotification(bookId);
@@ -334,10 +337,23 @@ public class ReaderActivity extends BaseActivity
         }
     }
 
+    @Override
+    protected void onPause() {
+        readerViewModel.getStoreRepository()
+                       .flush();
+        super.onPause();
+    }
+
     @Override
     protected void onDestroy() {
         audioManager.abandonAudioFocus(ttsViewModel.getAudioFocusChangeListener());
         super.onDestroy();
+        // after the fragments gave back their views
+        articleWebViewPool.destroy();
+    }
+
+    public ArticleWebViewPool getArticleWebViewPool() {
+        return articleWebViewPool;
     }
 
     private void loadIndexFragment() {
@@ -12,6 +12,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
+import de.thecode.android.tazreader.data.PDFThumbStore;
 import de.thecode.android.tazreader.data.Paper;
 import de.thecode.android.tazreader.data.Resource;
 import de.thecode.android.tazreader.data.Store;
@@ -20,7 +21,6 @@ import de.thecode.android.tazreader.data.TazSettings;
 import de.thecode.android.tazreader.data.ITocItem;
 import de.thecode.android.tazreader.reader.pagetoc.PageTocLiveData;
 import de.thecode.android.tazreader.reader.usertoc.UserTocLiveData;
-import de.thecode.android.tazreader.utils.AsyncTaskListener;
 import de.thecode.android.tazreader.utils.StorageManager;
 
 import org.apache.commons.lang3.StringUtils;
@@ -55,6 +55,8 @@ public class ReaderViewModel extends AndroidViewModel {
         storageManager = StorageManager.getInstance(application);
         settings = TazSettings.getInstance(application);
         storeRepository = StoreRepository.getInstance(application);
+        // reader state is changed often, keep it in memory while reading
+        storeRepository.openBook(bookId);
         currentKeyLiveData = new MutableLiveData<>();
         userTocLiveData = new UserTocLiveData(currentKeyLiveData, settings.isIndexAlwaysExpanded());
         pageTocLiveData = new PageTocLiveData(application, currentKeyLiveData);
@@ -137,12 +139,16 @@ public class ReaderViewModel extends AndroidViewModel {
         return paperLiveData.getResource();
     }
 
+    /**
+     * Saves to the in memory stores of the book, cheap enough for the main thread.
+     */
+    public void saveStore(String key, String value) {
+        storeRepository.saveStoreAsync(new Store(Store.getPath(bookId, key), value));
+    }
+
     public void setCurrentKey(String currentKey) {
         if (currentKey != null) currentKey = StringUtils.substringBefore(currentKey, "?");
-        new AsyncTaskListener<String, Void>(strings -> {
-                storeRepository.saveStore(new Store(Store.getPath(bookId, Paper.STORE_KEY_CURRENTPOSITION), strings[0]));
-                return null;
-        }).execute(currentKey);
+        saveStore(Paper.STORE_KEY_CURRENTPOSITION, currentKey);
     }
 
     public LiveData<ITocItem> getCurrentKeyLiveData() {
@@ -208,6 +214,15 @@ public class ReaderViewModel extends AndroidViewModel {
         return pageTocLiveData;
     }
 
+    @Override
+    protected void onCleared() {
+        pageTocLiveData.destroy();
+        storeRepository.closeBook(bookId);
+        Paper paper = paperLiveData.getValue();
+        if (paper != null) PDFThumbStore.release(paper.fileHash);
+        super.onCleared();
+    }
+
     public PagesLiveData getPagesLiveData() {
         return pagesLiveData;
     }
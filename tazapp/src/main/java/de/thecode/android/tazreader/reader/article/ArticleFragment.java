@@ -9,7 +9,6 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.text.Html;
 import android.text.TextUtils;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
@@ -39,22 +38,21 @@ import de.thecode.android.tazreader.reader.ReaderActivity;
 import de.thecode.android.tazreader.reader.ReaderActivity.DIRECTIONS;
 import de.thecode.android.tazreader.reader.ReaderBaseFragment;
 import de.thecode.android.tazreader.reader.article.ArticleWebView.ArticleWebViewCallback;
-import de.thecode.android.tazreader.utils.Charsets;
 import de.thecode.android.tazreader.utils.StorageManager;
 import de.thecode.android.tazreader.utils.TintHelper;
 import de.thecode.android.tazreader.widget.ShareButton;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProviders;
-import kotlin.io.FilesKt;
 import timber.log.Timber;
 
 public class ArticleFragment extends AbstractContentFragment implements ArticleWebViewCallback {
@@ -79,6 +77,8 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
     }
 
     ArticleWebView mWebView;
+    // view comes from the ArticleWebViewPool of the activity
+    boolean        pooledWebView;
     ProgressBar    mProgressBar;
     FrameLayout    mBookmarkClickLayout;
     ShareButton    mShareButton;
@@ -105,6 +105,7 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
                                                                              getArguments().getString(ARG_KEY),
                                                                              getArguments().getString(ARG_POSITION)))
                                              .get(ArticleViewModel.class);
+        ArticleLoadTrace.begin(getArguments().getString(ARG_KEY));
 
     }
 
@@ -115,7 +116,11 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
 
         mBookmarkClickLayout = result.findViewById(R.id.bookmarkClickLayout);
 
-        mWebView = result.findViewById(R.id.webview);
+        ViewGroup webViewContainer = result.findViewById(R.id.webview_container);
+        ArticleWebViewPool webViewPool = getReaderActivity() != null ? getReaderActivity().getArticleWebViewPool() : null;
+        pooledWebView = webViewPool != null;
+        mWebView = pooledWebView ? webViewPool.acquire() : new ArticleWebView(getContext());
+        webViewContainer.addView(mWebView, ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
         mWebView.setAlpha(0F);
         mWebView.setArticleWebViewCallback(this);
 
@@ -191,6 +196,20 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
         return (result);
     }
 
+    @Override
+    public void onDestroyView() {
+        ArticleWebViewPool webViewPool = getReaderActivity() != null ? getReaderActivity().getArticleWebViewPool() : null;
+        mWebView.removeJavascriptInterface(JAVASCRIPT_API_NAME);
+        if (pooledWebView && webViewPool != null) {
+            webViewPool.release(mWebView);
+        } else {
+            ((ViewGroup) mWebView.getParent()).removeView(mWebView);
+            mWebView.destroy();
+        }
+        mWebView = null;
+        super.onDestroyView();
+    }
+
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
@@ -245,6 +264,7 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
 
             @Override
             public void run() {
+                if (mWebView == null) return;
                 Timber.i("Calling javascript with %s", call);
                 if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.KITKAT) {
                     mWebView.evaluateJavascript(call, null);
@@ -412,7 +432,9 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
                          .show();
                 }
             } else if (url.startsWith(articleViewModel.getKey()) || url.startsWith("?")) {
-                runOnUiThread(() -> loadArticleInWebView());
+                runOnUiThread(() -> {
+                    if (mWebView != null) loadArticleInWebView();
+                });
             } else {
                 getReaderActivity().loadContentFragment(url);
             }
@@ -459,6 +481,9 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
             Timber.d("%s %s %s %s", articleViewModel.getKey(), percentSeen, position, numberOfPages);
             articleViewModel.setPosition(position);
             runOnUiThread(() -> {
+                    if (mWebView == null) return;
+                    ArticleLoadTrace.end(articleViewModel.getKey(), pooledWebView);
+                    preloadNeighbours();
                     mWebView.animate()
                             .alpha(1F)
                             .setDuration(400)
@@ -595,23 +620,12 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
 
 
     public String getHtml() {
-        File articleFile = new File(getReaderViewModel().getPaperDirectory(), articleViewModel.getKey());
-        File resourceDir = getReaderViewModel().getResourceDirectory();
-
-        String resourceReplacement = "file://" + resourceDir.getAbsolutePath() + "/";
-        String tazapiReplacement = "file:///android_asset/js/TAZAPI.js";
-
-        String result = FilesKt.readText(articleFile, Charsets.UTF_8);
-
-        Pattern resPattern = Pattern.compile("(<[^>]+?(?:href|src)\\s*?=\\s*?(?:\"|'))(res.+?)((?:\"|').*?>)",
-                                             Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-        Matcher matcher = resPattern.matcher(result);
-        result = matcher.replaceAll("$1" + resourceReplacement + "$2$3");
-
-        Pattern tazapiPattern = Pattern.compile("file://.+?TAZAPI.js", Pattern.CASE_INSENSITIVE);
-        Matcher matcher2 = tazapiPattern.matcher(result);
-        result = matcher2.replaceAll(tazapiReplacement);
-
+        String result = null;
+        try {
+            result = getArticleHtmlCache().getHtml(articleViewModel.getKey());
+        } catch (IOException e) {
+            Timber.e(e);
+        }
 
         if (TextUtils.isEmpty(result)) result = "Fehler beim Laden des Artikels";
 
@@ -619,14 +633,29 @@ public class ArticleFragment extends AbstractContentFragment implements ArticleW
     }
 
     private CharSequence getTextToSpeech() {
-        Pattern pattern = Pattern.compile(".*?<body.*?>(.*?)</body>.*?", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(getHtml());
-        if (matcher.matches()) {
-
-            Pattern replacePattern = Pattern.compile("[\u00AD]?", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-            Matcher replaceMatcher = replacePattern.matcher(Html.fromHtml(matcher.group(1)));
-            return replaceMatcher.replaceAll("");
+        try {
+            return getArticleHtmlCache().getText(articleViewModel.getKey());
+        } catch (IOException e) {
+            Timber.e(e);
         }
         return null;
     }
+
+    // rewrites the articles before and after this one, so swiping to them is a plain file read
+    private void preloadNeighbours() {
+        Paper paper = getReaderViewModel().getPaper();
+        if (paper == null || !paper.isInArticleCollection(articleViewModel.getKey())) return;
+        int position = paper.getArticleCollectionOrderPosition(articleViewModel.getKey());
+        List<String> keys = new ArrayList<>();
+        if (position > 0) keys.add(paper.getArticleCollectionOrderKey(position - 1));
+        if (position < paper.getArticleCollectionSize() - 1) keys.add(paper.getArticleCollectionOrderKey(position + 1));
+        getArticleHtmlCache().preload(keys);
+    }
+
+    private ArticleHtmlCache getArticleHtmlCache() {
+        return new ArticleHtmlCache(StorageManager.getInstance(getContext()),
+                                    getReaderViewModel().getPaper(),
+                                    getReaderViewModel().getPaperDirectory(),
+                                    getReaderViewModel().getResourceDirectory());
+    }
 }
@@ -0,0 +1,131 @@
+package de.thecode.android.tazreader.reader.article;
+
+import android.text.Html;
+
+import de.thecode.android.tazreader.data.Paper;
+import de.thecode.android.tazreader.secure.HashHelper;
+import de.thecode.android.tazreader.utils.Charsets;
+import de.thecode.android.tazreader.utils.ExtensionsKt;
+import de.thecode.android.tazreader.utils.StorageManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import kotlin.io.FilesKt;
+import timber.log.Timber;
+
+/**
+ * Article HTML with the resource and TAZAPI.js links rewritten for the WebView, and the plain text of the article for
+ * text to speech. Both are created on first use and cached on disk, per paper and resource directory, so following
+ * loads are a plain file read. The cache of a paper is deleted with the paper.
+ */
+public class ArticleHtmlCache {
+
+    private static final String SUB            = "articles";
+    private static final String HTML_EXTENSION = ".html";
+    private static final String TEXT_EXTENSION = ".txt";
+    // increase when the rewriting of the HTML or the text extraction changes, older entries are not read anymore
+    private static final int    FORMAT_VERSION = 1;
+
+    private static final String  TAZAPI_REPLACEMENT = "file:///android_asset/js/TAZAPI.js";
+    private static final Pattern RES_PATTERN        = Pattern.compile(
+            "(<[^>]+?(?:href|src)\\s*?=\\s*?(?:\"|'))(res.+?)((?:\"|').*?>)", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern TAZAPI_PATTERN     = Pattern.compile("file://.+?TAZAPI.js", Pattern.CASE_INSENSITIVE);
+    private static final Pattern BODY_PATTERN       = Pattern.compile(".*?<body.*?>(.*?)</body>.*?",
+                                                                      Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern SOFT_HYPHEN        = Pattern.compile("[\u00AD]?", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Executor PRELOAD_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public static void delete(StorageManager storage, Paper paper) {
+        File dir = new File(storage.getCache(null), SUB + "/" + paper.fileHash);
+        if (dir.exists()) ExtensionsKt.deleteQuietly(dir);
+    }
+
+    private final File   paperDirectory;
+    private final String resourceReplacement;
+    private final File   cacheDir;
+
+    public ArticleHtmlCache(StorageManager storage, Paper paper, File paperDirectory, File resourceDirectory) {
+        this.paperDirectory = paperDirectory;
+        resourceReplacement = "file://" + resourceDirectory.getAbsolutePath() + "/";
+        // the rewritten links depend on the resource directory, which changes with the resource and the data folder
+        cacheDir = new File(storage.getCache(null),
+                            SUB + "/" + paper.fileHash + "/v" + FORMAT_VERSION + "_" + hash(resourceReplacement));
+    }
+
+    public String getHtml(String key) throws IOException {
+        File cacheFile = new File(cacheDir, key + HTML_EXTENSION);
+        if (cacheFile.exists()) return FilesKt.readText(cacheFile, Charsets.UTF_8);
+
+        String result = FilesKt.readText(new File(paperDirectory, key), Charsets.UTF_8);
+        Matcher matcher = RES_PATTERN.matcher(result);
+        result = matcher.replaceAll("$1" + resourceReplacement + "$2$3");
+        Matcher matcher2 = TAZAPI_PATTERN.matcher(result);
+        result = matcher2.replaceAll(TAZAPI_REPLACEMENT);
+
+        write(cacheFile, result);
+        return result;
+    }
+
+    /**
+     * @return the text of the article body or {@code null}
+     */
+    public String getText(String key) throws IOException {
+        File cacheFile = new File(cacheDir, key + TEXT_EXTENSION);
+        if (cacheFile.exists()) return FilesKt.readText(cacheFile, Charsets.UTF_8);
+
+        Matcher matcher = BODY_PATTERN.matcher(getHtml(key));
+        if (!matcher.matches()) return null;
+        Matcher replaceMatcher = SOFT_HYPHEN.matcher(Html.fromHtml(matcher.group(1)));
+        String result = replaceMatcher.replaceAll("");
+
+        write(cacheFile, result);
+        return result;
+    }
+
+    /**
+     * Rewrites the articles in the background, if they are not cached yet.
+     */
+    public void preload(List<String> keys) {
+        for (String key : keys) {
+            if (key == null) continue;
+            PRELOAD_EXECUTOR.execute(() -> {
+                try {
+                    getHtml(key);
+                } catch (IOException e) {
+                    Timber.w(e);
+                }
+            });
+        }
+    }
+
+    private void write(File cacheFile, String content) {
+        //noinspection ResultOfMethodCallIgnored
+        cacheDir.mkdirs();
+        try {
+            // unique name, the same article may be written by the preloader and the reader at once
+            File tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+            FilesKt.writeText(tmpFile, content, Charsets.UTF_8);
+            if (!tmpFile.renameTo(cacheFile)) Timber.w("cannot rename %s", tmpFile);
+        } catch (Exception e) {
+            // not fatal, the article is rewritten again next time
+            Timber.w(e);
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            return HashHelper.getHash(value, HashHelper.UTF_8, HashHelper.SHA_1);
+        } catch (UnsupportedEncodingException | NoSuchAlgorithmException e) {
+            return String.valueOf(value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.thecode.android.tazreader.reader.article;
+
+import android.os.SystemClock;
+
+import androidx.core.os.TraceCompat;
+import timber.log.Timber;
+
+/**
+ * Measures the time from opening an article until its page is ready. Shows up as async section {@value #SECTION} in
+ * systrace and is logged, so article to article latency can be compared with and without pooled WebViews. Must only
+ * be used on the main thread.
+ */
+class ArticleLoadTrace {
+
+    private static final String SECTION = "ArticleLoad";
+
+    private static String key;
+    private static long   start;
+
+    static void begin(String articleKey) {
+        if (key != null) TraceCompat.endAsyncSection(SECTION, key.hashCode());
+        key = articleKey;
+        start = SystemClock.elapsedRealtime();
+        TraceCompat.beginAsyncSection(SECTION, articleKey.hashCode());
+    }
+
+    static void end(String articleKey, boolean pooled) {
+        if (key == null || !key.equals(articleKey)) return;
+        TraceCompat.endAsyncSection(SECTION, articleKey.hashCode());
+        Timber.i("article %s ready after %d ms, pooled WebView: %s", articleKey, SystemClock.elapsedRealtime() - start, pooled);
+        key = null;
+    }
+}
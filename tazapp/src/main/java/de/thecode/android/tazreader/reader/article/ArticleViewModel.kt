@@ -1,6 +1,5 @@
 package de.thecode.android.tazreader.reader.article
 
-import android.os.AsyncTask
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.ViewModel
@@ -16,12 +15,7 @@ class ArticleViewModel(private val readerViewModel: ReaderViewModel, val key: St
 
     var position: String? = position_
     set(value) {
-        AsyncTask.execute {
-            val positionStore = readerViewModel.getStore(Paper.STORE_KEY_POSITION_IN_ARTICLE + "_" + key)
-            positionStore.value = position
-            readerViewModel.storeRepository
-                    .saveStore(positionStore)
-        }
+        readerViewModel.saveStore(Paper.STORE_KEY_POSITION_IN_ARTICLE + "_" + key, value)
         field = value
     }
 
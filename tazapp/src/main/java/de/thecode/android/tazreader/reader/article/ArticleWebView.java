@@ -58,7 +58,7 @@ public class ArticleWebView extends WebView {
         super.onScrollChanged(l, t, oldl, oldt);
         if (!isAlreadyChecking) {
             mScrolling = true;
-            mCallback.onScrollStarted(this);
+            if (mCallback != null) mCallback.onScrollStarted(this);
             isAlreadyChecking = true;
             this.postDelayed(scrollStopCheckerTask, scrollCheckDelay);
         }
@@ -0,0 +1,117 @@
+package de.thecode.android.tazreader.reader.article;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.ViewGroup;
+import android.webkit.WebSettings;
+import android.webkit.WebViewClient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import timber.log.Timber;
+
+/**
+ * Warmed up {@link ArticleWebView}s for the article fragments of one reader activity. Creating a WebView is slow, so
+ * views of closed articles are kept and reused, and a spare one is created while the main thread is idle. Pooled views
+ * have the settings applied and TAZAPI.js already loaded. Must only be used on the main thread.
+ */
+public class ArticleWebViewPool {
+
+    private static final int MAX_IDLE = 2;
+
+    private static final String WARMUP_BASE_URL = "file:///android_asset/";
+    private static final String WARMUP_HTML     = "<html><head><script src=\"js/TAZAPI.js\"></script></head><body></body></html>";
+
+    private final Context               context;
+    private final Deque<ArticleWebView> idle = new ArrayDeque<>();
+    private       boolean               destroyed;
+    private       boolean               warmupScheduled;
+
+    private int created;
+    private int reused;
+
+    /**
+     * @param context the activity the views are shown in
+     */
+    public ArticleWebViewPool(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * @return a pooled view or a new one, detached from any parent
+     */
+    public ArticleWebView acquire() {
+        ArticleWebView webView = idle.poll();
+        if (webView != null) {
+            reused++;
+        } else {
+            webView = create();
+        }
+        scheduleWarmup();
+        return webView;
+    }
+
+    /**
+     * Takes back a view of a closed article. The caller must not use it anymore.
+     */
+    public void release(ArticleWebView webView) {
+        if (webView.getParent() instanceof ViewGroup) ((ViewGroup) webView.getParent()).removeView(webView);
+        webView.setArticleWebViewCallback(null);
+        webView.setWebChromeClient(null);
+        webView.setWebViewClient(new WebViewClient());
+        webView.stopLoading();
+        if (destroyed || idle.size() >= MAX_IDLE) {
+            webView.destroy();
+            return;
+        }
+        webView.animate()
+               .cancel();
+        webView.scrollTo(0, 0);
+        webView.loadDataWithBaseURL(WARMUP_BASE_URL, WARMUP_HTML, "text/html", "UTF-8", null);
+        idle.push(webView);
+    }
+
+    public void destroy() {
+        destroyed = true;
+        Timber.d("destroying pool, created: %d, reused: %d", created, reused);
+        while (!idle.isEmpty()) {
+            idle.pop()
+                .destroy();
+        }
+    }
+
+    // creates a spare view once the main thread has nothing else to do
+    private void scheduleWarmup() {
+        if (warmupScheduled || destroyed || !idle.isEmpty()) return;
+        warmupScheduled = true;
+        Looper.myQueue()
+              .addIdleHandler(new MessageQueue.IdleHandler() {
+                  @Override
+                  public boolean queueIdle() {
+                      warmupScheduled = false;
+                      if (!destroyed && idle.isEmpty()) idle.push(create());
+                      return false;
+                  }
+              });
+    }
+
+    @SuppressLint("SetJavaScriptEnabled")
+    private ArticleWebView create() {
+        created++;
+        ArticleWebView webView = new ArticleWebView(context);
+        WebSettings webviewSettings = webView.getSettings();
+        webviewSettings.setAllowFileAccessFromFileURLs(true);
+        webviewSettings.setJavaScriptEnabled(true);
+        webviewSettings.setBuiltInZoomControls(true);
+        webviewSettings.setSupportZoom(true);
+        webviewSettings.setUseWideViewPort(true);
+        webView.setHorizontalScrollBarEnabled(true);
+        webView.setVerticalScrollBarEnabled(true);
+        webView.setScrollbarFadingEnabled(true);
+        webView.loadDataWithBaseURL(WARMUP_BASE_URL, WARMUP_HTML, "text/html", "UTF-8", null);
+        return webView;
+    }
+}
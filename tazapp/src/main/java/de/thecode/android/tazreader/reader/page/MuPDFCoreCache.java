@@ -0,0 +1,148 @@
+package de.thecode.android.tazreader.reader.page;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Keeps opened page PDFs for reuse by page views and thumbnails. Cores are reference counted: a core is only destroyed
+ * after every {@link #acquire(Context, String)} has been matched by a {@link #release(TAZMuPDFCore)} and it has been
+ * pushed out of the cache, which holds at most {@link #MAX_IDLE} unused cores, least recently used first out. Unused
+ * cores are dropped when the system asks to trim memory.
+ */
+public class MuPDFCoreCache implements ComponentCallbacks2 {
+
+    private static final int MAX_IDLE = 4;
+
+    private static volatile MuPDFCoreCache mInstance;
+
+    public static MuPDFCoreCache getInstance(Context context) {
+        if (mInstance == null) {
+            synchronized (MuPDFCoreCache.class) {
+                if (mInstance == null) {
+                    mInstance = new MuPDFCoreCache();
+                    context.getApplicationContext()
+                           .registerComponentCallbacks(mInstance);
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    private static class Entry {
+        final TAZMuPDFCore core;
+        int references;
+
+        Entry(TAZMuPDFCore core) {
+            this.core = core;
+        }
+    }
+
+    // access ordered, the eldest entry is the least recently used
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    private MuPDFCoreCache() {
+    }
+
+    /**
+     * Returns the core for this file, opening it if it is not cached. Every call must be followed by one
+     * {@link #release(TAZMuPDFCore)}.
+     */
+    public TAZMuPDFCore acquire(Context context, String filename) throws Exception {
+        synchronized (this) {
+            Entry entry = entries.get(filename);
+            if (entry != null && !entry.core.isDestroyed) {
+                entry.references++;
+                hits++;
+                return entry.core;
+            }
+            misses++;
+        }
+        // opening parses the file, don't block other pages meanwhile
+        TAZMuPDFCore core = new TAZMuPDFCore(context, filename);
+        synchronized (this) {
+            Entry entry = entries.get(filename);
+            if (entry != null && !entry.core.isDestroyed) {
+                // opened concurrently, keep the first one
+                core.onDestroy();
+            } else {
+                entry = new Entry(core);
+                entries.put(filename, entry);
+            }
+            entry.references++;
+            trim(MAX_IDLE);
+            return entry.core;
+        }
+    }
+
+    public synchronized void release(TAZMuPDFCore core) {
+        if (core == null) return;
+        Entry entry = entries.get(core.getFilename());
+        if (entry == null || entry.core != core) {
+            // not cached (anymore)
+            core.onDestroy();
+            return;
+        }
+        if (entry.references > 0) entry.references--;
+        trim(MAX_IDLE);
+    }
+
+    /**
+     * Destroys unused cores, least recently used first, until at most {@code maxIdle} are left.
+     */
+    private void trim(int maxIdle) {
+        int idle = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.references == 0) idle++;
+        }
+        Iterator<Entry> iterator = entries.values()
+                                          .iterator();
+        while (idle > maxIdle && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0) {
+                iterator.remove();
+                entry.core.onDestroy();
+                evictions++;
+                idle--;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        trim(0);
+    }
+
+    public synchronized String getStatistics() {
+        int requests = hits + misses;
+        int hitRate = requests == 0 ? 0 : hits * 100 / requests;
+        return "MuPDFCoreCache{size=" + entries.size() + ", hits=" + hits + ", misses=" + misses + ", hitRate=" + hitRate
+                + "%, evictions=" + evictions + "}";
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            Timber.d("trimming on level %d, %s", level, getStatistics());
+            clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
@@ -0,0 +1,265 @@
+package de.thecode.android.tazreader.reader.page;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.PointF;
+
+import com.artifex.mupdfdemo.MuPDFCore;
+
+import de.thecode.android.tazreader.data.Paper.Plist.Page;
+import de.thecode.android.tazreader.utils.BitmapPool;
+import de.thecode.android.tazreader.utils.StorageManager;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Renders the low resolution bitmaps of the pages ahead in swipe direction before their views exist, so a
+ * {@link TAZPageView} can show its page right away instead of a blank page. The bitmaps come from the {@link BitmapPool},
+ * the number held here is limited to a share of {@link ActivityManager#getMemoryClass()}. Work for pages the reader has
+ * moved away from is cancelled.
+ */
+public class PagePreRenderer {
+
+    private static final int MAX_AHEAD    = 2;
+    // share of the memory class used for pre rendered bitmaps
+    private static final int BUDGET_SHARE = 4;
+
+    private final Context            context;
+    private final int                memoryBudget;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, RenderTask> pending  = new HashMap<>();
+    private final Map<String, Rendered>   rendered = new HashMap<>();
+    private final BitmapPool              pool;
+
+    private int width;
+    private int height;
+    private int capacity;
+    // bitmaps held by rendered pages and running tasks
+    private int owned;
+    private int generation;
+
+    private int hits;
+    private int misses;
+
+    public PagePreRenderer(Context context) {
+        this.context = context.getApplicationContext();
+        pool = BitmapPool.getInstance(context);
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = activityManager != null ? activityManager.getMemoryClass() : 16;
+        memoryBudget = memoryClass * 1024 * 1024 / BUDGET_SHARE;
+        executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Pre renders the pages following {@code current} in {@code direction}, skipping the direct neighbour which already
+     * has a view. What was rendered for the neighbour is kept for it, everything else is cancelled or given back to the
+     * pool.
+     *
+     * @param direction 1 for forward, -1 for backward
+     */
+    public synchronized void schedule(List<Page> pages, int current, int direction, int viewWidth, int viewHeight) {
+        if (viewWidth <= 0 || viewHeight <= 0) return;
+        if (viewWidth != width || viewHeight != height) {
+            clear();
+            width = viewWidth;
+            height = viewHeight;
+            capacity = memoryBudget / (width * height * 4);
+        }
+        // one bitmap of the budget stays with the direct neighbour rendered before
+        int ahead = Math.min(MAX_AHEAD, capacity - 1);
+
+        Map<String, Page> targets = new HashMap<>();
+        for (int i = 2; i <= ahead + 1; i++) {
+            int index = current + direction * i;
+            if (index < 0 || index >= pages.size()) break;
+            Page page = pages.get(index);
+            targets.put(page.getKey(), page);
+        }
+
+        // the direct neighbour is not rendered, but a bitmap rendered for it earlier is kept until its view takes it
+        Set<String> retained = new HashSet<>(targets.keySet());
+        int neighbour = current + direction;
+        if (neighbour >= 0 && neighbour < pages.size()) {
+            retained.add(pages.get(neighbour)
+                              .getKey());
+        }
+
+        Iterator<Map.Entry<String, RenderTask>> pendingIterator = pending.entrySet()
+                                                                         .iterator();
+        while (pendingIterator.hasNext()) {
+            Map.Entry<String, RenderTask> entry = pendingIterator.next();
+            if (!retained.contains(entry.getKey())) {
+                entry.getValue()
+                     .cancel();
+                executor.remove(entry.getValue());
+                pendingIterator.remove();
+            }
+        }
+
+        Iterator<Map.Entry<String, Rendered>> renderedIterator = rendered.entrySet()
+                                                                         .iterator();
+        while (renderedIterator.hasNext()) {
+            Map.Entry<String, Rendered> entry = renderedIterator.next();
+            if (!retained.contains(entry.getKey())) {
+                pool.put(entry.getValue().bitmap);
+                owned--;
+                renderedIterator.remove();
+            }
+        }
+
+        Set<String> keys = targets.keySet();
+        for (String key : keys) {
+            if (pending.containsKey(key) || rendered.containsKey(key)) continue;
+            RenderTask task = new RenderTask(key, getPdfFile(targets.get(key)), generation);
+            pending.put(key, task);
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * Hands over the pre rendered bitmap of the page, if there is one for this size. The caller owns the bitmap
+     * afterwards and should give its previous one to the {@link BitmapPool}.
+     */
+    public synchronized Bitmap take(String key, int sizeX, int sizeY) {
+        Rendered result = rendered.get(key);
+        if (result == null || result.sizeX != sizeX || result.sizeY != sizeY) {
+            misses++;
+            return null;
+        }
+        rendered.remove(key);
+        owned--;
+        hits++;
+        return result.bitmap;
+    }
+
+    /**
+     * Cancels all work and gives all bitmaps back to the pool.
+     */
+    public synchronized void clear() {
+        for (RenderTask task : pending.values()) {
+            task.cancel();
+            executor.remove(task);
+        }
+        pending.clear();
+        for (Rendered result : rendered.values()) {
+            pool.put(result.bitmap);
+        }
+        rendered.clear();
+        owned = 0;
+        generation++;
+    }
+
+    public synchronized String getStatistics() {
+        return "PagePreRenderer{capacity=" + capacity + ", owned=" + owned + ", rendered=" + rendered.size() + ", hits="
+                + hits + ", misses=" + misses + "}";
+    }
+
+    private String getPdfFile(Page page) {
+        StorageManager storage = StorageManager.getInstance(context);
+        return new File(storage.getPaperDirectory(page.getPaper()), page.getKey()).getAbsolutePath();
+    }
+
+    private synchronized Bitmap obtainBitmap(int taskGeneration) {
+        if (taskGeneration != generation || owned >= capacity) return null;
+        owned++;
+        return pool.get(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private synchronized void finish(RenderTask task, Bitmap bitmap, int sizeX, int sizeY, boolean success) {
+        if (pending.get(task.key) == task) pending.remove(task.key);
+        if (bitmap == null) return;
+        if (task.generation == generation && success && !task.cancelled) {
+            rendered.put(task.key, new Rendered(bitmap, sizeX, sizeY));
+            return;
+        }
+        // bitmaps of an earlier generation are no longer counted
+        if (task.generation == generation) owned--;
+        pool.put(bitmap);
+    }
+
+    private static class Rendered {
+        final Bitmap bitmap;
+        final int    sizeX;
+        final int    sizeY;
+
+        Rendered(Bitmap bitmap, int sizeX, int sizeY) {
+            this.bitmap = bitmap;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+        }
+    }
+
+    private class RenderTask implements Runnable {
+
+        final String key;
+        final String filename;
+        final int    generation;
+
+        volatile boolean          cancelled;
+        private  MuPDFCore.Cookie cookie;
+
+        RenderTask(String key, String filename, int generation) {
+            this.key = key;
+            this.filename = filename;
+            this.generation = generation;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (cookie != null) cookie.abort();
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = cancelled ? null : obtainBitmap(generation);
+            int sizeX = 0;
+            int sizeY = 0;
+            boolean success = false;
+            if (bitmap != null) {
+                MuPDFCoreCache coreCache = MuPDFCoreCache.getInstance(context);
+                TAZMuPDFCore core = null;
+                try {
+                    core = coreCache.acquire(context, filename);
+                    // same fit as PageView.setPage
+                    PointF pageSize = core.getPageSize();
+                    float scale = Math.min(bitmap.getWidth() / pageSize.x, bitmap.getHeight() / pageSize.y);
+                    sizeX = (int) (pageSize.x * scale);
+                    sizeY = (int) (pageSize.y * scale);
+                    MuPDFCore.Cookie renderCookie = core.new Cookie();
+                    synchronized (this) {
+                        cookie = renderCookie;
+                        if (cancelled) renderCookie.abort();
+                    }
+                    try {
+                        core.drawPage(bitmap, 0, sizeX, sizeY, 0, 0, sizeX, sizeY, renderCookie);
+                    } finally {
+                        synchronized (this) {
+                            cookie = null;
+                        }
+                        renderCookie.destroy();
+                    }
+                    success = !core.isDestroyed;
+                } catch (Exception e) {
+                    Timber.w(e, "pre rendering %s failed", key);
+                } finally {
+                    coreCache.release(core);
+                }
+            }
+            finish(this, bitmap, sizeX, sizeY, success);
+        }
+    }
+}
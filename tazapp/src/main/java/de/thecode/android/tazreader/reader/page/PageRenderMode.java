@@ -0,0 +1,47 @@
+package de.thecode.android.tazreader.reader.page;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import de.thecode.android.tazreader.data.TazSettings;
+
+import androidx.core.app.ActivityManagerCompat;
+
+/**
+ * Chooses how pages are rendered. In low memory mode pages at minimum zoom are rendered at half resolution and
+ * thumbnails are kept as 16 bit bitmaps. Zoomed pages are still rendered in full resolution tiles. MuPDF only renders
+ * into ARGB_8888 bitmaps, so page bitmaps keep that format. The mode is chosen automatically for low RAM devices and
+ * small memory classes, unless set in the preferences.
+ */
+public class PageRenderMode {
+
+    public static final String AUTO       = "auto";
+    public static final String FULL       = "full";
+    public static final String LOW_MEMORY = "lowmem";
+
+    // memory class in MB below which the low memory mode is used automatically
+    private static final int   LOW_MEMORY_CLASS        = 128;
+    private static final float LOW_MEMORY_ENTIRE_SCALE = 0.5F;
+
+    public static boolean isLowMemory(Context context) {
+        String mode = TazSettings.getInstance(context)
+                                 .getPrefString(TazSettings.PREFKEY.PAGERENDERMODE, AUTO);
+        if (LOW_MEMORY.equals(mode)) return true;
+        if (FULL.equals(mode)) return false;
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) return false;
+        return ActivityManagerCompat.isLowRamDevice(activityManager) || activityManager.getMemoryClass() < LOW_MEMORY_CLASS;
+    }
+
+    /**
+     * @return scale of the page bitmaps at minimum zoom relative to the screen
+     */
+    public static float getEntireScale(boolean lowMemory) {
+        return lowMemory ? LOW_MEMORY_ENTIRE_SCALE : 1F;
+    }
+
+    public static Bitmap.Config getThumbnailConfig(boolean lowMemory) {
+        return lowMemory ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+}
@@ -1,6 +1,5 @@
 package de.thecode.android.tazreader.reader.page;
 
-import android.graphics.Bitmap;
 import android.graphics.Point;
 import android.os.Bundle;
 import android.view.LayoutInflater;
@@ -10,6 +9,8 @@ import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.Toast;
 
+import com.artifex.mupdfdemo.TileCache;
+
 import de.thecode.android.tazreader.R;
 import de.thecode.android.tazreader.data.ITocItem;
 import de.thecode.android.tazreader.data.Paper.Plist.Page;
@@ -33,6 +34,7 @@ public class PagesFragment extends AbstractContentFragment {
     ShareButton   mShareButton;
 
     TazReaderViewAdaper _adapter;
+    boolean             lowMemory;
 
     public PagesFragment() {
     }
@@ -41,6 +43,8 @@ public class PagesFragment extends AbstractContentFragment {
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         _adapter = new TazReaderViewAdaper();
+        lowMemory = PageRenderMode.isLowMemory(getContext());
+        Timber.i("low memory render mode: %s", lowMemory);
     }
 
     @Override
@@ -121,20 +125,30 @@ public class PagesFragment extends AbstractContentFragment {
                 for (int i = 0; i < _readerView.mChildViews.size(); i++) {
                     if (_readerView.mChildViews.get(_readerView.mChildViews.keyAt(i)) instanceof TAZPageView) {
                         TAZPageView pageView = (TAZPageView) _readerView.mChildViews.get(_readerView.mChildViews.keyAt(i));
-                        if (pageView.mCore != null) pageView.mCore.onDestroy();
+                        pageView.releaseCore();
                         pageView.releaseBitmaps();
                     }
                 }
             }
         }
+        if (_adapter != null) _adapter.releaseTiles();
         super.onDestroy();
     }
 
     public class TazReaderViewAdaper extends BaseAdapter {
 
-        private Bitmap mSharedHqBm;
+        // tiles of zoomed pages are kept for this many screens
+        private static final int TILE_CACHE_SCREENS            = 3;
+        private static final int TILE_CACHE_SCREENS_LOW_MEMORY = 1;
+
+        private TileCache mTileCache;
+        private Point     mTileCacheSize;
         List<Page> pages = new ArrayList<>();
 
+        void releaseTiles() {
+            if (mTileCache != null) mTileCache.clear();
+        }
+
         public void update(List<Page> newPages) {
             pages.clear();
             pages.addAll(newPages);
@@ -167,12 +181,18 @@ public class PagesFragment extends AbstractContentFragment {
             TAZPageView pageView;
 
             if (convertView == null) {
-                if (mSharedHqBm == null || mSharedHqBm.getWidth() != parent.getWidth() || mSharedHqBm.getHeight() != parent.getHeight())
-                    mSharedHqBm = Bitmap.createBitmap(parent.getWidth(), parent.getHeight(), Bitmap.Config.ARGB_8888);
-                pageView = new TAZPageView(getActivity(), new Point(parent.getWidth(), parent.getHeight()), mSharedHqBm);
+                if (mTileCache == null || mTileCacheSize.x != parent.getWidth() || mTileCacheSize.y != parent.getHeight()) {
+                    mTileCacheSize = new Point(parent.getWidth(), parent.getHeight());
+                    mTileCache = new TileCache(mTileCacheSize.x * mTileCacheSize.y * 4 * (lowMemory ? TILE_CACHE_SCREENS_LOW_MEMORY : TILE_CACHE_SCREENS));
+                }
+                pageView = new TAZPageView(getActivity(),
+                                           new Point(parent.getWidth(), parent.getHeight()),
+                                           mTileCache,
+                                           PageRenderMode.getEntireScale(lowMemory));
             } else {
                 pageView = (TAZPageView) convertView;
             }
+            if (parent instanceof TAZReaderView) pageView.setPreRenderer(((TAZReaderView) parent).getPreRenderer());
 
             try {
                 pageView.init(pages.get(position));
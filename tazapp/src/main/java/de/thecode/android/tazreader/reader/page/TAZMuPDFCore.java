@@ -12,11 +12,13 @@ public class TAZMuPDFCore extends MuPDFCore {
 
     PointF pageSize;
     String tag;
-    boolean isDestroyed = false;
+    String filename;
+    volatile boolean isDestroyed = false;
 
 
     public TAZMuPDFCore(Context context, String filename) throws Exception {
         super(context, filename);
+        this.filename = filename;
         int lastIndex = filename.lastIndexOf("/");
         if (lastIndex != 0) lastIndex+=1;
         tag = filename.substring(lastIndex);
@@ -46,9 +48,15 @@ public class TAZMuPDFCore extends MuPDFCore {
         this.pageSize = pageSize;
     }
 
+    public String getFilename() {
+        return filename;
+    }
+
+    // a shared core may be destroyed by the cache while a draw task is still queued, MuPDFCore skips drawing then
 
     @Override
-    public synchronized void onDestroy() {
+    public void onDestroy() {
+        if (isDestroyed) return;
         Timber.d(tag);
         super.onDestroy();
         isDestroyed = true;
@@ -16,6 +16,7 @@ import com.artifex.mupdfdemo.MuPDFCancellableTaskDefinition;
 import com.artifex.mupdfdemo.MuPDFCore;
 import com.artifex.mupdfdemo.PageView;
 import com.artifex.mupdfdemo.TextWord;
+import com.artifex.mupdfdemo.TileCache;
 
 import de.thecode.android.tazreader.data.Paper.Plist.Page;
 import de.thecode.android.tazreader.reader.ReaderActivity;
@@ -31,9 +32,15 @@ public class TAZPageView extends PageView {
 
     TAZMuPDFCore mCore;
     Page _page;
+    PagePreRenderer preRenderer;
 
-    public TAZPageView(Context c, Point parentSize, Bitmap sharedHqBm) {
-        super(c, parentSize, sharedHqBm);
+    /**
+     * Counts loads and releases, a {@link LoadCoreTask} only keeps its core if nothing happened since it started.
+     */
+    private int loadGeneration;
+
+    public TAZPageView(Context c, Point parentSize, TileCache tileCache, float entireScale) {
+        super(c, parentSize, tileCache, entireScale);
         mSize = parentSize;
     }
 
@@ -43,22 +50,24 @@ public class TAZPageView extends PageView {
         if (_page != null) {
             if (!_page.getKey()
                       .equals(page.getKey())) {
-                try {
-                    if (mCore != null) mCore.onDestroy();
-                } catch (Exception e) {
-                    Timber.w(e);
-                }
-                mCore = null;
+                releaseCore();
             }
         }
         _page = page;
 
         if (mCore != null) setPage();
         else {
+            final int generation = ++loadGeneration;
             new LoadCoreTask(getContext(), _page) {
 
                 @Override
                 protected void onPostExecute(TAZMuPDFCore result) {
+                    if (generation != loadGeneration || mCore != null) {
+                        // the view has been reused or released meanwhile
+                        MuPDFCoreCache.getInstance(getContext())
+                                      .release(result);
+                        return;
+                    }
                     mCore = result;
                     if (mCore != null) setPage();
                 }
@@ -66,11 +75,34 @@ public class TAZPageView extends PageView {
         }
     }
 
+    /**
+     * Hands the core back to the {@link MuPDFCoreCache}, which keeps it open for a while.
+     */
+    public void releaseCore() {
+        // a core still loading is released when it arrives
+        loadGeneration++;
+        if (mCore != null) {
+            MuPDFCoreCache.getInstance(getContext())
+                          .release(mCore);
+        }
+        mCore = null;
+    }
+
 
     public void setPage() {
         super.setPage(0, mCore.getPageSize());
     }
 
+    public void setPreRenderer(PagePreRenderer preRenderer) {
+        this.preRenderer = preRenderer;
+    }
+
+    @Override
+    protected Bitmap getPreRenderedEntire(int sizeX, int sizeY) {
+        if (preRenderer == null || _page == null) return null;
+        return preRenderer.take(_page.getKey(), sizeX, sizeY);
+    }
+
     @Override
     protected CancellableTaskDefinition<Void, Void> getDrawPageTask(final Bitmap bm, final int sizeX, final int sizeY, final int patchX, final int patchY, final int patchWidth, final int patchHeight) {
 
@@ -131,6 +163,7 @@ public class TAZPageView extends PageView {
         String _filename;
 
         public LoadCoreTask(Context context, Page page) {
+            _context = context.getApplicationContext();
             StorageManager storage = StorageManager.getInstance(context);
             File pdfFile = new File(storage.getPaperDirectory(page.getPaper()), page.getKey());
             _filename = pdfFile.getAbsolutePath();
@@ -140,10 +173,8 @@ public class TAZPageView extends PageView {
         protected TAZMuPDFCore doInBackground(Void... params) {
             if (!isCancelled()) {
                 try {
-                    TAZMuPDFCore result = new TAZMuPDFCore(_context, _filename);
-                    if (!isCancelled()) result.countPages();
-                    if (!isCancelled()) result.setPageSize(result.getPageSize(0));
-                    if (!isCancelled()) return result;
+                    return MuPDFCoreCache.getInstance(_context)
+                                         .acquire(_context, _filename);
                 } catch (Exception e) {
                     Timber.w(e);
                 }
@@ -153,7 +184,8 @@ public class TAZPageView extends PageView {
 
         @Override
         protected void onCancelled(TAZMuPDFCore tazMuPDFCore) {
-            if (tazMuPDFCore != null) tazMuPDFCore.onDestroy();
+            MuPDFCoreCache.getInstance(_context)
+                          .release(tazMuPDFCore);
             super.onCancelled(tazMuPDFCore);
         }
     }
@@ -17,9 +17,12 @@ import com.artifex.mupdfdemo.ReaderView;
 import de.thecode.android.tazreader.R;
 import de.thecode.android.tazreader.data.Paper.Plist.Page;
 import de.thecode.android.tazreader.data.TazSettings;
+import de.thecode.android.tazreader.utils.BitmapPool;
 //import de.thecode.android.tazreader.reader.IReaderCallback;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 
 import timber.log.Timber;
 
@@ -30,6 +33,9 @@ public class TAZReaderView extends ReaderView implements GestureDetector.OnDoubl
     private boolean         mScrolling;
     private int             tapPageMargin;
     private TAZReaderViewListener listener;
+    private PagePreRenderer       preRenderer;
+    private int                   lastIndex = -1;
+    private float                 entireScale;
 
     public TAZReaderView(Context context) {
         super(context);
@@ -51,6 +57,12 @@ public class TAZReaderView extends ReaderView implements GestureDetector.OnDoubl
     private void init(Context context) {
         tapPageMargin = context.getResources()
                                .getDimensionPixelSize(R.dimen.reader_page_tapmargin);
+        preRenderer = new PagePreRenderer(context);
+        entireScale = PageRenderMode.getEntireScale(PageRenderMode.isLowMemory(context));
+    }
+
+    public PagePreRenderer getPreRenderer() {
+        return preRenderer;
     }
 
     @Override
@@ -100,7 +112,32 @@ public class TAZReaderView extends ReaderView implements GestureDetector.OnDoubl
         Timber.d("i: %s", i);
         Page page = (Page) getAdapter().getItem(i);
         if (listener != null) listener.onMoveToChild(page.getKey());
+        preRender(i);
+    }
 
+    private void preRender(int i) {
+        int direction = i < lastIndex ? -1 : 1;
+        lastIndex = i;
+        if (getWidth() <= 0 || getHeight() <= 0) return;
+        Adapter adapter = getAdapter();
+        List<Page> pages = new ArrayList<>(adapter.getCount());
+        for (int j = 0; j < adapter.getCount(); j++) {
+            pages.add((Page) adapter.getItem(j));
+        }
+        // same size as the entire bitmaps of the page views
+        preRenderer.schedule(pages,
+                             i,
+                             direction,
+                             Math.max(1, (int) (getWidth() * entireScale)),
+                             Math.max(1, (int) (getHeight() * entireScale)));
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        Timber.d("%s, %s", preRenderer.getStatistics(), BitmapPool.getInstance(getContext())
+                                                                  .getStatistics());
+        preRenderer.clear();
     }
 
     @Override
@@ -4,18 +4,23 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Point;
 import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.util.LruCache;
 import android.widget.ImageView;
 
 import de.thecode.android.tazreader.R;
-import de.thecode.android.tazreader.data.FileCachePDFThumbHelper;
+import de.thecode.android.tazreader.data.PDFThumbStore;
 import de.thecode.android.tazreader.data.Paper;
+import de.thecode.android.tazreader.reader.page.MuPDFCoreCache;
+import de.thecode.android.tazreader.reader.page.PageRenderMode;
 import de.thecode.android.tazreader.reader.page.TAZMuPDFCore;
+import de.thecode.android.tazreader.utils.BitmapPool;
 import de.thecode.android.tazreader.utils.StorageManager;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 
 import timber.log.Timber;
@@ -47,8 +52,10 @@ public class BitmapWorkerTask extends AsyncTask<Void, Void, Bitmap> {
 
     private final int                     mThumbnailImageHeight;
     private final int                     mThumbnailImageWidth;
-    private final FileCachePDFThumbHelper pdfThumbHelper;
+    private final PDFThumbStore           pdfThumbStore;
     private final File                    paperDirectory;
+    private final BitmapPool              bitmapPool;
+    private final Bitmap.Config           thumbnailConfig;
 
     private static Bitmap placeHolderBitmap = null;
 
@@ -57,19 +64,16 @@ public class BitmapWorkerTask extends AsyncTask<Void, Void, Bitmap> {
         this.key = page.getKey();
         imageViewReference = new WeakReference<>(imageView);
         Context context = imageView.getContext();
-        mThumbnailImageHeight = context.getResources()
-                                       .getDimensionPixelSize(R.dimen.pageindex_thumbnail_image_height) - (2 * context.getResources()
-                                                                                                                      .getDimensionPixelSize(
-                                                                                                                              R.dimen.pageindex_padding));
-        mThumbnailImageWidth = context.getResources()
-                                      .getDimensionPixelSize(R.dimen.pageindex_thumbnail_image_width) - (2 * context.getResources()
-                                                                                                                    .getDimensionPixelSize(
-                                                                                                                            R.dimen.pageindex_padding));
+        Point size = PageThumbnails.getSize(context);
+        mThumbnailImageHeight = size.y;
+        mThumbnailImageWidth = size.x;
+        bitmapPool = BitmapPool.getInstance(context);
+        thumbnailConfig = PageRenderMode.getThumbnailConfig(PageRenderMode.isLowMemory(context));
         StorageManager storageManager = StorageManager.getInstance(context);
         this.paperDirectory = storageManager.getPaperDirectory(page.getPaper());
-        this.pdfThumbHelper = new FileCachePDFThumbHelper(storageManager,
-                                                          page.getPaper()
-                                                              .fileHash);
+        this.pdfThumbStore = PDFThumbStore.getInstance(storageManager,
+                                                       page.getPaper()
+                                                           .fileHash);
         if (placeHolderBitmap == null) {
             placeHolderBitmap = Bitmap.createBitmap(mThumbnailImageWidth, mThumbnailImageHeight, Bitmap.Config.ARGB_8888);
             placeHolderBitmap.eraseColor(imageView.getResources()
@@ -120,50 +124,65 @@ public class BitmapWorkerTask extends AsyncTask<Void, Void, Bitmap> {
     }
 
     private Bitmap getBitmapFromDiskCache() {
-        File imageFile = pdfThumbHelper.getFile(key);
-        if (imageFile.exists()) {
+        byte[] data;
+        try {
+            data = pdfThumbStore.get(key);
+        } catch (IOException e) {
+            Timber.w(e, "cannot read thumbnail for %s", key);
+            return null;
+        }
+        if (data != null) {
             final BitmapFactory.Options options = new BitmapFactory.Options();
             options.inJustDecodeBounds = true;
-            BitmapFactory.decodeFile(imageFile.getAbsolutePath(), options);
+            BitmapFactory.decodeByteArray(data, 0, data.length, options);
 
             // Calculate inSampleSize
             options.inSampleSize = calculateInSampleSize(options, mThumbnailImageWidth, mThumbnailImageHeight);
 
-            // Decode bitmap with inSampleSize set
+            // Decode bitmap with inSampleSize set, into a pooled bitmap if one fits
             options.inJustDecodeBounds = false;
-            return BitmapFactory.decodeFile(imageFile.getAbsolutePath(), options);
+            options.inPreferredConfig = thumbnailConfig;
+            bitmapPool.setInBitmap(options);
+            try {
+                return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            } catch (IllegalArgumentException e) {
+                Timber.w(e, "cannot reuse bitmap for %s", key);
+                bitmapPool.put(options.inBitmap);
+                options.inBitmap = null;
+                return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            }
         }
         return null;
     }
 
     private Bitmap getBitmapFromPDF() {
+        Bitmap lq = null;
         try {
-            Bitmap lq = Bitmap.createBitmap(mThumbnailImageWidth, mThumbnailImageHeight, Bitmap.Config.ARGB_8888);
             if (imageViewReference.get() != null) {
-
-
-                TAZMuPDFCore core = new TAZMuPDFCore(imageViewReference.get()
-                                                                       .getContext(),
-                                                     new File(paperDirectory, key).getAbsolutePath());
-                core.countPages();
-                core.setPageSize(core.getPageSize(0));
-
-                core.drawPage(lq,
-                              0,
-                              mThumbnailImageWidth,
-                              mThumbnailImageHeight,
-                              0,
-                              0,
-                              mThumbnailImageWidth,
-                              mThumbnailImageHeight,
-                              core.new Cookie());
-
-                pdfThumbHelper.save(lq, key);
-                core.onDestroy();
+                Context context = imageViewReference.get()
+                                                    .getContext();
+                MuPDFCoreCache coreCache = MuPDFCoreCache.getInstance(context);
+                TAZMuPDFCore core = coreCache.acquire(context, new File(paperDirectory, key).getAbsolutePath());
+                try {
+                    lq = PageThumbnails.render(core, new Point(mThumbnailImageWidth, mThumbnailImageHeight), bitmapPool);
+                } finally {
+                    coreCache.release(core);
+                }
+
+                pdfThumbStore.save(lq, key);
+                if (thumbnailConfig != lq.getConfig()) {
+                    // MuPDF renders ARGB_8888 only, keep the smaller copy in memory
+                    Bitmap converted = lq.copy(thumbnailConfig, true);
+                    if (converted != null) {
+                        bitmapPool.put(lq);
+                        return converted;
+                    }
+                }
                 return lq;
             }
         } catch (Exception e) {
             Timber.e(e);
+            bitmapPool.put(lq);
         }
         return null;
     }
@@ -0,0 +1,44 @@
+package de.thecode.android.tazreader.reader.pagetoc;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Point;
+
+import com.artifex.mupdfdemo.MuPDFCore;
+
+import de.thecode.android.tazreader.R;
+import de.thecode.android.tazreader.utils.BitmapPool;
+
+/**
+ * Rendering of the page index thumbnails, shared by the page index and the pre generation after download.
+ */
+public class PageThumbnails {
+
+    /**
+     * @return size of the thumbnail image without padding
+     */
+    public static Point getSize(Context context) {
+        Resources resources = context.getResources();
+        int padding = 2 * resources.getDimensionPixelSize(R.dimen.pageindex_padding);
+        return new Point(resources.getDimensionPixelSize(R.dimen.pageindex_thumbnail_image_width) - padding,
+                         resources.getDimensionPixelSize(R.dimen.pageindex_thumbnail_image_height) - padding);
+    }
+
+    /**
+     * Renders the first page of the core into a bitmap from the pool.
+     */
+    public static Bitmap render(MuPDFCore core, Point size, BitmapPool bitmapPool) {
+        Bitmap bitmap = bitmapPool.get(size.x, size.y, Bitmap.Config.ARGB_8888);
+        MuPDFCore.Cookie cookie = core.new Cookie();
+        try {
+            core.drawPage(bitmap, 0, size.x, size.y, 0, 0, size.x, size.y, cookie);
+        } catch (RuntimeException e) {
+            bitmapPool.put(bitmap);
+            throw e;
+        } finally {
+            cookie.destroy();
+        }
+        return bitmap;
+    }
+}
@@ -12,6 +12,7 @@ import androidx.core.content.ContextCompat;
 import de.thecode.android.tazreader.R;
 import de.thecode.android.tazreader.data.ITocItem;
 import de.thecode.android.tazreader.data.Paper;
+import de.thecode.android.tazreader.utils.BitmapPool;
 import de.thecode.android.tazreader.utils.ParametrizedRunnable;
 
 import java.util.ArrayList;
@@ -38,6 +39,7 @@ public class PageTocLiveData extends LiveData<PageTocLiveData.ResultWrapper> {
                                                                                new LinkedBlockingDeque<>());
     private final Map<String, PageTocItem> pageTocMap = new LinkedHashMap<>();
     private final LiveData<ITocItem> currentKeyLiveData;
+    private final BitmapPool         bitmapPool;
 
     private final Bitmap overlayBitmap;
     private final int    overlayBitmapWith;
@@ -100,7 +102,8 @@ public class PageTocLiveData extends LiveData<PageTocLiveData.ResultWrapper> {
 
         overlayBitmapColor = ContextCompat.getColor(context, R.color.pageindex_overlay_color);
 
-        overlayBitmap = Bitmap.createBitmap(overlayBitmapWith, overlayBitmapHeight, Bitmap.Config.ARGB_8888);
+        bitmapPool = BitmapPool.getInstance(context);
+        overlayBitmap = bitmapPool.get(overlayBitmapWith, overlayBitmapHeight, Bitmap.Config.ARGB_8888);
 
         this.currentKeyLiveData = currentKeyLiveData;
     }
@@ -130,6 +133,15 @@ public class PageTocLiveData extends LiveData<PageTocLiveData.ResultWrapper> {
         }.set(plist));
     }
 
+    /**
+     * Stops following the current key and gives the overlay bitmap back to the pool.
+     */
+    public void destroy() {
+        currentKeyLiveData.removeObserver(currentKeyObserver);
+        // after the queued updates, which may still draw into it
+        executor.execute(() -> bitmapPool.put(overlayBitmap));
+    }
+
     private void publish() {
         executor.execute(() -> {
             List<PageTocItem> shownList = new ArrayList<>();
@@ -156,6 +156,8 @@ public class UserTocAdapter extends TazListAdapter<UserTocItem, UserTocAdapter.V
 
         @Override
         public boolean areContentsTheSame(@NonNull UserTocItem oldItem, @NonNull UserTocItem newItem) {
+            // unchanged entries are shared between the lists
+            if (oldItem == newItem) return true;
             return new EqualsBuilder().append(oldItem.isActive(), newItem.isActive())
                                       .append(oldItem.areChildsVisible(), newItem.areChildsVisible())
                                       .append(oldItem.isBookmarked(), newItem.isBookmarked())
@@ -150,7 +150,8 @@ public class UserTocFragment extends ReaderBaseFragment {
         getReaderViewModel().getUserTocLiveData()
                             .observe(this, userTocResultWrapper -> {
                                 if (userTocResultWrapper != null) {
-                                    newAdapter.submitList(userTocResultWrapper.getList());
+                                    newAdapter.submitChanges(userTocResultWrapper.getPreviousList(), userTocResultWrapper.getList(),
+                                                             userTocResultWrapper.getChangedPositions());
                                     if (userTocResultWrapper.getScrollToPosition() != -1) {
                                         layoutManager.setSnapPreference(userTocResultWrapper.isCenterScroll() ? SnapLayoutManager.SNAP_TO_CENTER : SnapLayoutManager.SNAP_TO_START);
                                         mRecyclerView.smoothScrollToPosition(userTocResultWrapper.getScrollToPosition());
@@ -9,6 +9,9 @@ import java.util.List;
 
 /**
  * Created by mate on 08.03.18.
+ * <p>
+ * Live state of one entry of the user toc. The adapter gets {@link #getSnapshot() snapshots}, which are kept until the
+ * shown state of the entry changes, so unchanged entries are shared between published lists.
  */
 
 public class UserTocItem implements Cloneable {
@@ -16,6 +19,10 @@ public class UserTocItem implements Cloneable {
     private boolean active;
     private boolean bookmarked;
     private boolean childsVisible;
+    // bookmarked entries below this one
+    private int     bookmarkedChildCount;
+
+    private UserTocItem snapshot;
 
     private UserTocItem parent;
     private List<UserTocItem> childs = new ArrayList<>();
@@ -25,7 +32,7 @@ public class UserTocItem implements Cloneable {
     public UserTocItem(UserTocItem parent, @NonNull ITocItem indexItem) {
         this.parent = parent;
         this.indexItem = indexItem;
-        setBookmarkedStateFromIndex();
+        bookmarked = indexItem.isBookmarked();
         if (parent != null) {
             parent.addChild(this);
         }
@@ -36,7 +43,16 @@ public class UserTocItem implements Cloneable {
         return (UserTocItem) super.clone();
     }
 
+    /**
+     * @return a copy of the current state, the same instance until the state changes
+     */
+    UserTocItem getSnapshot() throws CloneNotSupportedException {
+        if (snapshot == null) snapshot = clone();
+        return snapshot;
+    }
+
     public void setChildsVisible(boolean childsVisible) {
+        if (this.childsVisible != childsVisible) snapshot = null;
         this.childsVisible = childsVisible;
         if (!childsVisible && hasChilds()) {
             for (UserTocItem child : childs) {
@@ -54,6 +70,7 @@ public class UserTocItem implements Cloneable {
     }
 
     public void setActive(boolean active) {
+        if (this.active != active) snapshot = null;
         this.active = active;
     }
 
@@ -75,6 +92,17 @@ public class UserTocItem implements Cloneable {
 
     private void addChild(UserTocItem child) {
         childs.add(child);
+        int count = child.bookmarkedChildCount + (child.bookmarked ? 1 : 0);
+        if (count != 0) changeBookmarkedChildCount(count);
+    }
+
+    private void changeBookmarkedChildCount(int delta) {
+        bookmarkedChildCount += delta;
+        if (parent != null) parent.changeBookmarkedChildCount(delta);
+    }
+
+    public boolean hasBookmarkedChilds() {
+        return bookmarkedChildCount > 0;
     }
 
     public List<UserTocItem> addChilds(List<ITocItem> indexItems) {
@@ -97,7 +125,10 @@ public class UserTocItem implements Cloneable {
     }
 
     public void setBookmarkedStateFromIndex() {
-        if (indexItem != null) bookmarked = indexItem.isBookmarked();
+        if (indexItem == null || bookmarked == indexItem.isBookmarked()) return;
+        bookmarked = indexItem.isBookmarked();
+        snapshot = null;
+        if (parent != null) parent.changeBookmarkedChildCount(bookmarked ? 1 : -1);
     }
 
     public boolean isBookmarked() {
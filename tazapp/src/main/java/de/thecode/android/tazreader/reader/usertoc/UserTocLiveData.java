@@ -25,12 +25,18 @@ import timber.log.Timber;
  */
 public class UserTocLiveData extends LiveData<UserTocLiveData.ResultWrapper> {
 
+    private static final String TOPLINK_PREFIX = "toplink_";
+
     private final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingDeque<>());
 
     private final Map<String, UserTocItem> userTocMap = new LinkedHashMap<>();
     private final LiveData<ITocItem> currentKeyLiveData;
     private       boolean            filterBookmarks;
     private       boolean            expanded;
+    // entries of the current key, in the index and as toplink
+    private final List<UserTocItem>  activeItems = new ArrayList<>();
+    // last posted list, only used on the executor
+    private       List<UserTocItem>  published;
 
     private final Observer<ITocItem> currentKeyObserver = tocItem ->
         executor.execute(new ParametrizedRunnable<ITocItem>() {
@@ -39,11 +45,15 @@ public class UserTocLiveData extends LiveData<UserTocLiveData.ResultWrapper> {
                 if (!expanded) expandAllInternal(false);
                 if (tocItem instanceof Paper.Plist.Page) tocItem = tocItem.getIndexParent();
                 expandInternal(tocItem, true);
-                for (Map.Entry<String, UserTocItem> userTocItemEntry : userTocMap.entrySet()) {
-                    UserTocItem userTocItem = userTocItemEntry.getValue();
+                for (UserTocItem activeItem : activeItems) {
+                    activeItem.setActive(false);
+                }
+                activeItems.clear();
+                for (String key : new String[]{tocItem.getKey(), TOPLINK_PREFIX + tocItem.getKey()}) {
+                    UserTocItem userTocItem = userTocMap.get(key);
                     if (userTocItem != null) {
-                        userTocItem.setActive(tocItem.getKey()
-                                                     .equals(userTocItem.getKey()));
+                        userTocItem.setActive(true);
+                        activeItems.add(userTocItem);
                     }
                 }
                 publish(true);
@@ -119,10 +129,12 @@ public class UserTocLiveData extends LiveData<UserTocLiveData.ResultWrapper> {
                 }
                 for (ITocItem toplink : plist.getToplinks()) {
                     UserTocItem item = new UserTocItem(null, toplink);
-                    result.put("toplink_" + item.getKey(), item);
+                    result.put(TOPLINK_PREFIX + item.getKey(), item);
                 }
                 userTocMap.clear();
                 userTocMap.putAll(result);
+                activeItems.clear();
+                published = null;
 
             }
         }.set(plist));
@@ -138,22 +150,24 @@ public class UserTocLiveData extends LiveData<UserTocLiveData.ResultWrapper> {
         return filterBookmarks;
     }
 
+    /**
+     * Posts the shown entries. Entries whose state did not change are the same instances as in the last posted list. If
+     * only the state of some entries changed, their positions are posted with it, so the adapter does not need to diff.
+     */
     private void publish(boolean scrollToActive) {
         executor.execute(new ParametrizedRunnable<Boolean>() {
             @Override
             public void run(Boolean scrollToActive) {
                 if (scrollToActive == null) scrollToActive = false;
                 ResultWrapper result = new ResultWrapper();
-                List<UserTocItem> shownIndex = new ArrayList<>();
+                List<UserTocItem> shownIndex = new ArrayList<>(published != null ? published.size() : userTocMap.size());
                 for (Map.Entry<String, UserTocItem> tocItemEntry : userTocMap.entrySet()) {
                     UserTocItem tocItem = tocItemEntry.getValue();
-                    if (tocItem.isVisible() || (filterBookmarks && tocItem.getIndexItem()
-                                                                          .hasBookmarkedChilds())) {
-                        if (!filterBookmarks || tocItem.getIndexItem()
-                                                       .isBookmarked() || tocItem.getIndexItem()
-                                                                                 .hasBookmarkedChilds()) {
+                    boolean bookmarkedChilds = filterBookmarks && tocItem.hasBookmarkedChilds();
+                    if (tocItem.isVisible() || bookmarkedChilds) {
+                        if (!filterBookmarks || tocItem.isBookmarked() || bookmarkedChilds) {
                             try {
-                                shownIndex.add(tocItem.clone());
+                                shownIndex.add(tocItem.getSnapshot());
                                 if (scrollToActive && result.scrollToPosition == -1 && tocItem.isActive()) {
                                     result.scrollToPosition = shownIndex.size() - 1;
                                     result.centerScroll = tocItem.getIndexItem() instanceof Paper.Plist.Page.Article;
@@ -164,12 +178,34 @@ public class UserTocLiveData extends LiveData<UserTocLiveData.ResultWrapper> {
                         }
                     }
                 }
+                List<Integer> changedPositions = getChangedPositions(published, shownIndex);
+                if (changedPositions != null && changedPositions.isEmpty() && result.scrollToPosition == -1) return;
+                result.previousList = published;
                 result.list = shownIndex;
+                result.changedPositions = changedPositions;
+                published = shownIndex;
                 postValue(result);
             }
         }.set(scrollToActive));
     }
 
+    /**
+     * @return the positions of changed entries or {@code null} if entries were added, removed or moved
+     */
+    private static List<Integer> getChangedPositions(List<UserTocItem> oldList, List<UserTocItem> newList) {
+        if (oldList == null || oldList.size() != newList.size()) return null;
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < newList.size(); i++) {
+            UserTocItem oldItem = oldList.get(i);
+            UserTocItem newItem = newList.get(i);
+            if (oldItem == newItem) continue;
+            if (!oldItem.getKey()
+                        .equals(newItem.getKey())) return null;
+            result.add(i);
+        }
+        return result;
+    }
+
     public void onBookmarkChanged(ITocItem item) {
         executor.execute(new ParametrizedRunnable<ITocItem>() {
             @Override
@@ -187,6 +223,8 @@ public class UserTocLiveData extends LiveData<UserTocLiveData.ResultWrapper> {
         private int scrollToPosition = -1;
         private boolean           centerScroll;
         private List<UserTocItem> list;
+        private List<UserTocItem> previousList;
+        private List<Integer>     changedPositions;
 
         int getScrollToPosition() {
             return scrollToPosition;
@@ -199,5 +237,19 @@ public class UserTocLiveData extends LiveData<UserTocLiveData.ResultWrapper> {
         boolean isCenterScroll() {
             return centerScroll;
         }
+
+        /**
+         * @return the list posted before, {@link #getChangedPositions()} refer to it
+         */
+        List<UserTocItem> getPreviousList() {
+            return previousList;
+        }
+
+        /**
+         * @return the positions changed since {@link #getPreviousList()} or {@code null} if the list has to be diffed
+         */
+        List<Integer> getChangedPositions() {
+            return changedPositions;
+        }
     }
 }
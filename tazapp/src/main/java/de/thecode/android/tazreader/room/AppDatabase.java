@@ -3,6 +3,7 @@ package de.thecode.android.tazreader.room;
 import android.content.Context;
 
 import de.thecode.android.tazreader.data.Download;
+import de.thecode.android.tazreader.data.DownloadEngineTypeConverter;
 import de.thecode.android.tazreader.data.DownloadStateTypeConverter;
 import de.thecode.android.tazreader.data.DownloadTypeTypeConverter;
 import de.thecode.android.tazreader.data.FileTypeConverter;
@@ -19,10 +20,10 @@ import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
 
 @Database(entities = {Paper.class, Resource.class, Store.class, Publication.class, Download.class}, version = AppDatabase.VERSION)
-@TypeConverters({DownloadStateTypeConverter.class, DownloadTypeTypeConverter.class, UuidTypeConverter.class, FileTypeConverter.class, UnmeteredDownloadOnlyConverter.class})
+@TypeConverters({DownloadStateTypeConverter.class, DownloadTypeTypeConverter.class, UuidTypeConverter.class, FileTypeConverter.class, UnmeteredDownloadOnlyConverter.class, DownloadEngineTypeConverter.class})
 public abstract class AppDatabase extends RoomDatabase {
 
-    public static final  int    VERSION = 11;
+    public static final  int    VERSION = 13;
     private static final String DB_NAME = "db";
 
     private static volatile AppDatabase instance;
@@ -3,7 +3,9 @@ package de.thecode.android.tazreader.room
 import androidx.lifecycle.LiveData
 import androidx.room.Dao
 import androidx.room.Query
+import androidx.room.Update
 import de.thecode.android.tazreader.data.Download
+import de.thecode.android.tazreader.data.DownloadState
 import de.thecode.android.tazreader.data.DownloadType
 import java.util.*
 
@@ -21,9 +23,18 @@ interface DownloadsDao : BaseDao<Download> {
     @Query("SELECT * FROM DOWNLOADS WHERE type = :type")
     fun getByType(type: DownloadType): List<Download>
 
+    @Query("SELECT COUNT(*) FROM DOWNLOADS WHERE type = :type AND state = :state")
+    fun countByTypeAndState(type: DownloadType, state: DownloadState): Int
+
     @Query("DELETE FROM DOWNLOADS WHERE `key` = :key")
     fun deleteByKey(key: String)
 
+    /**
+     * @return the number of updated rows, a download deleted in the meantime is not inserted again
+     */
+    @Update
+    fun update(download: Download): Int
+
     @Query("SELECT * FROM DOWNLOADS WHERE workerUuid = :uuid")
     fun getByWorkerUuid(uuid: UUID): Download?
 }
\ No newline at end of file
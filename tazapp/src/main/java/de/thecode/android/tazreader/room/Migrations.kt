@@ -19,10 +19,49 @@ object Migrations {
                 MIGRATION_7_8,
                 MIGRATION_8_9,
                 MIGRATION_9_10,
-                MIGRATION_10_11
+                MIGRATION_10_11,
+                MIGRATION_11_12,
+                MIGRATION_12_13
         )
     }
 
+    private val MIGRATION_12_13: Migration = object : Migration(12, 13) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            Timber.i("Migration 12->13")
+            db.execSQL("ALTER TABLE STORE ADD COLUMN `bookId` TEXT;")
+            // instr() is missing in the SQLite of older Android versions
+            val update = db.compileStatement("UPDATE STORE SET bookId = ? WHERE path = ?;")
+            val cursor = db.query("SELECT path FROM STORE")
+            try {
+                while (cursor.moveToNext()) {
+                    val path = cursor.getString(0)
+                    // a copy of Store.getBookId as of version 13, the migration must not change with the app code
+                    val start = if (path.startsWith("/")) 1 else 0
+                    val end = path.indexOf('/', start)
+                    if (end <= start) continue
+                    update.bindString(1, path.substring(start, end))
+                    update.bindString(2, path)
+                    update.executeUpdateDelete()
+                }
+            } finally {
+                cursor.close()
+                update.close()
+            }
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_STORE_bookId` ON `STORE` (`bookId`)")
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_PAPER_date` ON `PAPER` (`date`)")
+        }
+    }
+
+    private val MIGRATION_11_12: Migration = object : Migration(11, 12) {
+        override fun migrate(db: SupportSQLiteDatabase) {
+            db.execSQL("ALTER TABLE DOWNLOADS ADD COLUMN `engine` TEXT NOT NULL DEFAULT 'SYSTEM';")
+            db.execSQL("ALTER TABLE DOWNLOADS ADD COLUMN `url` TEXT;")
+            db.execSQL("ALTER TABLE DOWNLOADS ADD COLUMN `totalBytes` INTEGER NOT NULL DEFAULT 0;")
+            db.execSQL("ALTER TABLE DOWNLOADS ADD COLUMN `etag` TEXT;")
+            db.execSQL("ALTER TABLE DOWNLOADS ADD COLUMN `segments` TEXT;")
+        }
+    }
+
     private val MIGRATION_10_11: Migration = object : Migration(10, 11) {
         override fun migrate(db: SupportSQLiteDatabase) {
             db.execSQL("ALTER TABLE DOWNLOADS ADD COLUMN `unmeteredOnly` INTEGER;")
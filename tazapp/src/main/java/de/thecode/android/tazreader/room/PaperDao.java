@@ -2,39 +2,80 @@ package de.thecode.android.tazreader.room;
 
 import de.thecode.android.tazreader.data.Paper;
 import de.thecode.android.tazreader.data.PaperWithDownloadState;
+import de.thecode.android.tazreader.data.Resource;
 
 import java.util.List;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.DataSource;
 import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 @Dao
 public abstract class PaperDao implements BaseDao<Paper>{
 
+    private static final String LIBRARY_SELECT = "SELECT PAPER.*,DOWNLOADS.state as downloadState, DOWNLOADS.progress as progress FROM PAPER LEFT OUTER JOIN DOWNLOADS ON DOWNLOADS.`key` = PAPER.bookId";
+    private static final String LIBRARY_FILTER = "(PAPER.validUntil >= :now OR IFNULL(DOWNLOADS.state, 'NONE') != 'NONE') AND (:demoOnly = 0 OR demo = 1)";
+
     @Query("SELECT * FROM PAPER ORDER BY date DESC")
     public abstract List<Paper> getAllPapers();
 
     @Query("SELECT * FROM PAPER ORDER BY date DESC LIMIT 1")
     public abstract Paper getLatestPaper();
 
-    @Query("SELECT * FROM PAPER WHERE bookId LIKE :bookId")
+    @Query("SELECT * FROM PAPER WHERE bookId = :bookId")
     public abstract Paper getPaper(String bookId);
 
     @Query("SELECT * FROM PAPER WHERE bookId IN (:bookIds)")
     public abstract List<Paper> getPapers(String... bookIds);
 
+    @Query("UPDATE PAPER SET validUntil = :validUntil WHERE bookId IN (:bookIds)")
+    public abstract void updateValidUntil(long validUntil, List<String> bookIds);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertResources(List<Resource> resources);
+
+    /**
+     * Writes the result of a sync in one transaction. The outdated bookIds come in chunks small enough for one
+     * query each.
+     */
+    @Transaction
+    public void applySync(List<Paper> changedPapers, List<Resource> newResources, long validUntil,
+                          List<List<String>> outdatedBookIdChunks) {
+        if (!newResources.isEmpty()) insertResources(newResources);
+        if (!changedPapers.isEmpty()) insert(changedPapers);
+        for (List<String> chunk : outdatedBookIdChunks) {
+            updateValidUntil(validUntil, chunk);
+        }
+    }
+
     @Query("SELECT PAPER.*,DOWNLOADS.state as downloadState, DOWNLOADS.progress as progress FROM PAPER LEFT OUTER JOIN DOWNLOADS ON DOWNLOADS.`key` = :bookId WHERE bookId = :bookId")
     public abstract PaperWithDownloadState get(String bookId);
 
 
-    @Query("SELECT PAPER.*,DOWNLOADS.state as downloadState, DOWNLOADS.progress as progress FROM PAPER LEFT OUTER JOIN DOWNLOADS ON DOWNLOADS.`key` = PAPER.bookId ORDER BY date DESC")
-    public abstract LiveData<List<PaperWithDownloadState>> getLiveForLibrary();
+    /**
+     * Papers shown in the library, newest first. Papers no longer valid are only shown while they have a download.
+     * Loaded in pages, only the visible part of the library is read and diffed.
+     *
+     * @param now      current time in seconds
+     * @param demoOnly only demo papers
+     */
+    @Query(LIBRARY_SELECT + " WHERE " + LIBRARY_FILTER + " ORDER BY date DESC")
+    public abstract DataSource.Factory<Integer, PaperWithDownloadState> getPagedForLibrary(long now, boolean demoOnly);
 
-    @Query("SELECT PAPER.*,DOWNLOADS.state as downloadState, DOWNLOADS.progress as progress FROM PAPER LEFT OUTER JOIN DOWNLOADS ON DOWNLOADS.`key` = PAPER.bookId WHERE demo = 1 ORDER BY date DESC")
-    public abstract LiveData<List<PaperWithDownloadState>> getLiveForDemoLibrary();
+    /**
+     * The bookIds of {@link #getPagedForLibrary(long, boolean)}, for selecting papers not loaded yet.
+     *
+     * @param notDownloadedOnly only papers without download
+     */
+    @Query("SELECT PAPER.bookId FROM PAPER LEFT OUTER JOIN DOWNLOADS ON DOWNLOADS.`key` = PAPER.bookId WHERE " + LIBRARY_FILTER +
+            " AND (:notDownloadedOnly = 0 OR IFNULL(DOWNLOADS.state, 'NONE') = 'NONE') ORDER BY date DESC")
+    public abstract List<String> getBookIdsForLibrary(long now, boolean demoOnly, boolean notDownloadedOnly);
 
-    @Query("SELECT PAPER.*,DOWNLOADS.state as downloadState, DOWNLOADS.progress as progress FROM PAPER LEFT OUTER JOIN DOWNLOADS ON DOWNLOADS.`key` = PAPER.bookId WHERE bookId LIKE :bookId")
+    @Query("SELECT PAPER.*,DOWNLOADS.state as downloadState, DOWNLOADS.progress as progress FROM PAPER LEFT OUTER JOIN DOWNLOADS ON DOWNLOADS.`key` = PAPER.bookId WHERE bookId = :bookId")
     public abstract LiveData<PaperWithDownloadState> getPaperLiveData(String bookId);
 
 }
@@ -1,10 +1,14 @@
 package de.thecode.android.tazreader.room;
 
 import androidx.room.Dao;
+import androidx.room.Query;
 
 import de.thecode.android.tazreader.data.Publication;
 
 @Dao
 public abstract class PublicationDao implements BaseDao<Publication> {
 
+    @Query("SELECT MAX(validUntil) FROM PUBLICATION")
+    public abstract long getLatestValidUntil();
+
 }
@@ -18,6 +18,9 @@ public abstract class ResourceDao implements BaseDao<Resource> {
     @Query("SELECT * FROM RESOURCE")
     public abstract List<Resource> resources();
 
+    @Query("SELECT `key` FROM RESOURCE WHERE `key` IN (:keys)")
+    public abstract List<String> existingKeys(List<String> keys);
+
     @Query("SELECT * FROM RESOURCE WHERE `key` LIKE :key")
     public abstract LiveData<Resource> liveResourceWithKey(String key);
 
@@ -11,23 +11,23 @@ import java.util.List;
 @Dao
 public abstract class StoreDao implements BaseDao<Store> {
 
-    @Query("SELECT * FROM STORE WHERE path LIKE :path")
+    @Query("SELECT * FROM STORE WHERE path = :path")
     public abstract Store withPath(String path);
 
     @Query("SELECT * FROM STORE")
     public abstract List<Store> getAll();
 
-    @Query("SELECT * FROM STORE WHERE path LIKE '/' || :bookId || '/%'")
+    @Query("SELECT * FROM STORE WHERE bookId = :bookId")
     public abstract List<Store> getAllForBookId(String bookId);
 
 
-    @Query("DELETE FROM STORE WHERE path LIKE :path")
+    @Query("DELETE FROM STORE WHERE path = :path")
     public abstract void deleteWithPath(String path);
 
-    @Query("SELECT * FROM STORE WHERE path LIKE :path")
+    @Query("SELECT * FROM STORE WHERE path = :path")
     public abstract LiveData<Store> liveWithPath(String path);
 
-    @Query("SELECT * FROM STORE WHERE path LIKE '/' || :bookId || '/%'")
+    @Query("SELECT * FROM STORE WHERE bookId = :bookId")
     public abstract LiveData<List<Store>> liveAllForBookId(String bookId);
 
 
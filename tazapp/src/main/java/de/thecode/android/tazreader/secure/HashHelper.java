@@ -4,7 +4,11 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -46,6 +50,45 @@ public class HashHelper {
         return convertByteArrayToHexString(digest.digest());
     }
 
+    /**
+     * Same as {@link #getHash(File, String)}, but reads the file through a channel into the given (preferably
+     * direct) buffer, which can be reused for several files.
+     */
+    public static String getHash(File file, String algorithm, ByteBuffer buffer) throws NoSuchAlgorithmException, IOException {
+        MessageDigest digest = MessageDigest.getInstance(algorithm);
+        digest.reset();
+
+        FileInputStream is = new FileInputStream(file);
+        try {
+            FileChannel channel = is.getChannel();
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            is.close();
+        }
+
+        return convertByteArrayToHexString(digest.digest());
+    }
+
+    /**
+     * Copies {@code in} to {@code out} and returns the hash of all copied bytes, so a file can be checked while it is
+     * written.
+     */
+    public static String copyWithHash(InputStream in, OutputStream out, MessageDigest digest, byte[] buffer) throws
+            IOException {
+        digest.reset();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            out.write(buffer, 0, read);
+        }
+        return convertByteArrayToHexString(digest.digest());
+    }
+
     public static boolean verifyHash(File file, String hash, String algorithm) throws IOException, NoSuchAlgorithmException {
         return hash != null && hash.equals(getHash(file, algorithm));
     }
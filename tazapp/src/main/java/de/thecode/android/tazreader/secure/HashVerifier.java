@@ -0,0 +1,130 @@
+package de.thecode.android.tazreader.secure;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import timber.log.Timber;
+
+/**
+ * Verifies the hashes of many files in parallel on a bounded thread pool. Every thread reads through its own direct
+ * buffer. Verification stops at the first missing file or wrong hash, or as soon as the {@link Callback} reports
+ * cancellation.
+ */
+public class HashVerifier {
+
+    private static final int MAX_THREADS = 4;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    public interface Callback {
+        boolean isCancelled();
+
+        void onProgress(int verified, int total);
+    }
+
+    public static class HashMismatchException extends IOException {
+        HashMismatchException(File file) {
+            super("Falscher Hash-Wert für Datei " + file.getName());
+        }
+    }
+
+    public static class CancelledException extends IOException {
+        CancelledException() {
+            super("Überprüfung abgebrochen");
+        }
+    }
+
+    private final String algorithm;
+    private final int    threads;
+
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
+    public HashVerifier(String algorithm) {
+        this(algorithm, Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime()
+                                                                 .availableProcessors())));
+    }
+
+    public HashVerifier(String algorithm, int threads) {
+        this.algorithm = algorithm;
+        this.threads = threads;
+    }
+
+    /**
+     * @param hashVals relative file path in {@code dir} to expected hash
+     */
+    public void verify(final File dir, Map<String, String> hashVals, final Callback callback) throws IOException,
+            NoSuchAlgorithmException {
+        final int total = hashVals.size();
+        if (total == 0) return;
+        final AtomicBoolean abort = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, total));
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            int submitted = 0;
+            for (final Map.Entry<String, String> entry : hashVals.entrySet()) {
+                if (entry.getKey() == null || entry.getKey()
+                                                   .trim()
+                                                   .isEmpty()) continue;
+                completionService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (abort.get()) return null;
+                        File file = new File(dir, entry.getKey());
+                        if (!file.exists()) throw new FileNotFoundException(file.getAbsolutePath() + " not found");
+                        String hash = HashHelper.getHash(file, algorithm, buffers.get());
+                        if (!hash.equals(entry.getValue())) throw new HashMismatchException(file);
+                        return null;
+                    }
+                });
+                submitted++;
+            }
+            for (int verified = 1; verified <= submitted; verified++) {
+                if (callback.isCancelled()) {
+                    abort.set(true);
+                    throw new CancelledException();
+                }
+                try {
+                    completionService.take()
+                                     .get();
+                } catch (ExecutionException e) {
+                    abort.set(true);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    if (cause instanceof NoSuchAlgorithmException) throw (NoSuchAlgorithmException) cause;
+                    throw new IOException(cause);
+                }
+                callback.onProgress(verified, submitted);
+            }
+        } catch (InterruptedException e) {
+            abort.set(true);
+            Thread.currentThread()
+                  .interrupt();
+            throw new CancelledException();
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Timber.w(e);
+                Thread.currentThread()
+                      .interrupt();
+            }
+        }
+    }
+}
@@ -23,12 +23,13 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
+import androidx.paging.PagedList;
 
 public class StartViewModel extends AndroidViewModel {
 
 
     private final MutableLiveData<Boolean>                      demoModeLiveData            = new MutableLiveData<>();
-    private final LiveData<List<PaperWithDownloadState>>        livePapers;
+    private final LiveData<PagedList<PaperWithDownloadState>>   livePapers;
     private final TazSettings                                   settings;
     private final StorageManager                                storageManager;
     private final PaperRepository                               paperRepository;
@@ -52,18 +53,7 @@ public class StartViewModel extends AndroidViewModel {
         settings = TazSettings.getInstance(application);
         settings.addDemoModeListener(demoModeListener);
         demoModeLiveData.setValue(settings.isDemoMode());
-        LiveData<List<PaperWithDownloadState>> sourceLivePapers = Transformations.switchMap(demoModeLiveData,
-                                                                                            demoMode -> demoMode ? paperRepository.getLivePapersForDemoLibrary() : paperRepository.getLivePapersForLibrary());
-        livePapers = Transformations.map(sourceLivePapers, this::filterLibraryList);
-    }
-
-    private List<PaperWithDownloadState> filterLibraryList(List<PaperWithDownloadState> input) {
-        List<PaperWithDownloadState> result = new ArrayList<>();
-        for (PaperWithDownloadState paper : input) {
-            if ((paper.getValidUntil() >= System.currentTimeMillis() / 1000) || paper.getDownloadState() != DownloadState.NONE)
-                result.add(paper);
-        }
-        return result;
+        livePapers = Transformations.switchMap(demoModeLiveData, paperRepository::getPagedPapersForLibrary);
     }
 
     @Override
@@ -81,10 +71,21 @@ public class StartViewModel extends AndroidViewModel {
         return navBackstack;
     }
 
-    public LiveData<List<PaperWithDownloadState>> getLivePapers() {
+    public LiveData<PagedList<PaperWithDownloadState>> getLivePapers() {
         return livePapers;
     }
 
+    /**
+     * Loads the bookIds of all papers in the library, the paged list only holds the papers scrolled to so far.
+     *
+     * @param notDownloadedOnly only papers without download
+     */
+    public void loadLibraryBookIds(boolean notDownloadedOnly, AsyncTaskListener.OnSuccess<List<String>> listener) {
+        boolean demoOnly = Boolean.TRUE.equals(demoModeLiveData.getValue());
+        new AsyncTaskListener<Void, List<String>>(aVoid -> paperRepository.getBookIdsForLibrary(demoOnly, notDownloadedOnly),
+                                                  listener).execute();
+    }
+
     public void setPaperMetaDataMap(NewLibraryAdapter.PaperMetaData paperMetaDataMap) {
         this.paperMetaDataMap = paperMetaDataMap;
     }
@@ -166,7 +167,7 @@ public class StartViewModel extends AndroidViewModel {
                 Download download = paperRepository.getDownloadForPaper(paperToDelete.getBookId());
                 if (download.getState() == DownloadState.DOWNLOADING) {
                     TazDownloadManager.Companion.getInstance()
-                                                .cancelDownload(download.getDownloadManagerId());
+                                                .cancelDownload(download);
                 }
                 paperRepository.deletePaper(paperToDelete);
             }
@@ -330,13 +330,13 @@ public class LibraryFragment extends StartBaseFragment {
                     mode.finish();
                     return true;
                 case R.id.ic_action_selectall:
-                    adapter.selectAll();
+                    startViewModel.loadLibraryBookIds(false, adapter::selectAll);
                     return true;
                 case R.id.ic_action_selectinvert:
-                    adapter.selectionInverse();
+                    startViewModel.loadLibraryBookIds(false, adapter::selectionInverse);
                     return true;
                 case R.id.ic_action_selectnotloaded:
-                    adapter.selectNotDownloadedPapers();
+                    startViewModel.loadLibraryBookIds(true, adapter::selectNotDownloadedPapers);
                     return true;
             }
 
@@ -12,13 +12,15 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import com.squareup.picasso.NetworkPolicy;
-import com.squareup.picasso.Picasso;
 
 import de.thecode.android.tazreader.R;
+import de.thecode.android.tazreader.TazApplicationKt;
 import de.thecode.android.tazreader.data.Paper;
 import de.thecode.android.tazreader.data.PaperWithDownloadState;
+import de.thecode.android.tazreader.download.DownloadProgressBus;
+import de.thecode.android.tazreader.picasso.PicassoHelper;
 import de.thecode.android.tazreader.sync.PreloadImageCallback;
-import de.thecode.android.tazreader.utils.TazListAdapter;
+import de.thecode.android.tazreader.utils.TazPagedListAdapter;
 import de.thecode.android.tazreader.utils.extendedasyncdiffer.ExtendedAdapterListUpdateCallback;
 
 import java.text.DateFormat;
@@ -36,9 +38,8 @@ import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import timber.log.Timber;
 
-import static de.thecode.android.tazreader.data.DownloadState.NONE;
 
-public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, NewLibraryAdapter.ViewHolder> {
+public class NewLibraryAdapter extends TazPagedListAdapter<PaperWithDownloadState, NewLibraryAdapter.ViewHolder> {
 
 
     private static final String PAYLOAD_PROGRESS = "plProgress";
@@ -50,18 +51,32 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
     private final ViewHolder.OnClickListener clickListener = new ViewHolder.OnClickListener() {
         @Override
         public void onClick(int position) {
-            if (itemClickListener != null) itemClickListener.onClick(getItem(position), position);
+            PaperWithDownloadState paper = getItem(position);
+            if (paper != null && itemClickListener != null) itemClickListener.onClick(paper, position);
         }
 
         @Override
         public void onLongClick(int position) {
             Paper paper = getItem(position);
-            toggleSelection(paper, position);
+            if (paper != null) toggleSelection(paper, position);
+        }
+    };
+
+    // progress of running downloads comes from memory, only the visible items are rebound
+    private final DownloadProgressBus.Listener progressListener = (key, progress) -> {
+        if (recyclerView == null) return;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            ViewHolder holder = (ViewHolder) recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            int position = holder.getAdapterPosition();
+            if (key.equals(holder.bookId) && position != RecyclerView.NO_POSITION) {
+                notifyItemChanged(position, PAYLOAD_PROGRESS);
+            }
         }
     };
 
     private final OnItemClickListener itemClickListener;
     private final PaperMetaData       paperMetaData;
+    private       RecyclerView        recyclerView;
 
     public NewLibraryAdapter(PaperMetaData paperMetaData, OnItemClickListener itemClickListener,
                              ExtendedAdapterListUpdateCallback.OnFirstInsertedListener firstInsertedListener) {
@@ -70,6 +85,22 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
         this.paperMetaData = paperMetaData;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        this.recyclerView = recyclerView;
+        TazApplicationKt.getDownloadProgressBus()
+                        .addListener(progressListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        TazApplicationKt.getDownloadProgressBus()
+                        .removeListener(progressListener);
+        this.recyclerView = null;
+    }
+
     public PaperMetaData getPaperMetaData() {
         return paperMetaData;
     }
@@ -94,6 +125,8 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
             super.onBindViewHolder(holder, position, payloads);
         } else {
             PaperWithDownloadState libraryPaper = getItem(position);
+            // placeholder, bound completely when loaded
+            if (libraryPaper == null) return;
             if (payloads.contains(PAYLOAD_SELECTED)) bindSelected(holder, libraryPaper);
             if (payloads.contains(PAYLOAD_STATE)) bindState(holder, libraryPaper);
             if (payloads.contains(PAYLOAD_PROGRESS)) bindProgress(holder, libraryPaper);
@@ -105,6 +138,11 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         PaperWithDownloadState libraryPaper = getItem(position);
 //        paperMetaData.setPosition(libraryPaper.getBookId(), position);
+        holder.bookId = libraryPaper != null ? libraryPaper.getBookId() : null;
+        if (libraryPaper == null) {
+            bindPlaceholder(holder);
+            return;
+        }
         bindImage(holder, libraryPaper);
         bindBadge(holder, libraryPaper);
         bindDate(holder, libraryPaper);
@@ -114,14 +152,14 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
     }
 
     private void bindImage(ViewHolder holder, Paper paper) {
-        Picasso.with(holder.image.getContext())
+        PicassoHelper.with(holder.image.getContext())
                .load(paper.getImage())
                .placeholder(R.drawable.dummy)
                .networkPolicy(NetworkPolicy.OFFLINE)
                .into(holder.image, new MissingCoverCallback(holder.image, paper) {
                    @Override
                    public void onError(ImageView imageView, Paper paper) {
-                       Picasso.with(imageView.getContext())
+                       PicassoHelper.with(imageView.getContext())
                               .load(paper.getImage())
                               .placeholder(R.drawable.dummy)
                               .into(imageView);
@@ -134,6 +172,19 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
                });
     }
 
+    private void bindPlaceholder(ViewHolder holder) {
+        PicassoHelper.with(holder.image.getContext())
+               .cancelRequest(holder.image);
+        holder.image.setImageResource(R.drawable.dummy);
+        holder.badge.setVisibility(View.GONE);
+        holder.date.setText(null);
+        holder.card.setContentDescription(null);
+        holder.progress.setVisibility(View.GONE);
+        holder.stateLayout.setVisibility(View.GONE);
+        holder.infoText.setVisibility(View.GONE);
+        holder.selected.setVisibility(View.INVISIBLE);
+    }
+
     private void bindBadge(ViewHolder holder, Paper paper) {
         holder.badge.setVisibility(View.GONE);
     }
@@ -153,7 +204,9 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
     }
 
     private void bindProgress(ViewHolder holder, PaperWithDownloadState libraryPaper) {
-        holder.progress.setProgress(100 - libraryPaper.getProgress());
+        Integer progress = TazApplicationKt.getDownloadProgressBus()
+                                           .get(libraryPaper.getBookId());
+        holder.progress.setProgress(100 - (progress != null ? progress : libraryPaper.getProgress()));
     }
 
     private void bindState(ViewHolder holder, PaperWithDownloadState paper) {
@@ -206,10 +259,13 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
         if (paperMetaData.clearSelected()) notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTED);
     }
 
-    public void selectAll() {
+    /**
+     * @param bookIds all papers of the library, the list only holds the loaded ones
+     */
+    public void selectAll(List<String> bookIds) {
         boolean changed = false;
-        for (Paper paper : getHelper().getCurrentList()) {
-            if (paperMetaData.setSelected(paper.getBookId(), true)) {
+        for (String bookId : bookIds) {
+            if (paperMetaData.setSelected(bookId, true)) {
                 changed = true;
             }
         }
@@ -219,10 +275,13 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
         }
     }
 
-    public void selectionInverse() {
+    /**
+     * @param bookIds all papers of the library, the list only holds the loaded ones
+     */
+    public void selectionInverse(List<String> bookIds) {
         boolean changed = false;
-        for (Paper paper : getHelper().getCurrentList()) {
-            if (paperMetaData.setSelected(paper.getBookId(), !paperMetaData.isSelected(paper.getBookId()))) {
+        for (String bookId : bookIds) {
+            if (paperMetaData.setSelected(bookId, !paperMetaData.isSelected(bookId))) {
                 changed = true;
             }
         }
@@ -233,10 +292,13 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
 
     }
 
-    public void selectNotDownloadedPapers() {
-        boolean changed = false;
-        for (PaperWithDownloadState paper : getHelper().getCurrentList()) {
-            if (paperMetaData.setSelected(paper.getBookId(), paper.getDownloadState() == NONE)) {
+    /**
+     * @param notDownloadedBookIds the papers of the library without download
+     */
+    public void selectNotDownloadedPapers(List<String> notDownloadedBookIds) {
+        boolean changed = paperMetaData.clearSelected();
+        for (String bookId : notDownloadedBookIds) {
+            if (paperMetaData.setSelected(bookId, true)) {
                 changed = true;
             }
         }
@@ -286,6 +348,7 @@ public class NewLibraryAdapter extends TazListAdapter<PaperWithDownloadState, Ne
         final TextView        state;
         final TextView        infoText;
         final OnClickListener listener;
+        String                bookId;
 
 
         public ViewHolder(View itemView, OnClickListener clickListener) {
@@ -0,0 +1,228 @@
+package de.thecode.android.tazreader.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Unused mutable bitmaps for reuse by page views, pre rendering and thumbnails, grouped by size and config. The pool
+ * holds at most {@link #MAX_SHARE} of the heap, bitmaps beyond that are recycled. Bitmaps taken from the pool have
+ * undefined content. The pool is emptied when the system asks to trim memory.
+ */
+public class BitmapPool implements ComponentCallbacks2 {
+
+    private static final int MAX_SHARE = 8;
+    // a pooled bitmap used for decoding may be at most this many times larger than needed
+    private static final int MAX_DECODE_OVERSIZE = 2;
+
+    private static volatile BitmapPool mInstance;
+
+    public static BitmapPool getInstance(Context context) {
+        if (mInstance == null) {
+            synchronized (BitmapPool.class) {
+                if (mInstance == null) {
+                    mInstance = new BitmapPool(Runtime.getRuntime()
+                                                      .maxMemory() / MAX_SHARE);
+                    context.getApplicationContext()
+                           .registerComponentCallbacks(mInstance);
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    private final Map<String, Deque<Bitmap>> buckets = new HashMap<>();
+    private final long                       maxBytes;
+    private       long                       bytes;
+
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    private BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a pooled bitmap of this size or creates a new one.
+     */
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = poll(width, height, config);
+        if (bitmap != null) return bitmap;
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Hands a bitmap to the pool. The caller must not use it anymore.
+     */
+    public void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        if (!bitmap.isMutable()) {
+            bitmap.recycle();
+            return;
+        }
+        long size = getSize(bitmap);
+        synchronized (this) {
+            if (size <= maxBytes) {
+                Deque<Bitmap> bucket = buckets.get(key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()));
+                if (bucket == null) {
+                    bucket = new ArrayDeque<>();
+                    buckets.put(key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()), bucket);
+                }
+                bucket.push(bitmap);
+                bytes += size;
+                trim(maxBytes);
+                return;
+            }
+            evictions++;
+        }
+        bitmap.recycle();
+    }
+
+    /**
+     * Sets {@link BitmapFactory.Options#inBitmap} to a pooled bitmap the decode result fits in. Call after decoding the
+     * bounds with the final {@code inSampleSize} set. If decoding into it fails, the bitmap should be put back and the
+     * decode repeated without it.
+     */
+    public void setInBitmap(BitmapFactory.Options options) {
+        options.inMutable = true;
+        if (options.outWidth <= 0 || options.outHeight <= 0) return;
+        Bitmap.Config config = options.inPreferredConfig != null ? options.inPreferredConfig : Bitmap.Config.ARGB_8888;
+        int sampleSize = Math.max(1, options.inSampleSize);
+        int width = (options.outWidth + sampleSize - 1) / sampleSize;
+        int height = (options.outHeight + sampleSize - 1) / sampleSize;
+        Bitmap bitmap;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            bitmap = pollAtLeast((long) width * height * bytesPerPixel(config), config);
+        } else if (sampleSize == 1) {
+            // before KitKat only bitmaps of exactly the same size can be reused
+            bitmap = poll(width, height, config);
+        } else {
+            bitmap = null;
+        }
+        options.inBitmap = bitmap;
+    }
+
+    public synchronized void clear() {
+        trim(0);
+    }
+
+    public synchronized String getStatistics() {
+        int requests = hits + misses;
+        int hitRate = requests == 0 ? 0 : hits * 100 / requests;
+        return "BitmapPool{bytes=" + bytes + ", max=" + maxBytes + ", hits=" + hits + ", misses=" + misses + ", hitRate="
+                + hitRate + "%, evictions=" + evictions + "}";
+    }
+
+    private synchronized Bitmap poll(int width, int height, Bitmap.Config config) {
+        Deque<Bitmap> bucket = buckets.get(key(width, height, config));
+        if (bucket == null || bucket.isEmpty()) {
+            misses++;
+            return null;
+        }
+        Bitmap bitmap = bucket.pop();
+        bytes -= getSize(bitmap);
+        hits++;
+        return bitmap;
+    }
+
+    private synchronized Bitmap pollAtLeast(long size, Bitmap.Config config) {
+        Deque<Bitmap> best = null;
+        long bestSize = Long.MAX_VALUE;
+        for (Deque<Bitmap> bucket : buckets.values()) {
+            Bitmap candidate = bucket.peek();
+            if (candidate == null || candidate.getConfig() != config) continue;
+            long candidateSize = getSize(candidate);
+            if (candidateSize >= size && candidateSize <= size * MAX_DECODE_OVERSIZE && candidateSize < bestSize) {
+                best = bucket;
+                bestSize = candidateSize;
+            }
+        }
+        if (best == null) {
+            misses++;
+            return null;
+        }
+        bytes -= bestSize;
+        hits++;
+        return best.pop();
+    }
+
+    // recycles pooled bitmaps, largest buckets first, until at most maxBytes are left
+    private void trim(long maxBytes) {
+        while (bytes > maxBytes) {
+            Deque<Bitmap> largest = null;
+            long largestSize = 0;
+            Iterator<Deque<Bitmap>> iterator = buckets.values()
+                                                      .iterator();
+            while (iterator.hasNext()) {
+                Deque<Bitmap> bucket = iterator.next();
+                if (bucket.isEmpty()) {
+                    iterator.remove();
+                    continue;
+                }
+                long size = getSize(bucket.peek());
+                if (size > largestSize) {
+                    largest = bucket;
+                    largestSize = size;
+                }
+            }
+            if (largest == null) {
+                bytes = 0;
+                return;
+            }
+            largest.pop()
+                   .recycle();
+            bytes -= largestSize;
+            evictions++;
+        }
+    }
+
+    private static String key(int width, int height, Bitmap.Config config) {
+        return width + "x" + height + ":" + config;
+    }
+
+    private static long getSize(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) return bitmap.getAllocationByteCount();
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            Timber.d("trimming on level %d, %s", level, getStatistics());
+            clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
@@ -3,10 +3,11 @@ package de.thecode.android.tazreader.utils;
 import android.content.Context;
 import android.text.TextUtils;
 
-import de.thecode.android.tazreader.data.FileCachePDFThumbHelper;
+import de.thecode.android.tazreader.data.PDFThumbStore;
 import de.thecode.android.tazreader.data.Paper;
 import de.thecode.android.tazreader.data.Resource;
 import de.thecode.android.tazreader.data.TazSettings;
+import de.thecode.android.tazreader.reader.article.ArticleHtmlCache;
 import de.thecode.android.tazreader.secure.HashHelper;
 
 import java.io.File;
@@ -149,7 +150,9 @@ public class StorageManager {
 
     public void deletePaperDir(Paper paper) {
         if (getPaperDirectory(paper).exists()) ExtensionsKt.deleteQuietly(getPaperDirectory(paper));
-        new FileCachePDFThumbHelper(this, paper.fileHash).deleteDir();
+        PDFThumbStore.getInstance(this, paper.fileHash)
+                     .delete();
+        ArticleHtmlCache.delete(this, paper);
     }
 
     public void deleteResourceDir(String key) {
@@ -50,6 +50,13 @@ public abstract class TazListAdapter<T, VH extends RecyclerView.ViewHolder> exte
         mHelper.submitList(list);
     }
 
+    /**
+     * Displays a list in which only single items changed, see {@link ExtendedAsyncListDiffer#submitChanges(List, List, List)}.
+     */
+    public void submitChanges(List<T> previousList, List<T> newList, List<Integer> changedPositions) {
+        mHelper.submitChanges(previousList, newList, changedPositions);
+    }
+
     @SuppressWarnings("unused")
     public T getItem(int position) {
         return mHelper.getCurrentList()
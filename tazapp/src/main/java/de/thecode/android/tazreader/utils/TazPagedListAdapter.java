@@ -0,0 +1,64 @@
+package de.thecode.android.tazreader.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.AsyncPagedListDiffer;
+import androidx.paging.PagedList;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import de.thecode.android.tazreader.utils.extendedasyncdiffer.ExtendedAdapterListUpdateCallback;
+
+/**
+ * Like {@link TazListAdapter} for a {@link PagedList}. Only the loaded pages are diffed, positions not loaded yet are
+ * placeholders and {@link #getItem(int)} returns {@code null} for them.
+ */
+public abstract class TazPagedListAdapter<T, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    private final AsyncPagedListDiffer<T>           mHelper;
+    private final ExtendedAdapterListUpdateCallback mUpdateCallback;
+
+    public TazPagedListAdapter(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
+        this(diffCallback, null);
+    }
+
+    public TazPagedListAdapter(@NonNull DiffUtil.ItemCallback<T> diffCallback,
+                               ExtendedAdapterListUpdateCallback.OnFirstInsertedListener firstInsertedListener) {
+        mUpdateCallback = new ExtendedAdapterListUpdateCallback(this, firstInsertedListener);
+        mHelper = new AsyncPagedListDiffer<>(mUpdateCallback, new AsyncDifferConfig.Builder<>(diffCallback).build());
+        mHelper.addPagedListListener((previousList, currentList) -> {
+            // like TazListAdapter, the first list is not reported as inserted
+            if (previousList != null) mUpdateCallback.callListener();
+            mUpdateCallback.resetCounters();
+        });
+    }
+
+    /**
+     * Submits a new list to be diffed, and displayed.
+     *
+     * @param pagedList The new list to be displayed.
+     */
+    public void submitList(PagedList<T> pagedList) {
+        mUpdateCallback.resetCounters();
+        mHelper.submitList(pagedList);
+    }
+
+    @Nullable
+    public PagedList<T> getCurrentList() {
+        return mHelper.getCurrentList();
+    }
+
+    /**
+     * @return the item or {@code null} while it is not loaded, also triggers loading around the position
+     */
+    @Nullable
+    public T getItem(int position) {
+        return mHelper.getItem(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mHelper.getItemCount();
+    }
+}
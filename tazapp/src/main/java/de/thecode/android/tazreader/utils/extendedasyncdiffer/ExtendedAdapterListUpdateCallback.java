@@ -59,11 +59,11 @@ public class ExtendedAdapterListUpdateCallback implements ListUpdateCallback {
         void onFinished(int firstInserted);
     }
 
-    void resetCounters() {
+    public void resetCounters() {
         firstInserted = -1;
     }
 
-    void callListener(){
+    public void callListener(){
         if (mListener != null && firstInserted != -1) mListener.onFinished(firstInserted);
     }
 }
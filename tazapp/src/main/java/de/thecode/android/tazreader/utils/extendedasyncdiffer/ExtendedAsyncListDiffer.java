@@ -253,6 +253,29 @@ public class ExtendedAsyncListDiffer<T> {
         });
     }
 
+    /**
+     * Swaps in a list in which only the items at {@code changedPositions} differ from {@code previousList}, without
+     * computing a diff. Falls back to {@link #submitList(List)} if {@code previousList} is not the current list, for
+     * example because its diff is still running, or if no positions are given.
+     *
+     * @param previousList     The list the changes refer to.
+     * @param newList          The new List.
+     * @param changedPositions The changed positions or {@code null} if the list has to be diffed.
+     */
+    public void submitChanges(@Nullable List<T> previousList, @NonNull List<T> newList, @Nullable List<Integer> changedPositions) {
+        if (changedPositions == null || previousList == null || previousList != mList) {
+            submitList(newList);
+            return;
+        }
+        // discard diffs still running for older lists
+        ++mMaxScheduledGeneration;
+        mList = newList;
+        mReadOnlyList = Collections.unmodifiableList(newList);
+        for (int position : changedPositions) {
+            mUpdateCallback.onChanged(position, 1, null);
+        }
+    }
+
     private void latchList(@NonNull List<T> newList, @NonNull DiffUtil.DiffResult diffResult) {
         mList = newList;
         mReadOnlyList = Collections.unmodifiableList(newList);
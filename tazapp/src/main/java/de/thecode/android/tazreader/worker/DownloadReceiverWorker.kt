@@ -16,16 +16,15 @@ import com.github.ajalt.timberkt.Timber.e
 import com.github.ajalt.timberkt.Timber.w
 import de.thecode.android.tazreader.*
 import de.thecode.android.tazreader.data.*
+import de.thecode.android.tazreader.download.ArchiveExtractor
 import de.thecode.android.tazreader.download.TazDownloadManager
 import de.thecode.android.tazreader.secure.HashHelper
+import de.thecode.android.tazreader.secure.HashVerifier
 import de.thecode.android.tazreader.start.StartActivity
 import de.thecode.android.tazreader.utils.deleteQuietly
 import org.apache.commons.compress.archivers.zip.ZipFile
-import org.apache.commons.compress.utils.IOUtils
 import org.greenrobot.eventbus.EventBus
 import java.io.File
-import java.io.FileNotFoundException
-import java.io.FileOutputStream
 import java.io.IOException
 import java.security.NoSuchAlgorithmException
 
@@ -43,12 +42,7 @@ class DownloadReceiverWorker(context: Context, workerParams: WorkerParameters) :
             }
             val download = downloadsRepository.get(downloadId)
             if (download != null) {
-                val data = Data.Builder()
-                        .putString(ARG_ACTION, action)
-                        .build()
-                val request = OneTimeWorkRequest.Builder(DownloadReceiverWorker::class.java)
-                        .setInputData(data)
-                        .build()
+                val request = createRequest(action)
 
                 download.workerUuid = request.id
                 downloadsRepository.save(download)
@@ -57,6 +51,16 @@ class DownloadReceiverWorker(context: Context, workerParams: WorkerParameters) :
             }
         }
 
+        fun createRequest(action: String?, tag: String? = null): OneTimeWorkRequest {
+            val data = Data.Builder()
+                    .putString(ARG_ACTION, action)
+                    .build()
+            val builder = OneTimeWorkRequest.Builder(DownloadReceiverWorker::class.java)
+                    .setInputData(data)
+            tag?.let { builder.addTag(it) }
+            return builder.build()
+        }
+
     }
 
     override fun doBackgroundWork(): Result {
@@ -65,7 +69,11 @@ class DownloadReceiverWorker(context: Context, workerParams: WorkerParameters) :
         try {
             download = getDownload()
             d { "download $download" }
-            val systemDownloadManagerInfo = downloadManager.getSystemDownloadManagerInfo(download.downloadManagerId)
+            val systemDownloadManagerInfo = when (download.engine) {
+                // the receiver only runs after the HttpDownloadWorker completed the file
+                DownloadEngine.HTTP -> TazDownloadManager.SystemDownloadManagerInfo(status = TazDownloadManager.SystemDownloadManagerInfo.STATE.SUCCESSFUL)
+                else -> downloadManager.getSystemDownloadManagerInfo(download.downloadManagerId)
+            }
             d { "systemDownloadState $systemDownloadManagerInfo" }
             val action = getAction()
             when (action) {
@@ -115,13 +123,18 @@ class DownloadReceiverWorker(context: Context, workerParams: WorkerParameters) :
                                     download.progress = 0
                                     download.state = DownloadState.EXTRACTING
                                     downloadsRepository.save(download)
-                                    extractDownload(download, targetDir)
+                                    val uncheckedHashVals = extractDownload(download, downloadable, targetDir)
 
                                     //Extraktion überprüfen
                                     download.state = DownloadState.CHECKING
-                                    download.progress = 100
+                                    download.progress = 0
                                     downloadsRepository.save(download)
-                                    checkFilesInTargetDir(download, targetDir)
+                                    checkFilesInTargetDir(download, targetDir, uncheckedHashVals)
+
+                                    //Inhaltsverzeichnis vorbereiten
+                                    if (download.type == DownloadType.PAPER) {
+                                        writeTocSnapshot(downloadable as Paper, targetDir)
+                                    }
 
                                     //Ist der Worker noch aktuell?
                                     if (isStopped) {
@@ -135,6 +148,8 @@ class DownloadReceiverWorker(context: Context, workerParams: WorkerParameters) :
                                     downloadsRepository.save(download)
                                     if (download.type == DownloadType.PAPER) {
                                         notificationUtils.showDownloadFinishedNotification(downloadable as Paper)
+                                        //Seitenvorschauen im Hintergrund erzeugen
+                                        ThumbnailWorker.enqueue(download.key)
                                     }
                                     EventBus.getDefault()
                                             .post(DownloadEvent(download))
@@ -217,12 +232,18 @@ class DownloadReceiverWorker(context: Context, workerParams: WorkerParameters) :
         return targetDir
     }
 
-    private fun extractDownload(download: Download, targetDir:File) {
-        if (isStopped) return
+    /**
+     * Extracts the archive in parallel and checks the hash of every file listed in the HashVals of its plist while
+     * it is written.
+     *
+     * @return the HashVals which could not be checked during extraction, or null if the plist could not be read from
+     * the archive
+     */
+    private fun extractDownload(download: Download, downloadable: Downloadable, targetDir: File): Map<String, String>? {
+        if (isStopped) return null
         try {
             val zipFile = ZipFile(download.file)
             zipFile.use { file ->
-                var compressedCount = 0L
                 var compressedSizeofAll = 0L
                 var uncompressedSizeofAll = 0L
                 val countEntries = file.entries
@@ -233,31 +254,20 @@ class DownloadReceiverWorker(context: Context, workerParams: WorkerParameters) :
                 }
                 d { "size of all zp entries: compressed = $compressedSizeofAll uncompressed = $uncompressedSizeofAll" }
                 if (targetDir.freeSpace < uncompressedSizeofAll) throw IOException("Nicht genügend Platz zum Entpacken in ${targetDir.absolutePath}")
-                val entries = file.entriesInPhysicalOrder
-                while (entries.hasMoreElements()) {
-                    if (isStopped) return
-                    val entry = entries.nextElement()
-                    val entryDestination = File(targetDir, entry.name)
-                    if (entry.isDirectory) {
-                        entryDestination.mkdirs()
-                    } else {
-                        entryDestination.parentFile.mkdirs()
-                        val inputStream = zipFile.getInputStream(entry)
-                        d { "extracting ${entry.name}…" }
-                        val outputStream = FileOutputStream(entryDestination)
-                        outputStream.use {
-                            IOUtils.copy(inputStream, outputStream)
-                            IOUtils.closeQuietly(inputStream)
-                            compressedCount += entry.compressedSize
-                            val progress = (compressedCount * 100 / compressedSizeofAll).toInt()
-                            if (progress != download.progress) {
-                                download.progress = progress
-                                downloadsRepository.save(download)
-                            }
-                            d { "… done" }
+                val hashVals = readHashValsFromArchive(file, download, downloadable)
+                val entries = file.entriesInPhysicalOrder.toList()
+                return ArchiveExtractor(download.file, targetDir).extract(entries, hashVals, object : ArchiveExtractor.Callback {
+                    override fun isCancelled(): Boolean {
+                        return isStopped
+                    }
+
+                    override fun onProgress(progress: Int) {
+                        if (progress != download.progress) {
+                            download.progress = progress
+                            downloadsRepository.postProgress(download)
                         }
                     }
-                }
+                })
             }
         } catch (e: IOException) {
             throw DownloadException(e.localizedMessage)
@@ -266,41 +276,90 @@ class DownloadReceiverWorker(context: Context, workerParams: WorkerParameters) :
         }
     }
 
-    private fun checkFilesInTargetDir(download: Download, targetDir: File){
-        if (isStopped) return
-        val plistFile = when (download.type) {
-            DownloadType.PAPER -> File(targetDir, Paper.CONTENT_PLIST_FILENAME)
-            DownloadType.RESOURCE -> File(targetDir, Resource.SHA1_PLIST)
+    private fun getPlistFileName(download: Download): String {
+        return when (download.type) {
+            DownloadType.PAPER -> Paper.CONTENT_PLIST_FILENAME
+            DownloadType.RESOURCE -> Resource.SHA1_PLIST
             else -> throw DownloadException("Kein PList-File zur Überprüfung für Download-Typ")
         }
-        if (!plistFile.exists()) throw DownloadException("Plist-Datei nicht vorhanden: ${plistFile.absolutePath}")
-        d { "parsing plist for HashVals…" }
+    }
+
+    private fun readHashValsFromArchive(file: ZipFile, download: Download, downloadable: Downloadable): Map<String, String>? {
+        val entry = file.getEntry(getPlistFileName(download)) ?: return null
+        d { "parsing plist in archive for HashVals…" }
+        return try {
+            file.getInputStream(entry).use { inputStream ->
+                if (downloadable is Paper) {
+                    // keep the parsed plist for the toc snapshot
+                    downloadable.parsePlist(inputStream)
+                    downloadable.plist.hashVals
+                } else {
+                    val root = PropertyListParser.parse(inputStream) as NSDictionary
+                    (root.objectForKey("HashVals") as NSDictionary).mapValues { (it.value as NSString).content }
+                }
+            }
+        } catch (e: Exception) {
+            // check the extracted files afterwards
+            w(e)
+            null
+        }
+    }
+
+    /**
+     * Checks the hashes of extracted files which could not be checked during extraction. If [hashVals] is null all
+     * files listed in the extracted plist are checked.
+     */
+    private fun checkFilesInTargetDir(download: Download, targetDir: File, hashVals: Map<String, String>?) {
+        if (isStopped) return
         try {
-            val root = PropertyListParser.parse(plistFile) as NSDictionary
-            val hashValsDict = root.objectForKey("HashVals") as NSDictionary
-            hashValsDict.entries.forEach {
-                if (isStopped) return
-                if (!it.key.isNullOrBlank()) {
-                    val checkFile = File(targetDir, it.key)
-                    d { "checking file ${checkFile.absolutePath}" }
-                    if (!checkFile.exists()) throw FileNotFoundException("${checkFile.absolutePath} not found")
-                    else {
-                        try {
-                            if (!HashHelper.verifyHash(checkFile, (it.value as NSString).content, HashHelper.SHA_1))
-                                throw IOException("Falscher Hash-Wert für Datei " + checkFile.name)
-                        } catch (e: NoSuchAlgorithmException) {
-                            w(e)
-                        }
+            val uncheckedHashVals = hashVals ?: readHashValsFromTargetDir(download, targetDir)
+            if (uncheckedHashVals.isEmpty()) return
+            d { "checking ${uncheckedHashVals.size} files…" }
+            HashVerifier(HashHelper.SHA_1).verify(targetDir, uncheckedHashVals, object : HashVerifier.Callback {
+                override fun isCancelled(): Boolean {
+                    return isStopped
+                }
 
+                override fun onProgress(verified: Int, total: Int) {
+                    val progress = verified * 100 / total
+                    if (progress != download.progress) {
+                        download.progress = progress
+                        downloadsRepository.postProgress(download)
                     }
                 }
-            }
+            })
+        } catch (e: DownloadException) {
+            throw e
+        } catch (e: HashVerifier.CancelledException) {
+            d { "checking cancelled" }
+        } catch (e: NoSuchAlgorithmException) {
+            w(e)
         } catch (e: Exception) {
             throw DownloadException(e.localizedMessage)
         }
     }
 
+    private fun readHashValsFromTargetDir(download: Download, targetDir: File): Map<String, String> {
+        val plistFile = File(targetDir, getPlistFileName(download))
+        if (!plistFile.exists()) throw DownloadException("Plist-Datei nicht vorhanden: ${plistFile.absolutePath}")
+        d { "parsing plist for HashVals…" }
+        val root = PropertyListParser.parse(plistFile) as NSDictionary
+        val hashValsDict = root.objectForKey("HashVals") as NSDictionary
+        return hashValsDict.mapValues { (it.value as NSString).content }
+    }
 
+    private fun writeTocSnapshot(paper: Paper, targetDir: File) {
+        if (isStopped) return
+        d { "writing toc snapshot…" }
+        try {
+            val plistFile = File(targetDir, Paper.CONTENT_PLIST_FILENAME)
+            if (!paper.hasPlist()) paper.parsePlist(plistFile)
+            TocSnapshot.write(paper.plist, File(targetDir, TocSnapshot.FILENAME), plistFile)
+        } catch (e: Exception) {
+            // not fatal, the reader falls back to parsing the plist
+            w(e)
+        }
+    }
 
     class DownloadException(message: String, val quiet:Boolean=false) : Exception(message)
 
@@ -0,0 +1,134 @@
+package de.thecode.android.tazreader.worker
+
+import android.app.DownloadManager
+import android.content.Context
+import android.os.SystemClock
+import androidx.work.*
+import com.github.ajalt.timberkt.Timber.d
+import com.github.ajalt.timberkt.Timber.e
+import com.github.ajalt.timberkt.Timber.w
+import de.thecode.android.tazreader.*
+import de.thecode.android.tazreader.data.Download
+import de.thecode.android.tazreader.data.DownloadEvent
+import de.thecode.android.tazreader.data.DownloadType
+import de.thecode.android.tazreader.data.UnmeteredDownloadOnly
+import de.thecode.android.tazreader.download.HttpDownloadEngine
+import de.thecode.android.tazreader.okhttp3.OkHttp3Helper
+import de.thecode.android.tazreader.sync.AccountHelper
+import de.thecode.android.tazreader.utils.deleteQuietly
+import org.greenrobot.eventbus.EventBus
+import java.io.IOException
+
+/**
+ * Runs a download with the [HttpDownloadEngine] and hands over to the [DownloadReceiverWorker] once the file is
+ * complete. Interrupted downloads are resumed on retry, also after the process has been killed.
+ */
+class HttpDownloadWorker(context: Context, workerParams: WorkerParameters) : LoggingWorker(context, workerParams) {
+
+    companion object {
+
+        private const val ARG_KEY = "key"
+        private const val MAX_ATTEMPTS = 5
+        // the resume state is saved this often, the progress in between only goes to the DownloadProgressBus
+        private const val CHECKPOINT_INTERVAL_MS = 10_000L
+
+        fun getTag(key: String): String {
+            return "httpdownload_$key"
+        }
+
+        /**
+         * Enqueues the download together with its receiver. Saves the download with the id of the receiver.
+         */
+        fun enqueue(download: Download) {
+            d { "scheduling HttpDownloadWorker for ${download.key}" }
+            val data = Data.Builder()
+                    .putString(ARG_KEY, download.key)
+                    .build()
+            val constraints = Constraints.Builder()
+                    .setRequiredNetworkType(if (download.unmeteredOnly == UnmeteredDownloadOnly.YES) NetworkType.UNMETERED else NetworkType.CONNECTED)
+                    .build()
+            val request = OneTimeWorkRequest.Builder(HttpDownloadWorker::class.java)
+                    .setInputData(data)
+                    .setConstraints(constraints)
+                    .addTag(getTag(download.key))
+                    .build()
+            val receiverRequest = DownloadReceiverWorker.createRequest(DownloadManager.ACTION_DOWNLOAD_COMPLETE,
+                    getTag(download.key))
+
+            download.workerUuid = receiverRequest.id
+            downloadsRepository.save(download)
+            WorkManager.getInstance()
+                    .beginUniqueWork(getTag(download.key), ExistingWorkPolicy.REPLACE, request)
+                    .then(receiverRequest)
+                    .enqueue()
+        }
+    }
+
+    override fun doBackgroundWork(): Result {
+        val key = inputData.getString(ARG_KEY) ?: return Result.failure()
+        val download = downloadsRepository.get(key) ?: return Result.failure()
+        d { "download $download" }
+        var lastCheckpoint = SystemClock.elapsedRealtime()
+        return try {
+            val complete = HttpDownloadEngine(createClient(download)).download(download,
+                    download.type == DownloadType.PAPER,
+                    object : HttpDownloadEngine.Callback {
+                        override fun isCancelled(): Boolean {
+                            return isStopped
+                        }
+
+                        override fun onProgress(download: Download) {
+                            val now = SystemClock.elapsedRealtime()
+                            // a cancelled download is deleted, it must not be written again
+                            if (isStopped) return
+                            if (now - lastCheckpoint >= CHECKPOINT_INTERVAL_MS) {
+                                lastCheckpoint = now
+                                downloadsRepository.update(download)
+                            } else {
+                                downloadsRepository.postProgress(download)
+                            }
+                        }
+                    })
+            // the receiver saves the next state, until then the progress is only published
+            if (!isStopped) downloadsRepository.postProgress(download)
+            if (complete) Result.success() else Result.retry()
+        } catch (e: HttpDownloadEngine.HttpException) {
+            if (e.code in 400..499) {
+                e(e)
+                download.file.deleteQuietly()
+                downloadsRepository.delete(download)
+                EventBus.getDefault()
+                        .post(DownloadEvent(download, e.localizedMessage))
+                Result.failure()
+            } else retryOrFail(download, e)
+        } catch (e: IOException) {
+            retryOrFail(download, e)
+        }
+    }
+
+    private fun retryOrFail(download: Download, e: IOException): Result {
+        w(e) { "download attempt $runAttemptCount failed for ${download.key}" }
+        if (runAttemptCount < MAX_ATTEMPTS) {
+            // keep the segments fetched so far for resuming, unless the download was cancelled meanwhile
+            if (!isStopped) downloadsRepository.update(download)
+            return Result.retry()
+        }
+        download.file.deleteQuietly()
+        downloadsRepository.delete(download)
+        EventBus.getDefault()
+                .post(DownloadEvent(download, e.localizedMessage))
+        return Result.failure()
+    }
+
+    private fun createClient(download: Download) = if (download.type == DownloadType.PAPER && !paperRepository.getPaperWithBookId(
+                    download.key)?.publication.isNullOrBlank()) {
+        OkHttp3Helper.getInstance(applicationContext)
+                .getDownloadClientBuilder(accountHelper.getUser(AccountHelper.ACCOUNT_DEMO_USER),
+                        accountHelper.getPassword(AccountHelper.ACCOUNT_DEMO_PASS))
+                .build()
+    } else {
+        OkHttp3Helper.getInstance(applicationContext)
+                .getDownloadClientBuilder(null, null)
+                .build()
+    }
+}
@@ -7,7 +7,6 @@ import com.dd.plist.NSArray;
 import com.dd.plist.NSDictionary;
 import com.dd.plist.NSObject;
 import com.dd.plist.PropertyListParser;
-import com.squareup.picasso.Picasso;
 
 import de.thecode.android.tazreader.BuildConfig;
 import de.thecode.android.tazreader.R;
@@ -25,14 +24,15 @@ import de.thecode.android.tazreader.data.TazSettings;
 import de.thecode.android.tazreader.download.TazDownloadManager;
 import de.thecode.android.tazreader.okhttp3.OkHttp3Helper;
 import de.thecode.android.tazreader.okhttp3.RequestHelper;
+import de.thecode.android.tazreader.picasso.CoverPrefetcher;
 import de.thecode.android.tazreader.sync.SyncErrorEvent;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.greenrobot.eventbus.EventBus;
 import org.json.JSONArray;
 import org.json.JSONException;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -50,6 +50,7 @@ import androidx.work.WorkManager;
 import androidx.work.WorkRequest;
 import androidx.work.WorkerParameters;
 import okhttp3.HttpUrl;
+import okhttp3.Request;
 import timber.log.Timber;
 
 public class SyncWorker extends LoggingWorker {
@@ -59,6 +60,8 @@ public class SyncWorker extends LoggingWorker {
 
     private static final String PLIST_KEY_ISSUES = "issues";
 
+    private static final long NOT_MODIFIED_MIN_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
     public static final String ARG_START_DATE        = "startDate";
     public static final String ARG_END_DATE          = "endDate";
     public static final String ARG_INITIATED_BY_USER = "initiatedByUser";
@@ -70,6 +73,9 @@ public class SyncWorker extends LoggingWorker {
     private final TazSettings           settings;
     private final StoreRepository       storeRepository;
 
+    private String plistEtag;
+    private String plistLastModified;
+
     public SyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
         super(context, workerParams);
         paperRepository = PaperRepository.getInstance(context);
@@ -90,7 +96,14 @@ public class SyncWorker extends LoggingWorker {
         try {
             NSDictionary plist = callPlist(startDate, endDate);
             if (!initByUser) autoDeleteTask();
-            handlePlist(plist);
+            if (plist != null) {
+                handlePlist(plist);
+                if (startDate == null && endDate == null) settings.setPlistValidators(plistEtag, plistLastModified);
+            } else {
+                Timber.d("issue plist not modified");
+                long nextSync = TimeUnit.SECONDS.toMillis(publicationRepository.getLatestValidUntil()) - System.currentTimeMillis();
+                SyncWorker.scheduleJobIn(Math.max(nextSync, NOT_MODIFIED_MIN_DELAY_MILLIS));
+            }
         } catch (Exception e) {
             if (initByUser) {
                 EventBus.getDefault()
@@ -107,6 +120,11 @@ public class SyncWorker extends LoggingWorker {
 
         cleanUpResources();
 
+        Timber.d("%s", OkHttp3Helper.getInstance(getApplicationContext())
+                                   .getMetrics());
+        Timber.d("%s", CoverPrefetcher.getInstance(getApplicationContext())
+                                      .getStatistics());
+
         Paper latestPaper = paperRepository.getLatestPaper();
         if (latestPaper != null) {
             if (settings.getPrefBoolean(TazSettings.PREFKEY.AUTOLOAD, false) && !TazApplicationKt.getAccountHelper()
@@ -151,27 +169,18 @@ public class SyncWorker extends LoggingWorker {
 
         NSObject[] issues = ((NSArray) root.objectForKey(PLIST_KEY_ISSUES)).getArray();
         List<Paper> newPapers = new ArrayList<>();
+        List<Resource> resources = new ArrayList<>();
         for (NSObject issue : issues) {
             Paper newPaper = new Paper((NSDictionary) issue);
             newPaper.setPublication(publication.getIssueName());
             newPaper.setTitle(publicationTitle);
             newPaper.setValidUntil(validUntil);
-
-            boolean loadImage = true;
-
-            Paper oldPaper = paperRepository.getPaperWithBookId(newPaper.getBookId());
-            if (oldPaper != null) {
-                loadImage = !new EqualsBuilder().append(oldPaper.getImageHash(), newPaper.getImageHash())
-                                                .isEquals();
-            }
-            if (loadImage) preLoadImage(newPaper);
             newPapers.add(newPaper);
-            Resource resource = resourceRepository.getWithKey(newPaper.getResource());
-            if (resource == null) {
-                resourceRepository.saveResource(new Resource((NSDictionary) issue));
-            }
+            resources.add(new Resource((NSDictionary) issue));
+        }
+        for (Paper paper : paperRepository.applySync(newPapers, resources, validUntil)) {
+            preLoadImage(paper);
         }
-        paperRepository.savePapers(newPapers);
     }
 
     private NSDictionary callPlist(String startDate, String endDate) throws Exception {
@@ -181,23 +190,39 @@ public class SyncWorker extends LoggingWorker {
         } else {
             url = HttpUrl.parse(BuildConfig.PLISTURL);
         }
+        Request.Builder requestBuilder = new Request.Builder().url(url)
+                                                              .post(RequestHelper.getInstance(getApplicationContext())
+                                                                                 .getOkhttp3RequestBody());
+        boolean conditional = url.equals(HttpUrl.parse(BuildConfig.PLISTURL)) && paperRepository.getLatestPaper() != null;
+        if (conditional) {
+            String etag = settings.getPlistEtag();
+            String lastModified = settings.getPlistLastModified();
+            if (!TextUtils.isEmpty(etag)) requestBuilder.header("If-None-Match", etag);
+            if (!TextUtils.isEmpty(lastModified)) requestBuilder.header("If-Modified-Since", lastModified);
+        }
         okhttp3.Call call = OkHttp3Helper.getInstance(getApplicationContext())
-                                         .getCall(url,
-                                                  RequestHelper.getInstance(getApplicationContext())
-                                                               .getOkhttp3RequestBody());
+                                         .getCall(requestBuilder.build());
         okhttp3.Response response = call.execute();
-        if (response.isSuccessful()) {
-            return (NSDictionary) PropertyListParser.parse(response.body()
-                                                                   .bytes());
+        try {
+            if (conditional && response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return null;
+            }
+            if (response.isSuccessful()) {
+                plistEtag = response.header("ETag");
+                plistLastModified = response.header("Last-Modified");
+                return (NSDictionary) PropertyListParser.parse(response.body()
+                                                                       .bytes());
+            }
+            throw new IOException(response.body()
+                                          .string());
+        } finally {
+            response.close();
         }
-        throw new IOException(response.body()
-                                      .string());
     }
 
     private void preLoadImage(Paper paper) {
-        Picasso.with(getApplicationContext())
-               .load(paper.getImage())
-               .fetch();
+        CoverPrefetcher.getInstance(getApplicationContext())
+                       .prefetch(paper);
     }
 
     private void downloadLatestResource() {
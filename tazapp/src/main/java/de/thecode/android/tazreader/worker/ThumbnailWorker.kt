@@ -0,0 +1,105 @@
+package de.thecode.android.tazreader.worker
+
+import android.content.Context
+import android.graphics.Point
+import androidx.work.*
+import com.github.ajalt.timberkt.Timber.d
+import com.github.ajalt.timberkt.Timber.w
+import de.thecode.android.tazreader.data.PDFThumbStore
+import de.thecode.android.tazreader.paperRepository
+import de.thecode.android.tazreader.reader.page.TAZMuPDFCore
+import de.thecode.android.tazreader.reader.pagetoc.PageThumbnails
+import de.thecode.android.tazreader.storageManager
+import de.thecode.android.tazreader.utils.BitmapPool
+import java.io.File
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+
+/**
+ * Renders the thumbnails of all pages of a paper into its [PDFThumbStore] after download, so the page
+ * index does not have to render them while reading. Pages with a thumbnail are skipped.
+ */
+class ThumbnailWorker(context: Context, workerParams: WorkerParameters) : LoggingWorker(context, workerParams) {
+
+    companion object {
+
+        private const val ARG_BOOKID = "bookId"
+        private const val MAX_THREADS = 2
+
+        fun getTag(bookId: String): String {
+            return "thumbnails_$bookId"
+        }
+
+        fun enqueue(bookId: String) {
+            d { "scheduling ThumbnailWorker for $bookId" }
+            val data = Data.Builder()
+                    .putString(ARG_BOOKID, bookId)
+                    .build()
+            val request = OneTimeWorkRequest.Builder(ThumbnailWorker::class.java)
+                    .setInputData(data)
+                    .addTag(getTag(bookId))
+                    .build()
+            WorkManager.getInstance()
+                    .beginUniqueWork(getTag(bookId), ExistingWorkPolicy.KEEP, request)
+                    .enqueue()
+        }
+    }
+
+    override fun doBackgroundWork(): Result {
+        val bookId = inputData.getString(ARG_BOOKID) ?: return Result.failure()
+        val paper = paperRepository.getPaperWithBookId(bookId) ?: return Result.failure()
+        val paperDirectory = storageManager.getPaperDirectory(paper)
+        try {
+            if (!paper.hasPlist()) paper.loadPlist(paperDirectory)
+        } catch (e: Exception) {
+            w(e)
+            return Result.failure()
+        }
+
+        val thumbStore = PDFThumbStore.getInstance(storageManager, paper.fileHash)
+        val pages = paper.plist.allPages.filter { !thumbStore.exists(it.key) }
+        if (pages.isEmpty()) return Result.success()
+
+        val size = PageThumbnails.getSize(applicationContext)
+        val bitmapPool = BitmapPool.getInstance(applicationContext)
+        val executor = Executors.newFixedThreadPool(MAX_THREADS)
+        var rendered = 0
+        try {
+            val tasks = pages.map { page ->
+                Callable {
+                    // paper stopped or deleted in the meantime
+                    if (isStopped || !paperDirectory.exists()) return@Callable false
+                    renderPage(File(paperDirectory, page.key), page.key, size, bitmapPool, thumbStore)
+                }
+            }
+            for (future in executor.invokeAll(tasks)) {
+                try {
+                    if (future.get()) rendered++
+                } catch (e: ExecutionException) {
+                    w(e)
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+        d { "rendered $rendered of ${pages.size} thumbnails for $bookId" }
+        return Result.success()
+    }
+
+    private fun renderPage(pdfFile: File, key: String, size: Point, bitmapPool: BitmapPool,
+                           thumbStore: PDFThumbStore): Boolean {
+        // an own core, pages opened by the reader stay in the MuPDFCoreCache
+        val core = TAZMuPDFCore(applicationContext, pdfFile.absolutePath)
+        try {
+            val bitmap = PageThumbnails.render(core, size, bitmapPool)
+            try {
+                return thumbStore.save(bitmap, key)
+            } finally {
+                bitmapPool.put(bitmap)
+            }
+        } finally {
+            core.onDestroy()
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package de.thecode.android.tazreader.data;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Generates an XML content.plist in the structure of a taz issue: sources with books, categories, pages, geometries
+ * and articles, hash values for every file and toplinks, some of them pointing to pages.
+ */
+final class PlistFixture {
+
+    private final int sources;
+    private final int categoriesPerSource;
+    private final int pagesPerCategory;
+    private final int articlesPerPage;
+
+    private final StringBuilder xml = new StringBuilder();
+
+    PlistFixture(int sources, int categoriesPerSource, int pagesPerCategory, int articlesPerPage) {
+        this.sources = sources;
+        this.categoriesPerSource = categoriesPerSource;
+        this.pagesPerCategory = pagesPerCategory;
+        this.articlesPerPage = articlesPerPage;
+    }
+
+    /**
+     * About 1 MB, more than the content.plist of a large weekend issue.
+     */
+    static PlistFixture large() {
+        return new PlistFixture(2, 8, 8, 8);
+    }
+
+    byte[] toBytes() {
+        xml.setLength(0);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+           .append("<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" ")
+           .append("\"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n")
+           .append("<plist version=\"1.0\">\n<dict>\n");
+        string("ArchivUrl", "http://dl.taz.de/archiv/2020-06-01.paper.zip");
+        string("BookId", "taz_2020-06-01");
+        string("ressource", "tazAppResources_42.res");
+        string("MinVersion", "3.4");
+        string("Version", "2");
+
+        List<String> files = new ArrayList<>();
+        List<String> defaultLinks = new ArrayList<>();
+        key("Quellen");
+        xml.append("<array>\n");
+        int pageNumber = 0;
+        for (int s = 0; s < sources; s++) {
+            xml.append("<dict>\n");
+            key("Quelle " + s);
+            xml.append("<array>\n<dict>\n");
+            key("Buch " + s);
+            xml.append("<array>\n");
+            for (int c = 0; c < categoriesPerSource; c++) {
+                xml.append("<dict>\n");
+                // category names repeat, their keys are made unique by the parsers
+                key(c % 3 == 0 ? "Politik" : "Ressort " + c);
+                xml.append("<array>\n");
+                for (int p = 0; p < pagesPerCategory; p++) {
+                    pageNumber++;
+                    String pageKey = String.format(Locale.US, "s%03d.pdf", pageNumber);
+                    files.add(pageKey);
+                    String defaultLink = String.format(Locale.US, "art%05d.html", pageNumber * 100);
+                    defaultLinks.add(defaultLink);
+                    xml.append("<dict>\n");
+                    key(pageKey);
+                    xml.append("<dict>\n");
+                    string("SeitenNummer", String.valueOf(pageNumber));
+                    string("defaultLink", defaultLink);
+                    if (pageNumber > 1) string("left", String.format(Locale.US, "s%03d.pdf", pageNumber - 1));
+                    string("right", String.format(Locale.US, "s%03d.pdf", pageNumber + 1));
+                    key("geometry");
+                    xml.append("<array>\n");
+                    for (int a = 0; a < articlesPerPage; a++) {
+                        xml.append("<dict>\n");
+                        key("x1");
+                        xml.append("<real>").append(a * 0.125f).append("</real>\n");
+                        key("y1");
+                        xml.append("<integer>").append(a).append("</integer>\n");
+                        key("x2");
+                        xml.append("<real>").append(0.5f + a * 0.0625f).append("</real>\n");
+                        key("y2");
+                        xml.append("<real>").append(a + 0.75f).append("</real>\n");
+                        string("link", articleKey(pageNumber, a));
+                        xml.append("</dict>\n");
+                    }
+                    xml.append("</array>\n");
+                    key("Artikel");
+                    xml.append("<array>\n");
+                    for (int a = 0; a < articlesPerPage; a++) {
+                        String articleKey = articleKey(pageNumber, a);
+                        files.add(articleKey);
+                        xml.append("<dict>\n");
+                        key(articleKey);
+                        xml.append("<dict>\n");
+                        // articles without a title get the one of their page
+                        if (a != 1) string("Titel", "Überschrift " + a + " &amp; <mehr> auf Seite " + pageNumber);
+                        string("Untertitel", "Unterzeile mit „Zitat“ " + a);
+                        if (a % 2 == 0) string("Autor", "Autorin " + a);
+                        string("OnlineLink", "https://taz.de/!" + (5000000 + pageNumber * 100 + a));
+                        if (a == 0) string("AudioLink", "https://taz.de/audio/" + articleKey + ".mp3");
+                        xml.append("</dict>\n</dict>\n");
+                    }
+                    xml.append("</array>\n</dict>\n</dict>\n");
+                }
+                xml.append("</array>\n</dict>\n");
+            }
+            xml.append("</array>\n</dict>\n</array>\n</dict>\n");
+        }
+        xml.append("</array>\n");
+
+        key("TopLinks");
+        xml.append("<array>\n");
+        for (int i = 0; i < defaultLinks.size(); i += 5) {
+            xml.append("<dict>\n");
+            string(defaultLinks.get(i), "Seite " + (i + 1));
+            xml.append("</dict>\n");
+        }
+        xml.append("<dict>\n");
+        string("impressum.html", "Impressum");
+        xml.append("</dict>\n</array>\n");
+
+        key("HashVals");
+        xml.append("<dict>\n");
+        for (String file : files) {
+            string(file, Integer.toHexString(file.hashCode()) + "0123456789abcdef0123456789abcdef");
+        }
+        xml.append("</dict>\n");
+
+        xml.append("</dict>\n</plist>\n");
+        return xml.toString()
+                  .getBytes(Charset.forName("UTF-8"));
+    }
+
+    private static String articleKey(int page, int article) {
+        return String.format(Locale.US, "art%05d.html", page * 100 + article + 1);
+    }
+
+    private void key(String key) {
+        xml.append("<key>")
+           .append(key)
+           .append("</key>\n");
+    }
+
+    private void string(String key, String value) {
+        key(key);
+        xml.append("<string>")
+           .append(value)
+           .append("</string>\n");
+    }
+}
@@ -0,0 +1,94 @@
+package de.thecode.android.tazreader.data;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parse time and allocated bytes of the streaming parser against the dd-plist path, on the large fixture. Numbers are
+ * printed, only the allocation is asserted, timings on a shared build machine are too noisy.
+ */
+public class PlistParserBenchmark {
+
+    private static final int WARMUP     = 5;
+    private static final int ITERATIONS = 20;
+
+    private interface Parse {
+        void run(byte[] data) throws Exception;
+    }
+
+    @Test
+    public void parseTimeAndAllocation() throws Exception {
+        byte[] fixture = PlistFixture.large()
+                                     .toBytes();
+
+        Result dd = measure(fixture, new Parse() {
+            @Override
+            public void run(byte[] data) throws Exception {
+                PlistStreamParserTest.parseWithDdPlist(data, true);
+            }
+        });
+        Result stream = measure(fixture, new Parse() {
+            @Override
+            public void run(byte[] data) throws Exception {
+                PlistStreamParserTest.parseStreaming(data, true);
+            }
+        });
+
+        System.out.println(String.format(Locale.US, "content.plist of %d KB", fixture.length / 1024));
+        System.out.println("dd-plist: " + dd);
+        System.out.println("stream:   " + stream);
+        if (stream.bytes >= 0 && dd.bytes >= 0) {
+            assertTrue("streaming allocates more than dd-plist", stream.bytes < dd.bytes);
+        }
+    }
+
+    private static Result measure(byte[] data, Parse parse) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            parse.run(data);
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parse.run(data);
+        }
+        long nanos = System.nanoTime() - start;
+        long bytesAfter = allocatedBytes();
+        return new Result(nanos / ITERATIONS, bytesBefore < 0 ? -1 : (bytesAfter - bytesBefore) / ITERATIONS);
+    }
+
+    /**
+     * @return the bytes allocated by this thread so far, or -1 if the JVM does not count them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread()
+                                                             .getId());
+            }
+        }
+        return -1;
+    }
+
+    private static class Result {
+        final long nanos;
+        final long bytes;
+
+        Result(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%.2f ms, %s per parse", nanos / 1e6,
+                                 bytes < 0 ? "allocation not measured" : (bytes / 1024) + " KB");
+        }
+    }
+}
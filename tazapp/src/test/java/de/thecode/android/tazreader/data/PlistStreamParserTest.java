@@ -0,0 +1,113 @@
+package de.thecode.android.tazreader.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlistStreamParserTest {
+
+    private final byte[] fixture = PlistFixture.large()
+                                               .toBytes();
+
+    @Test
+    public void streamParserMatchesDdPlist() throws Exception {
+        List<String> expected = describe(parseWithDdPlist(fixture, true));
+        List<String> actual = describe(parseStreaming(fixture, true));
+
+        assertTrue("fixture too small", expected.size() > 5000);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("line " + i, expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void streamParserMatchesDdPlistWithoutIndex() throws Exception {
+        Paper.Plist expected = parseWithDdPlist(fixture, false);
+        Paper.Plist actual = parseStreaming(fixture, false);
+
+        assertEquals(describeAttributes(expected), describeAttributes(actual));
+    }
+
+    @Test
+    public void binaryAndAsciiPlistsFallBackToDdPlist() throws Exception {
+        byte[] ascii = "{ BookId = \"taz_2020-06-01\"; ressource = \"tazAppResources_42.res\"; HashVals = { }; }"
+                .getBytes("UTF-8");
+
+        Paper.Plist plist = parseStreaming(ascii, false);
+
+        assertEquals("taz_2020-06-01", plist.getBookId());
+        assertEquals("tazAppResources_42", plist.getResource());
+    }
+
+    static Paper.Plist parseWithDdPlist(byte[] data, boolean parseIndex) throws Exception {
+        return new Paper().new Plist(new ByteArrayInputStream(data), parseIndex);
+    }
+
+    static Paper.Plist parseStreaming(byte[] data, boolean parseIndex) throws Exception {
+        return PlistStreamParser.parse(new Paper(), new ByteArrayInputStream(data), parseIndex);
+    }
+
+    private static List<String> describeAttributes(Paper.Plist plist) {
+        List<String> lines = new ArrayList<>();
+        lines.add("archiveUrl " + plist.getArchiveUrl());
+        lines.add("bookId " + plist.getBookId());
+        lines.add("resource " + plist.getResource());
+        lines.add("minVersion " + plist.getMinVersion());
+        lines.add("version " + plist.getVersion());
+        for (Map.Entry<String, String> hashVal : new TreeMap<>(plist.getHashVals()).entrySet()) {
+            lines.add("hash " + hashVal.getKey() + " " + hashVal.getValue());
+        }
+        return lines;
+    }
+
+    /**
+     * Flattens everything the reader uses from a parsed plist into lines, in document order.
+     */
+    private static List<String> describe(Paper.Plist plist) {
+        List<String> lines = describeAttributes(plist);
+        for (Paper.Plist.Source source : plist.getSources()) {
+            lines.add("source " + source.getKey() + " " + source.getTitle());
+            for (Paper.Plist.Book book : source.getBooks()) {
+                lines.add(" book " + book.getKey());
+                for (Paper.Plist.Category category : book.getCategories()) {
+                    lines.add("  category " + category.getKey() + " " + category.getTitle());
+                    for (Paper.Plist.Page page : category.getPages()) {
+                        lines.add("   page " + page.getKey() + " " + page.pagina + " " + page.getDefaultLink() + " "
+                                          + page.left + " " + page.right);
+                        for (Paper.Plist.Page.Geometry geometry : page.getGeometries()) {
+                            lines.add("    geometry " + geometry.getX1() + " " + geometry.getY1() + " "
+                                              + geometry.getX2() + " " + geometry.getY2() + " " + geometry.getLink());
+                        }
+                        for (Paper.Plist.Page.Article article : page.getArticles()) {
+                            Paper.Plist.Page realPage = article.getRealPage();
+                            lines.add("    article " + article.getKey() + " " + article.getRawTitle() + " | "
+                                              + article.getSubtitle() + " | " + article.getAuthor() + " | "
+                                              + article.getOnlinelink() + " | " + article.getAudiolink() + " | "
+                                              + (realPage != null ? realPage.getKey() : null));
+                        }
+                    }
+                }
+            }
+        }
+        for (Paper.Plist.TopLink toplink : plist.getToplinks()) {
+            Paper.Plist.Page page = toplink.getPage();
+            lines.add("toplink " + toplink.getKey() + " " + toplink.getTitle() + " " + toplink.isLink() + " "
+                              + (page != null ? page.getKey() : null));
+        }
+        for (String key : plist.getArticleOrder()) {
+            lines.add("order " + key);
+        }
+        for (Paper.Plist.Page page : plist.getAllPages()) {
+            lines.add("index " + page.getKey() + " " + (plist.getIndexItem(page.getKey()) == page));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,129 @@
+package de.thecode.android.tazreader.download
+
+import de.thecode.android.tazreader.secure.HashHelper
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream
+import org.apache.commons.compress.archivers.zip.ZipFile
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.IOException
+import java.util.*
+
+class ArchiveExtractorTest {
+
+    companion object {
+        private const val ENTRIES = 300
+        private const val HASHED_ENTRIES = 200
+        private const val BENCHMARK_RUNS = 3
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private lateinit var archive: File
+    private lateinit var sources: File
+    private val contents = LinkedHashMap<String, ByteArray>()
+
+    @Before
+    fun setUp() {
+        // a synthetic issue: text like pages and articles compress well, images do not
+        val random = Random(300)
+        archive = folder.newFile("issue.zip")
+        sources = folder.newFolder("sources")
+        ZipArchiveOutputStream(archive).use { zip ->
+            zip.putArchiveEntry(ZipArchiveEntry("res/"))
+            zip.closeArchiveEntry()
+            for (i in 0 until ENTRIES) {
+                val name = if (i % 4 == 3) "res/img$i.jpg" else "art$i.html"
+                val data = ByteArray(4 * 1024 + random.nextInt(60 * 1024))
+                if (name.endsWith(".jpg")) {
+                    random.nextBytes(data)
+                } else {
+                    for (j in data.indices) data[j] = ('a' + random.nextInt(8)).toByte()
+                }
+                contents[name] = data
+                zip.putArchiveEntry(ZipArchiveEntry(name))
+                zip.write(data)
+                zip.closeArchiveEntry()
+                File(sources, name).apply { parentFile.mkdirs() }
+                        .writeBytes(data)
+            }
+        }
+    }
+
+    @Test
+    fun extractsAllEntriesAndChecksHashes() {
+        val hashVals = expectedHashes()
+        // listed, but not part of the archive
+        val missing = mapOf("fehlt1.html" to "00", "fehlt2.html" to "11")
+        hashVals.putAll(missing)
+
+        for (threads in listOf(1, 3)) {
+            val target = folder.newFolder("target$threads")
+            val unchecked = ArchiveExtractor(archive, target, threads).extract(entries(), hashVals, Callback())
+
+            assertEquals(missing, unchecked)
+            for ((name, data) in contents) {
+                assertArrayEquals(name, data, File(target, name).readBytes())
+            }
+        }
+    }
+
+    @Test
+    fun failsOnWrongHash() {
+        val hashVals = expectedHashes()
+        hashVals["art150.html"] = "0000000000000000000000000000000000000000"
+
+        try {
+            ArchiveExtractor(archive, folder.newFolder("target"), 3).extract(entries(), hashVals, Callback())
+            fail("wrong hash must fail")
+        } catch (e: IOException) {
+            assertTrue(e.message!!.contains("art150.html"))
+        }
+    }
+
+    @Test
+    fun returnsNullIfCancelled() {
+        val callback = Callback(cancelled = true)
+
+        assertNull(ArchiveExtractor(archive, folder.newFolder("target"), 3).extract(entries(), null, callback))
+    }
+
+    @Test
+    fun benchmarkThreads() {
+        val entries = entries()
+        val results = listOf(1, 3).associateWith { threads ->
+            (1..BENCHMARK_RUNS).map {
+                val target = folder.newFolder("bench$threads-$it")
+                val start = System.nanoTime()
+                ArchiveExtractor(archive, target, threads).extract(entries, expectedHashes(), Callback())
+                (System.nanoTime() - start) / 1_000_000
+            }
+                    .min()
+        }
+        println("extracting $ENTRIES entries, ${archive.length() / 1024} KB: " +
+                "1 thread ${results[1]} ms, 3 threads ${results[3]} ms, " +
+                "${Runtime.getRuntime().availableProcessors()} processors")
+    }
+
+    private fun entries(): List<ZipArchiveEntry> = ZipFile(archive).use { it.entriesInPhysicalOrder.toList() }
+
+    private fun expectedHashes(): MutableMap<String, String> {
+        val result = HashMap<String, String>()
+        for (name in contents.keys.take(HASHED_ENTRIES)) {
+            result[name] = HashHelper.getHash(File(sources, name), HashHelper.SHA_1)
+        }
+        return result
+    }
+
+    private class Callback(private val cancelled: Boolean = false) : ArchiveExtractor.Callback {
+        override fun isCancelled() = cancelled
+
+        override fun onProgress(progress: Int) {
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.thecode.android.tazreader.download
+
+import de.thecode.android.tazreader.data.Download
+import de.thecode.android.tazreader.data.DownloadType
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okhttp3.mockwebserver.SocketPolicy
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.util.*
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+class HttpDownloadEngineTest {
+
+    companion object {
+        private const val ETAG = "\"v1\""
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val server = MockWebServer()
+    private val content = ByteArray(256 * 1024).also { Random(42).nextBytes(it) }
+    private val getRequests = CopyOnWriteArrayList<RecordedRequest>()
+
+    @Volatile
+    private var supportRanges = true
+    @Volatile
+    private var failingGets = 0
+    @Volatile
+    private var throttle = false
+    @Volatile
+    private var shortRanges = 0
+
+    private lateinit var download: Download
+
+    @Before
+    fun setUp() {
+        server.setDispatcher(object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val response = MockResponse().setHeader("ETag", ETAG)
+                if (request.method == "HEAD") {
+                    if (supportRanges) response.setHeader("Accept-Ranges", "bytes")
+                    return response.setHeader("Content-Length", content.size)
+                }
+                getRequests.add(request)
+                val range = request.getHeader("Range")
+                if (range != null && supportRanges) {
+                    val (start, end) = range.removePrefix("bytes=")
+                            .split("-")
+                    val from = start.toInt()
+                    var to = if (end.isEmpty()) content.size - 1 else end.toInt()
+                    if (shortRanges > 0) {
+                        // a complete response, but of fewer bytes than requested
+                        shortRanges--
+                        to -= 1000
+                    }
+                    response.setResponseCode(206)
+                            .setHeader("Content-Range", "bytes $from-$to/${content.size}")
+                            .setBody(Buffer().write(content, from, to - from + 1))
+                } else {
+                    response.setBody(Buffer().write(content))
+                }
+                if (failingGets > 0) {
+                    failingGets--
+                    response.socketPolicy = SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY
+                }
+                if (throttle) response.throttleBody(1024, 1, TimeUnit.SECONDS)
+                return response
+            }
+        })
+        server.start()
+        download = Download.create(DownloadType.PAPER, "test", "Test", File(folder.root, "test.paper.zip"))
+        download.url = server.url("/test.paper.zip")
+                .toString()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun resumesPartialDownloadWithRange() {
+        writePartial(40 * 1024)
+
+        assertTrue(engine().download(download, false, Callback()))
+
+        assertEquals(1, getRequests.size)
+        assertEquals("bytes=${40 * 1024}-${content.size - 1}", getRequests[0].getHeader("Range"))
+        assertEquals(ETAG, getRequests[0].getHeader("If-Range"))
+        assertArrayEquals(content, download.file.readBytes())
+        assertEquals(100, download.progress)
+    }
+
+    @Test
+    fun resumesOnRetryAfterFailedAttempt() {
+        failingGets = 1
+        try {
+            engine().download(download, false, Callback())
+            fail("interrupted transfer must fail")
+        } catch (e: IOException) {
+            // the worker retries
+        }
+
+        assertTrue(engine().download(download, false, Callback()))
+
+        assertEquals(2, getRequests.size)
+        assertNotNull("second attempt must resume", getRequests[1].getHeader("Range"))
+        assertArrayEquals(content, download.file.readBytes())
+    }
+
+    @Test
+    fun failsAndResumesIfRangeIsAnsweredShort() {
+        writePartial(40 * 1024)
+        shortRanges = 1
+        try {
+            engine().download(download, false, Callback())
+            fail("short range must not count as complete")
+        } catch (e: IOException) {
+            // the worker retries
+        }
+
+        assertTrue(engine().download(download, false, Callback()))
+
+        assertEquals(2, getRequests.size)
+        assertEquals("bytes=${content.size - 1000}-${content.size - 1}", getRequests[1].getHeader("Range"))
+        assertArrayEquals(content, download.file.readBytes())
+    }
+
+    @Test
+    fun restartsWithoutResumeIfServerIgnoresRange() {
+        writePartial(40 * 1024)
+        supportRanges = false
+
+        assertTrue(engine().download(download, false, Callback()))
+
+        assertArrayEquals(content, download.file.readBytes())
+    }
+
+    @Test
+    fun cancelStopsTransfer() {
+        throttle = true
+        val callback = Callback(cancelled = true)
+        val start = System.currentTimeMillis()
+
+        assertFalse(engine().download(download, false, callback))
+
+        assertTrue("cancel took too long", System.currentTimeMillis() - start < 15_000)
+        val length = download.file.length()
+        val written = download.segments
+        Thread.sleep(1500)
+        assertEquals("no segment may write after returning", written, download.segments)
+        assertEquals(length, download.file.length())
+        assertTrue(download.progress < 100)
+    }
+
+    private fun engine() = HttpDownloadEngine(OkHttpClient.Builder()
+            .readTimeout(30, TimeUnit.SECONDS)
+            .build())
+
+    private fun writePartial(length: Int) {
+        RandomAccessFile(download.file, "rw").use {
+            it.setLength(content.size.toLong())
+            it.write(content, 0, length)
+        }
+        download.totalBytes = content.size.toLong()
+        download.etag = ETAG
+        download.segments = "0:${content.size - 1}:$length"
+    }
+
+    private class Callback(private val cancelled: Boolean = false) : HttpDownloadEngine.Callback {
+        override fun isCancelled() = cancelled
+
+        override fun onProgress(download: Download) {
+        }
+    }
+}